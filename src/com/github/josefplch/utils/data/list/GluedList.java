@@ -4,6 +4,7 @@ import com.github.josefplch.utils.data.Bifunctor;
 import com.github.josefplch.utils.data.function.Function3;
 import com.github.josefplch.utils.data.tuple.Pair;
 import java.io.Serializable;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
@@ -15,14 +16,15 @@ import java.util.function.Supplier;
  * 
  * There is always at least one element and |glues| = |elements| - 1.
  * 
- * The implementation is similar to linked list.
+ * The implementation is similar to linked list. All the operations are
+ * iterative, so that there is no limit on the list length given by the stack.
  * 
  * @param <E> Type of the elements.
  * @param <G> Type of the "glue" connecting the elements.
  * 
  * @author  Josef Plch
  * @since   2019-04-12
- * @version 2019-11-16
+ * @version 2026-10-19
  */
 public class GluedList <E, G> implements Bifunctor <E, G>, Serializable {
     // The element is never null.
@@ -47,31 +49,37 @@ public class GluedList <E, G> implements Bifunctor <E, G>, Serializable {
         Objects.requireNonNull (element);
         Objects.requireNonNull (glue);
         
-        E oldElement = this.element;
-        if (this.isLast ()) {
-            this.element = element;
-            this.glue = glue;
-            this.next = new GluedList <> (oldElement);
-        }
-        else {
-            G oldGlue = this.glue;
-            this.element = element;
-            this.glue = glue;
-            next.addFirst (oldElement, oldGlue);
+        // Shift all the elements and glues by one position to the right.
+        GluedList <E, G> pointer = this;
+        E newElement = element;
+        G newGlue = glue;
+        while (pointer.hasNext ()) {
+            E oldElement = pointer.element;
+            G oldGlue = pointer.glue;
+            pointer.element = newElement;
+            pointer.glue = newGlue;
+            newElement = oldElement;
+            newGlue = oldGlue;
+            pointer = pointer.next;
         }
+        E oldElement = pointer.element;
+        pointer.element = newElement;
+        pointer.glue = newGlue;
+        pointer.next = new GluedList <> (oldElement);
     }
     
+    // Beware: this takes linear time. If you are building a long list, use
+    // GluedList.build instead.
     public void addLast (G glue, E element) {
         Objects.requireNonNull (glue);
         Objects.requireNonNull (element);
         
-        if (this.isLast ()) {
-            this.glue = glue;
-            this.next = new GluedList <> (element);
-        }
-        else {
-            next.addLast (glue, element);
+        GluedList <E, G> pointer = this;
+        while (pointer.hasNext ()) {
+            pointer = pointer.next;
         }
+        pointer.glue = glue;
+        pointer.next = new GluedList <> (element);
     }
     
     @Override
@@ -84,15 +92,46 @@ public class GluedList <E, G> implements Bifunctor <E, G>, Serializable {
         Function <G, G2> gf,
         Function3 <A2, G2, S, S> constructor
     ) {
-        return (
-            this.isLast ()
-            ? constructor.apply (af.apply (element), null, null)
-            : constructor.apply (
-                af.apply (element),
-                gf.apply (glue),
-                next.bimap (af, gf, constructor)
-            )
-        );
+        FunctionalList <A2> newElements = new FunctionalList <> ();
+        FunctionalList <G2> newGlues = new FunctionalList <> ();
+        GluedList <E, G> pointer = this;
+        newElements.add (af.apply (pointer.element));
+        while (pointer.hasNext ()) {
+            newGlues.add (gf.apply (pointer.glue));
+            pointer = pointer.next;
+            newElements.add (af.apply (pointer.element));
+        }
+        return build (newElements, newGlues, constructor);
+    }
+    
+    /**
+     * Build a glued list from the given elements and glues, in linear time.
+     * 
+     * @param <E>         Type of the elements.
+     * @param <G>         Type of the glues.
+     * @param <S>         Type of the resulting list.
+     * @param elements    The elements (at least one).
+     * @param glues       The glues, one less than elements.
+     * @param constructor Constructor: (element, glue, next) -> list.
+     * @return            The glued list.
+     * @throws IllegalArgumentException If the sizes do not match.
+     */
+    protected static <E, G, S extends GluedList <E, G>> S build (
+        List <? extends E> elements,
+        List <? extends G> glues,
+        Function3 <E, G, S, S> constructor
+    ) throws IllegalArgumentException {
+        if (elements.isEmpty () || glues.size () != elements.size () - 1) {
+            throw new IllegalArgumentException (
+                "Illegal number of elements and glues: " + elements.size () + ", " + glues.size ()
+            );
+        }
+        int last = elements.size () - 1;
+        S result = constructor.apply (elements.get (last), null, null);
+        for (int i = last - 1; i >= 0; i--) {
+            result = constructor.apply (elements.get (i), glues.get (i), result);
+        }
+        return result;
     }
     
     public FunctionalList <E> elements () {
@@ -120,11 +159,17 @@ public class GluedList <E, G> implements Bifunctor <E, G>, Serializable {
             result = false;
         }
         else {
-            final GluedList <?, ?> other = (GluedList <?, ?>) object;
-            result =
-                Objects.equals    (this.element, other.element)
-                && Objects.equals (this.glue,    other.glue)
-                && Objects.equals (this.next,    other.next);
+            GluedList <?, ?> pointer = this;
+            GluedList <?, ?> other = (GluedList <?, ?>) object;
+            result = true;
+            while (result && pointer != null && other != null) {
+                result =
+                    Objects.equals    (pointer.element, other.element)
+                    && Objects.equals (pointer.glue,    other.glue);
+                pointer = pointer.next;
+                other = other.next;
+            }
+            result = result && pointer == null && other == null;
         }
         return result;
     }
@@ -151,12 +196,23 @@ public class GluedList <E, G> implements Bifunctor <E, G>, Serializable {
         return result;
     }
     
+    // Equivalent to: 71 * (71 * (71 * 3 + hash (element)) + hash (glue)) + hash (next)
     @Override
     public int hashCode () {
-        int hash = 3;
-        hash = 71 * hash + Objects.hashCode (this.element);
-        hash = 71 * hash + Objects.hashCode (this.glue);
-        hash = 71 * hash + Objects.hashCode (this.next);
+        FunctionalList <GluedList <E, G>> nodes = new FunctionalList <> ();
+        GluedList <E, G> pointer = this;
+        while (pointer != null) {
+            nodes.add (pointer);
+            pointer = pointer.next;
+        }
+        int hash = 0;
+        for (int i = nodes.size () - 1; i >= 0; i--) {
+            GluedList <E, G> node = nodes.get (i);
+            int nodeHash = 3;
+            nodeHash = 71 * nodeHash + Objects.hashCode (node.element);
+            nodeHash = 71 * nodeHash + Objects.hashCode (node.glue);
+            hash = 71 * nodeHash + hash;
+        }
         return hash;
     }
     
@@ -194,7 +250,7 @@ public class GluedList <E, G> implements Bifunctor <E, G>, Serializable {
     
     @Override
     public String toString () {
-        return (element + (this.isLast () ? "" : (", " + glue + ", " + next)));
+        return this.toString (Object :: toString, glue -> ", " + glue + ", ");
     }
     
     public String toString (
@@ -202,10 +258,12 @@ public class GluedList <E, G> implements Bifunctor <E, G>, Serializable {
         Function <G, String> glueFunction
     ) {
         StringBuilder result = new StringBuilder ();
-        result.append (elementFunction.apply (element));
-        if (this.hasNext ()) {
-            result.append (glueFunction.apply (glue));
-            result.append (next.toString (elementFunction, glueFunction));
+        GluedList <E, G> pointer = this;
+        result.append (elementFunction.apply (pointer.element));
+        while (pointer.hasNext ()) {
+            result.append (glueFunction.apply (pointer.glue));
+            pointer = pointer.next;
+            result.append (elementFunction.apply (pointer.element));
         }
         return result.toString ();
     }
@@ -0,0 +1,97 @@
+package com.github.josefplch.utils.data.map;
+
+/**
+ * Count-Min sketch with conservative update: approximate frequencies of any
+ * number of keys in fixed memory. The estimate of a key is never lower than
+ * its real frequency; it is higher when the key shares all its counters with
+ * other keys. The conservative update (increasing only the counters which are
+ * lower than the new estimate) keeps the overestimation much lower than the
+ * plain update does.
+ * 
+ * The keys are given by their 64-bit hashes; the rows take different parts of
+ * the hash (double hashing), so the hash should be well mixed.
+ * 
+ * The sketch is not thread-safe.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public class CountMinSketch {
+    public static final int DEFAULT_DEPTH = 4;
+    
+    private final long [][] counters;
+    private final int width;
+    // Buffer of the counter positions of the current key.
+    private final int [] positions;
+    
+    /**
+     * @param depth Number of rows (hash functions).
+     * @param width Number of counters in a row.
+     */
+    public CountMinSketch (int depth, int width) {
+        if (depth < 1 || width < 1) {
+            throw new IllegalArgumentException ("The depth and the width of the sketch must be positive.");
+        }
+        this.counters = new long [depth][width];
+        this.width = width;
+        this.positions = new int [depth];
+    }
+    
+    /**
+     * Add the given count to the frequency of the key.
+     * 
+     * @param hash  Hash of the key.
+     * @param count Non-negative number to be added.
+     * @return      The new estimate of the frequency.
+     */
+    public long add (long hash, long count) {
+        long result = this.locate (hash) + count;
+        for (int row = 0; row < counters.length; row++) {
+            if (counters [row][positions [row]] < result) {
+                counters [row][positions [row]] = result;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * @param hash Hash of the key.
+     * @return     Estimate of the frequency of the key (not lower than the
+     *             real one).
+     */
+    public long estimate (long hash) {
+        return this.locate (hash);
+    }
+    
+    public int getDepth () {
+        return counters.length;
+    }
+    
+    public int getWidth () {
+        return width;
+    }
+    
+    // Find the counters of the key, return their minimum.
+    private long locate (long hash) {
+        long result = Long.MAX_VALUE;
+        long h1 = hash & 0xFFFF_FFFFL;
+        long h2 = (hash >>> 32) | 1L;
+        for (int row = 0; row < counters.length; row++) {
+            positions [row] = (int) ((h1 + row * h2) % width);
+            result = Math.min (result, counters [row][positions [row]]);
+        }
+        return result;
+    }
+    
+    /**
+     * Create a sketch of DEFAULT_DEPTH rows with (about) the given total
+     * number of counters; every counter takes 8 bytes.
+     * 
+     * @param size Total number of counters.
+     * @return     The sketch.
+     */
+    public static CountMinSketch ofSize (int size) {
+        return new CountMinSketch (DEFAULT_DEPTH, Math.max (1, size / DEFAULT_DEPTH));
+    }
+}
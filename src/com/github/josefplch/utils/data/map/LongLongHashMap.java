@@ -0,0 +1,191 @@
+package com.github.josefplch.utils.data.map;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive longs to primitive longs, see
+ * ObjectLongHashMap. There are no entry objects and no boxing: a key-value
+ * pair takes 17 bytes (divided by the load factor).
+ * 
+ * The map is not thread-safe.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public class LongLongHashMap {
+    private static final float LOAD_FACTOR = 0.6f;
+    
+    private long [] keys;
+    private long [] values;
+    private boolean [] used;
+    private int mask;
+    private int size;
+    private int threshold;
+    
+    @FunctionalInterface
+    public static interface LongLongConsumer {
+        public void accept (long key, long value);
+    }
+    
+    public LongLongHashMap () {
+        this (16);
+    }
+    
+    public LongLongHashMap (int expectedSize) {
+        int capacity = Integer.highestOneBit (Math.max (4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.allocate (capacity);
+    }
+    
+    /**
+     * Add the given difference to the value of the key (0 if not present).
+     * 
+     * @param key        The key.
+     * @param difference Value to be added.
+     * @return           The new value.
+     */
+    public long addTo (long key, long difference) {
+        int index = this.indexOf (key);
+        long result;
+        if (! used [index]) {
+            this.insert (index, key, difference);
+            result = difference;
+        }
+        else {
+            values [index] += difference;
+            result = values [index];
+        }
+        return result;
+    }
+    
+    private void allocate (int capacity) {
+        keys = new long [capacity];
+        values = new long [capacity];
+        used = new boolean [capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+    
+    public void clear () {
+        Arrays.fill (used, false);
+        size = 0;
+    }
+    
+    public boolean containsKey (long key) {
+        return used [this.indexOf (key)];
+    }
+    
+    public void forEach (LongLongConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used [i]) {
+                consumer.accept (keys [i], values [i]);
+            }
+        }
+    }
+    
+    /**
+     * Get the value associated with the key.
+     * 
+     * @param key The key.
+     * @return    The value or 0 if the key is not present.
+     */
+    public long get (long key) {
+        int index = this.indexOf (key);
+        return (used [index] ? values [index] : 0L);
+    }
+    
+    // Find either the slot of the key, or the empty slot where it belongs.
+    private int indexOf (long key) {
+        int index = mix (key) & mask;
+        while (used [index] && keys [index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+    
+    private void insert (int index, long key, long value) {
+        keys [index] = key;
+        values [index] = value;
+        used [index] = true;
+        size++;
+        if (size > threshold) {
+            this.rehash (keys.length * 2);
+        }
+    }
+    
+    public boolean isEmpty () {
+        return (size == 0);
+    }
+    
+    private static int mix (long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+    
+    /**
+     * Associate the value with the key.
+     * 
+     * @param key   The key.
+     * @param value The value.
+     */
+    public void put (long key, long value) {
+        int index = this.indexOf (key);
+        if (! used [index]) {
+            this.insert (index, key, value);
+        }
+        else {
+            values [index] = value;
+        }
+    }
+    
+    private void rehash (int newCapacity) {
+        long [] oldKeys = keys;
+        long [] oldValues = values;
+        boolean [] oldUsed = used;
+        this.allocate (newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed [i]) {
+                int index = this.indexOf (oldKeys [i]);
+                keys [index] = oldKeys [i];
+                values [index] = oldValues [i];
+                used [index] = true;
+            }
+        }
+    }
+    
+    /**
+     * Remove the key.
+     * 
+     * @param key The key.
+     * @return    True if the key was present.
+     */
+    public boolean remove (long key) {
+        int index = this.indexOf (key);
+        boolean result = used [index];
+        if (result) {
+            // Shift back the following keys of the cluster which would not be
+            // found any more.
+            int next = index;
+            while (true) {
+                next = (next + 1) & mask;
+                if (! used [next]) {
+                    break;
+                }
+                int home = mix (keys [next]) & mask;
+                boolean between = (index <= next) ? (index < home && home <= next) : (index < home || home <= next);
+                if (! between) {
+                    keys [index] = keys [next];
+                    values [index] = values [next];
+                    index = next;
+                }
+            }
+            used [index] = false;
+            size--;
+        }
+        return result;
+    }
+    
+    public int size () {
+        return size;
+    }
+}
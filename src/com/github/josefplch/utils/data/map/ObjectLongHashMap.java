@@ -0,0 +1,145 @@
+package com.github.josefplch.utils.data.map;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Open-addressing hash map from objects to primitive longs. In contrast to
+ * HashMap <K, Long>, it does not create any entry or boxed value, which makes
+ * it suitable for counting of large amounts of keys.
+ * 
+ * The map is not thread-safe. Null keys are not allowed.
+ * 
+ * @param <K> Type of key.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public class ObjectLongHashMap <K> {
+    private static final float LOAD_FACTOR = 0.6f;
+    
+    private Object [] keys;
+    private long [] values;
+    private int mask;
+    private int size;
+    private int threshold;
+    
+    public ObjectLongHashMap () {
+        this (16);
+    }
+    
+    public ObjectLongHashMap (int expectedSize) {
+        int capacity = Integer.highestOneBit (Math.max (4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.allocate (capacity);
+    }
+    
+    /**
+     * Add the given difference to the value of the key (0 if not present).
+     * 
+     * @param key        The key (not null).
+     * @param difference Value to be added.
+     * @return           The new value.
+     */
+    public long addTo (K key, long difference) {
+        int index = this.indexOf (key);
+        long result;
+        if (keys [index] == null) {
+            keys [index] = key;
+            values [index] = difference;
+            result = difference;
+            size++;
+            if (size > threshold) {
+                this.rehash (keys.length * 2);
+            }
+        }
+        else {
+            values [index] += difference;
+            result = values [index];
+        }
+        return result;
+    }
+    
+    /**
+     * Add all values from the other map to this one.
+     * 
+     * @param other The map to be merged into this one.
+     */
+    public void addAll (ObjectLongHashMap <K> other) {
+        other.forEach (this :: addTo);
+    }
+    
+    private void allocate (int capacity) {
+        keys = new Object [capacity];
+        values = new long [capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+    
+    public void clear () {
+        Arrays.fill (keys, null);
+        size = 0;
+    }
+    
+    public boolean containsKey (K key) {
+        return (keys [this.indexOf (key)] != null);
+    }
+    
+    @SuppressWarnings ("unchecked")
+    public void forEach (ObjLongConsumer <K> consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys [i] != null) {
+                consumer.accept ((K) keys [i], values [i]);
+            }
+        }
+    }
+    
+    /**
+     * Get the value associated with the key.
+     * 
+     * @param key The key (not null).
+     * @return    The value or 0 if the key is not present.
+     */
+    public long get (K key) {
+        int index = this.indexOf (key);
+        return (keys [index] == null ? 0L : values [index]);
+    }
+    
+    // Find either the slot of the key, or the empty slot where it belongs.
+    private int indexOf (Object key) {
+        Objects.requireNonNull (key, "Null keys are not supported.");
+        int index = mix (key.hashCode ()) & mask;
+        while (keys [index] != null && ! keys [index].equals (key)) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+    
+    public boolean isEmpty () {
+        return (size == 0);
+    }
+    
+    // Spread the bits of poor hash codes (e.g. short strings) over the table.
+    private static int mix (int hash) {
+        int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16));
+    }
+    
+    private void rehash (int newCapacity) {
+        Object [] oldKeys = keys;
+        long [] oldValues = values;
+        this.allocate (newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys [i] != null) {
+                int index = this.indexOf (oldKeys [i]);
+                keys [index] = oldKeys [i];
+                values [index] = oldValues [i];
+            }
+        }
+    }
+    
+    public int size () {
+        return size;
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.josefplch.utils.data.string;
+
+import com.github.josefplch.utils.data.list.FunctionalList;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Locale-aware sorting using precomputed collation keys. A collator compares
+ * strings by deriving their collation elements again and again, i.e. O(n log n)
+ * times for n strings. Here, the (binary) collation key of every string is
+ * computed only once and the sorting then compares plain byte arrays.
+ * 
+ * The resulting order is the same as when sorting by the collator itself; the
+ * sorting is stable.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public abstract class CollationUtils {
+    private static final class Keyed <A> {
+        private final A element;
+        private final byte [] key;
+        
+        private Keyed (A element, byte [] key) {
+            this.element = element;
+            this.key = key;
+        }
+    }
+    
+    /**
+     * Compare two collation keys as unsigned byte sequences. This corresponds
+     * to CollationKey.compareTo.
+     * 
+     * @param key1 The 1st key.
+     * @param key2 The 2nd key.
+     * @return     Negative, zero or positive number.
+     */
+    public static int compareKeys (byte [] key1, byte [] key2) {
+        int length = Math.min (key1.length, key2.length);
+        for (int i = 0; i < length; i++) {
+            int difference = (key1 [i] & 0xFF) - (key2 [i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return (key1.length - key2.length);
+    }
+    
+    /**
+     * Sort the elements by the collation of their string keys.
+     * 
+     * @param <A>          Type of the elements.
+     * @param elements     Elements to be sorted.
+     * @param keyExtractor Function returning the string to be collated.
+     * @param collator     The collator (it will not be modified).
+     * @return             A new, sorted list.
+     */
+    public static <A> FunctionalList <A> sort (
+        Collection <A> elements,
+        Function <? super A, String> keyExtractor,
+        Collator collator
+    ) {
+        return sort (elements, (x, y) -> 0, keyExtractor, collator);
+    }
+    
+    /**
+     * Sort the elements primarily by the given comparator and secondarily by
+     * the collation of their string keys.
+     * 
+     * @param <A>               Type of the elements.
+     * @param elements          Elements to be sorted.
+     * @param primaryComparator The primary comparator.
+     * @param keyExtractor      Function returning the string to be collated.
+     * @param collator          The collator (it will not be modified).
+     * @return                  A new, sorted list.
+     */
+    @SuppressWarnings ({"rawtypes", "unchecked"})
+    public static <A> FunctionalList <A> sort (
+        Collection <A> elements,
+        Comparator <? super A> primaryComparator,
+        Function <? super A, String> keyExtractor,
+        Collator collator
+    ) {
+        Object [] input = elements.toArray ();
+        // Collators are not thread-safe, every thread needs its own clone.
+        ThreadLocal <Collator> collators = ThreadLocal.withInitial (() -> (Collator) collator.clone ());
+        Keyed <A> [] keyed = new Keyed [input.length];
+        IntStream.range (0, keyed.length).parallel ().forEach (i -> {
+            A element = (A) input [i];
+            keyed [i] = new Keyed <> (element, collators.get ().getCollationKey (keyExtractor.apply (element)).toByteArray ());
+        });
+        Arrays.parallelSort (
+            keyed,
+            (x, y) -> {
+                int result = primaryComparator.compare (x.element, y.element);
+                return (result != 0 ? result : compareKeys (x.key, y.key));
+            }
+        );
+        FunctionalList <A> result = new FunctionalList <> ();
+        for (Keyed <A> element : keyed) {
+            result.add (element.element);
+        }
+        return result;
+    }
+}
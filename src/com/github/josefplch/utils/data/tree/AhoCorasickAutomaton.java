@@ -0,0 +1,137 @@
+package com.github.josefplch.utils.data.tree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton: finds all the occurrences of many patterns in a text
+ * in a single pass, i.e. in O(|text| + number of matches) time, regardless of
+ * the number of patterns.
+ * 
+ * The patterns are identified by their index in the list given to the
+ * constructor. The same pattern may occur several times in the list. An empty
+ * pattern occurs in every text (same as in FunctionalList.hasInfix).
+ * 
+ * @param <A> Type of the atomic elements of the patterns.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public class AhoCorasickAutomaton <A> {
+    private static final int ROOT = 0;
+    private static final int [] NO_PATTERNS = new int [0];
+    
+    private final int numberOfPatterns;
+    private final List <Map <A, Integer>> transitions;
+    // Failure link: the state of the longest proper suffix which is in the trie.
+    private final int [] failure;
+    // Output link: the nearest state on the failure path with some patterns.
+    private final int [] output;
+    // Patterns ending in the state (not including those of the failure path).
+    private final int [][] patterns;
+    
+    public AhoCorasickAutomaton (List <? extends List <A>> patterns) {
+        this.numberOfPatterns = patterns.size ();
+        this.transitions = new ArrayList <> ();
+        this.transitions.add (new HashMap <> ());
+        
+        // Build the trie.
+        List <List <Integer>> statePatterns = new ArrayList <> ();
+        statePatterns.add (null);
+        for (int p = 0; p < patterns.size (); p++) {
+            int state = ROOT;
+            for (A atom : patterns.get (p)) {
+                Integer next = transitions.get (state).get (atom);
+                if (next == null) {
+                    next = transitions.size ();
+                    transitions.get (state).put (atom, next);
+                    transitions.add (new HashMap <> (2));
+                    statePatterns.add (null);
+                }
+                state = next;
+            }
+            if (statePatterns.get (state) == null) {
+                statePatterns.set (state, new ArrayList <> (1));
+            }
+            statePatterns.get (state).add (p);
+        }
+        
+        int states = transitions.size ();
+        this.patterns = new int [states][];
+        for (int s = 0; s < states; s++) {
+            List <Integer> list = statePatterns.get (s);
+            this.patterns [s] = (list == null) ? NO_PATTERNS : list.stream ().mapToInt (Integer :: intValue).toArray ();
+        }
+        
+        // Compute the failure and output links, breadth-first.
+        this.failure = new int [states];
+        this.output = new int [states];
+        Arrays.fill (output, -1);
+        Deque <Integer> queue = new ArrayDeque <> ();
+        for (int child : transitions.get (ROOT).values ()) {
+            failure [child] = ROOT;
+            output [child] = this.patterns [ROOT].length > 0 ? ROOT : -1;
+            queue.add (child);
+        }
+        while (! queue.isEmpty ()) {
+            int state = queue.poll ();
+            for (Map.Entry <A, Integer> transition : transitions.get (state).entrySet ()) {
+                int child = transition.getValue ();
+                int fallback = this.next (failure [state], transition.getKey ());
+                failure [child] = fallback;
+                output [child] = this.patterns [fallback].length > 0 ? fallback : output [fallback];
+                queue.add (child);
+            }
+        }
+    }
+    
+    /**
+     * Find the patterns which occur in the text (at least once).
+     * 
+     * @param text The text to be searched.
+     * @return     Indices of the patterns found.
+     */
+    public BitSet findPatterns (List <A> text) {
+        BitSet result = new BitSet (numberOfPatterns);
+        this.report (ROOT, result);
+        int state = ROOT;
+        for (A atom : text) {
+            state = this.next (state, atom);
+            this.report (state, result);
+        }
+        return result;
+    }
+    
+    // Follow the transition; if there is none, use the failure links.
+    private int next (int state, A atom) {
+        Integer result = transitions.get (state).get (atom);
+        while (result == null && state != ROOT) {
+            state = failure [state];
+            result = transitions.get (state).get (atom);
+        }
+        return (result == null ? ROOT : result);
+    }
+    
+    public int numberOfPatterns () {
+        return numberOfPatterns;
+    }
+    
+    private void report (int state, BitSet result) {
+        int s = (patterns [state].length > 0) ? state : output [state];
+        // If the patterns of a state have already been reported, so have been
+        // all the patterns on its output path.
+        while (s >= 0 && ! result.get (patterns [s][0])) {
+            for (int pattern : patterns [s]) {
+                result.set (pattern);
+            }
+            s = output [s];
+        }
+    }
+}
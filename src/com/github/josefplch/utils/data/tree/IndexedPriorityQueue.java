@@ -0,0 +1,156 @@
+package com.github.josefplch.utils.data.tree;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Priority queue (binary heap) of unique non-negative integer keys, indexed by
+ * the key: the priority of a key already present can be changed, and a key
+ * can be removed, in logarithmic time (java.util.PriorityQueue needs linear
+ * time for both).
+ * 
+ * The priorities are kept by the user (typically in arrays indexed by the
+ * key) and compared by the given comparator. Whenever the priority of a key
+ * in the queue changes, the key must be put again. Nothing is boxed.
+ * 
+ * The head of the queue is the key with the least priority according to the
+ * comparator.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public class IndexedPriorityQueue {
+    private final KeyComparator comparator;
+    private int [] heap = new int [16];
+    // Position of every key in the heap, -1 if not present.
+    private int [] positions = new int [16];
+    private int size = 0;
+    
+    @FunctionalInterface
+    public static interface KeyComparator {
+        // Compare the priorities of the keys.
+        public int compare (int key1, int key2);
+    }
+    
+    public IndexedPriorityQueue (KeyComparator comparator) {
+        this.comparator = comparator;
+        Arrays.fill (positions, -1);
+    }
+    
+    public boolean contains (int key) {
+        return (key < positions.length && positions [key] >= 0);
+    }
+    
+    public boolean isEmpty () {
+        return (size == 0);
+    }
+    
+    /**
+     * @return The key at the head of the queue.
+     * @throws NoSuchElementException If the queue is empty.
+     */
+    public int peek () {
+        if (size == 0) {
+            throw new NoSuchElementException ("The queue is empty.");
+        }
+        return heap [0];
+    }
+    
+    /**
+     * Remove the key at the head of the queue.
+     * 
+     * @return The removed key.
+     * @throws NoSuchElementException If the queue is empty.
+     */
+    public int poll () {
+        int result = this.peek ();
+        this.remove (result);
+        return result;
+    }
+    
+    /**
+     * Insert the key, or reposition it (if its priority has changed).
+     * 
+     * @param key The key.
+     */
+    public void put (int key) {
+        if (key >= positions.length) {
+            int oldLength = positions.length;
+            positions = Arrays.copyOf (positions, Math.max (key + 1, 2 * oldLength));
+            Arrays.fill (positions, oldLength, positions.length, -1);
+        }
+        if (positions [key] < 0) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf (heap, 2 * size);
+            }
+            heap [size] = key;
+            positions [key] = size;
+            size++;
+            this.siftUp (size - 1);
+        }
+        else {
+            this.siftDown (this.siftUp (positions [key]));
+        }
+    }
+    
+    /**
+     * Remove the key, if present.
+     * 
+     * @param key The key.
+     * @return    True if the key was present.
+     */
+    public boolean remove (int key) {
+        boolean result = this.contains (key);
+        if (result) {
+            int position = positions [key];
+            positions [key] = -1;
+            size--;
+            if (position < size) {
+                this.set (position, heap [size]);
+                this.siftDown (this.siftUp (position));
+            }
+        }
+        return result;
+    }
+    
+    private void set (int position, int key) {
+        heap [position] = key;
+        positions [key] = position;
+    }
+    
+    private void siftDown (int position) {
+        int key = heap [position];
+        int child;
+        while ((child = 2 * position + 1) < size) {
+            if (child + 1 < size && comparator.compare (heap [child + 1], heap [child]) < 0) {
+                child++;
+            }
+            if (comparator.compare (heap [child], key) >= 0) {
+                break;
+            }
+            this.set (position, heap [child]);
+            position = child;
+        }
+        this.set (position, key);
+    }
+    
+    // Returns the new position.
+    private int siftUp (int position) {
+        int key = heap [position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (comparator.compare (key, heap [parent]) >= 0) {
+                break;
+            }
+            this.set (position, heap [parent]);
+            position = parent;
+        }
+        this.set (position, key);
+        return position;
+    }
+    
+    public int size () {
+        return size;
+    }
+}
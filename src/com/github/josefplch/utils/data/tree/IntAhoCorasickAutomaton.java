@@ -0,0 +1,159 @@
+package com.github.josefplch.utils.data.tree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton over primitive integers (e.g. Unicode code points),
+ * see AhoCorasickAutomaton. The transitions are stored as compressed rows:
+ * the transitions of state s are at [offsets [s], offsets [s + 1]), sorted by
+ * label, so searching a text allocates nothing but the result.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public class IntAhoCorasickAutomaton {
+    private static final int ROOT = 0;
+    private static final int [] NO_PATTERNS = new int [0];
+    
+    private final int numberOfPatterns;
+    private final int [] offsets;
+    private final int [] labels;
+    private final int [] targets;
+    // Failure link: the state of the longest proper suffix which is in the trie.
+    private final int [] failure;
+    // Output link: the nearest state on the failure path with some patterns.
+    private final int [] output;
+    // Patterns ending in the state (not including those of the failure path).
+    private final int [][] patterns;
+    
+    public IntAhoCorasickAutomaton (List <int []> patterns) {
+        this.numberOfPatterns = patterns.size ();
+        
+        // Build the trie.
+        List <Map <Integer, Integer>> transitions = new ArrayList <> ();
+        transitions.add (new HashMap <> ());
+        List <List <Integer>> statePatterns = new ArrayList <> ();
+        statePatterns.add (null);
+        for (int p = 0; p < patterns.size (); p++) {
+            int state = ROOT;
+            for (int atom : patterns.get (p)) {
+                Integer next = transitions.get (state).get (atom);
+                if (next == null) {
+                    next = transitions.size ();
+                    transitions.get (state).put (atom, next);
+                    transitions.add (new HashMap <> (2));
+                    statePatterns.add (null);
+                }
+                state = next;
+            }
+            if (statePatterns.get (state) == null) {
+                statePatterns.set (state, new ArrayList <> (1));
+            }
+            statePatterns.get (state).add (p);
+        }
+        
+        int states = transitions.size ();
+        this.patterns = new int [states][];
+        for (int s = 0; s < states; s++) {
+            List <Integer> list = statePatterns.get (s);
+            this.patterns [s] = (list == null) ? NO_PATTERNS : list.stream ().mapToInt (Integer :: intValue).toArray ();
+        }
+        
+        // Convert the transitions to the compressed rows.
+        this.offsets = new int [states + 1];
+        this.labels = new int [states - 1];
+        this.targets = new int [states - 1];
+        int offset = 0;
+        for (int s = 0; s < states; s++) {
+            offsets [s] = offset;
+            int [] sorted = transitions.get (s).keySet ().stream ().mapToInt (Integer :: intValue).sorted ().toArray ();
+            for (int label : sorted) {
+                labels [offset] = label;
+                targets [offset] = transitions.get (s).get (label);
+                offset++;
+            }
+        }
+        offsets [states] = offset;
+        
+        // Compute the failure and output links, breadth-first.
+        this.failure = new int [states];
+        this.output = new int [states];
+        Arrays.fill (output, -1);
+        Deque <Integer> queue = new ArrayDeque <> ();
+        for (int t = offsets [ROOT]; t < offsets [ROOT + 1]; t++) {
+            int child = targets [t];
+            failure [child] = ROOT;
+            output [child] = this.patterns [ROOT].length > 0 ? ROOT : -1;
+            queue.add (child);
+        }
+        while (! queue.isEmpty ()) {
+            int state = queue.poll ();
+            for (int t = offsets [state]; t < offsets [state + 1]; t++) {
+                int child = targets [t];
+                int fallback = this.next (failure [state], labels [t]);
+                failure [child] = fallback;
+                output [child] = this.patterns [fallback].length > 0 ? fallback : output [fallback];
+                queue.add (child);
+            }
+        }
+    }
+    
+    // Returns the target state, or -1 if there is no such transition.
+    private int transition (int state, int atom) {
+        int index = Arrays.binarySearch (labels, offsets [state], offsets [state + 1], atom);
+        return (index >= 0 ? targets [index] : -1);
+    }
+    
+    /**
+     * Find the patterns which occur in the text (at least once).
+     * 
+     * @param text The text to be searched.
+     * @param from Start of the text in the array (inclusive).
+     * @param to   End of the text in the array (exclusive).
+     * @return     Indices of the patterns found.
+     */
+    public BitSet findPatterns (int [] text, int from, int to) {
+        BitSet result = new BitSet (numberOfPatterns);
+        this.report (ROOT, result);
+        int state = ROOT;
+        for (int i = from; i < to; i++) {
+            state = this.next (state, text [i]);
+            this.report (state, result);
+        }
+        return result;
+    }
+    
+    // Follow the transition; if there is none, use the failure links.
+    private int next (int state, int atom) {
+        int result = this.transition (state, atom);
+        while (result < 0 && state != ROOT) {
+            state = failure [state];
+            result = this.transition (state, atom);
+        }
+        return (result < 0 ? ROOT : result);
+    }
+    
+    public int numberOfPatterns () {
+        return numberOfPatterns;
+    }
+    
+    private void report (int state, BitSet result) {
+        int s = (patterns [state].length > 0) ? state : output [state];
+        // If the patterns of a state have already been reported, so have been
+        // all the patterns on its output path.
+        while (s >= 0 && ! result.get (patterns [s][0])) {
+            for (int pattern : patterns [s]) {
+                result.set (pattern);
+            }
+            s = output [s];
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.github.josefplch.utils.system;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Transparent handling of compressed files. The compression of an input is
+ * detected by its magic bytes, so that compressed and plain files (or standard
+ * input) can be used interchangeably. Gzip input is inflated on a separate
+ * thread, so that decompression and parsing overlap. The output is compressed
+ * iff the file name ends with ".gz".
+ * 
+ * Only the JDK codecs are used. There is no xz codec in the JDK, xz input is
+ * recognized and rejected with a clear message.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public abstract class CompressedStreams {
+    public static final String GZIP_EXTENSION = ".gz";
+    
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int QUEUED_BLOCKS = 16;
+    private static final byte [] GZIP_MAGIC = {(byte) 0x1F, (byte) 0x8B};
+    private static final byte [] XZ_MAGIC = {(byte) 0xFD, '7', 'z', 'X', 'Z', 0};
+    
+    // Input stream fed by a background thread through a bounded queue of blocks.
+    private static final class PipedInflaterStream extends InputStream {
+        private static final byte [] END = new byte [0];
+        
+        private final BlockingQueue <byte []> blocks = new ArrayBlockingQueue <> (QUEUED_BLOCKS);
+        private final Thread inflater;
+        private volatile IOException failure = null;
+        private byte [] block = null;
+        private int position = 0;
+        
+        private PipedInflaterStream (InputStream compressed) {
+            inflater = new Thread (() -> {
+                try (InputStream source = compressed) {
+                    while (true) {
+                        byte [] buffer = new byte [BLOCK_SIZE];
+                        int length = source.read (buffer);
+                        if (length < 0) {
+                            break;
+                        }
+                        else if (length > 0) {
+                            blocks.put (length == BLOCK_SIZE ? buffer : Arrays.copyOf (buffer, length));
+                        }
+                    }
+                }
+                catch (IOException exception) {
+                    failure = exception;
+                }
+                catch (InterruptedException exception) {
+                    // The reader has been closed.
+                    return;
+                }
+                try {
+                    blocks.put (END);
+                }
+                catch (InterruptedException exception) {
+                    // The reader has been closed.
+                }
+            }, "gzip-inflater");
+            inflater.setDaemon (true);
+            inflater.start ();
+        }
+        
+        @Override
+        public int available () {
+            return ((block == null || block == END) ? 0 : block.length - position);
+        }
+        
+        @Override
+        public void close () {
+            inflater.interrupt ();
+            blocks.clear ();
+            block = END;
+        }
+        
+        // Make sure there is an unread byte in the current block; false at the end.
+        private boolean fill () throws IOException {
+            while (block != END && (block == null || position == block.length)) {
+                try {
+                    block = blocks.take ();
+                    position = 0;
+                }
+                catch (InterruptedException exception) {
+                    Thread.currentThread ().interrupt ();
+                    throw new InterruptedIOException ("Interrupted while waiting for decompressed data.");
+                }
+            }
+            if (block == END && failure != null) {
+                throw new IOException ("Decompression failed.", failure);
+            }
+            return (block != END);
+        }
+        
+        @Override
+        public int read () throws IOException {
+            return (this.fill () ? (block [position++] & 0xFF) : -1);
+        }
+        
+        @Override
+        public int read (byte [] buffer, int offset, int length) throws IOException {
+            int result;
+            if (length == 0) {
+                result = 0;
+            }
+            else if (! this.fill ()) {
+                result = -1;
+            }
+            else {
+                result = Math.min (length, block.length - position);
+                System.arraycopy (block, position, buffer, offset, result);
+                position += result;
+            }
+            return result;
+        }
+    }
+    
+    /**
+     * Wrap the input so that it is decompressed if needed.
+     * 
+     * @param input The input (plain or compressed).
+     * @return      The decompressed input.
+     * @throws IOException If the input cannot be read or the compression is
+     *                     not supported.
+     */
+    public static InputStream decompress (InputStream input) throws IOException {
+        BufferedInputStream buffered =
+            (input instanceof BufferedInputStream)
+            ? (BufferedInputStream) input
+            : new BufferedInputStream (input, BLOCK_SIZE);
+        InputStream result;
+        if (startsWith (buffered, GZIP_MAGIC)) {
+            result = new BufferedInputStream (new PipedInflaterStream (new GZIPInputStream (buffered, BLOCK_SIZE)), BLOCK_SIZE);
+        }
+        else if (startsWith (buffered, XZ_MAGIC)) {
+            throw new IOException ("The input is xz-compressed, which is not supported. Decompress it (xz -d) or use gzip.");
+        }
+        else {
+            result = buffered;
+        }
+        return result;
+    }
+    
+    /**
+     * Check whether the file is compressed (according to its content).
+     * 
+     * @param filePath Path to the file.
+     * @return         True iff the file is compressed.
+     * @throws IOException If the file cannot be read.
+     */
+    public static boolean isCompressed (String filePath) throws IOException {
+        try (BufferedInputStream input = new BufferedInputStream (new FileInputStream (filePath), XZ_MAGIC.length)) {
+            return (startsWith (input, GZIP_MAGIC) || startsWith (input, XZ_MAGIC));
+        }
+    }
+    
+    public static InputStream openInput (String filePath) throws IOException {
+        return decompress (new FileInputStream (filePath));
+    }
+    
+    public static OutputStream openOutput (String filePath) throws IOException {
+        OutputStream file = new FileOutputStream (filePath);
+        return (
+            filePath.endsWith (GZIP_EXTENSION)
+            ? new GZIPOutputStream (file, BLOCK_SIZE)
+            : new BufferedOutputStream (file, BLOCK_SIZE)
+        );
+    }
+    
+    // Uses the default charset, same as FileReader.
+    public static BufferedReader openReader (String filePath) throws IOException {
+        return new BufferedReader (new InputStreamReader (openInput (filePath)));
+    }
+    
+    public static BufferedReader openReader (String filePath, Charset charset) throws IOException {
+        return new BufferedReader (new InputStreamReader (openInput (filePath), charset));
+    }
+    
+    // Uses the default charset, same as FileWriter.
+    public static BufferedWriter openWriter (String filePath) throws IOException {
+        return new BufferedWriter (new OutputStreamWriter (openOutput (filePath)));
+    }
+    
+    private static boolean startsWith (BufferedInputStream input, byte [] magic) throws IOException {
+        input.mark (magic.length);
+        boolean result = true;
+        for (int i = 0; i < magic.length && result; i++) {
+            result = (input.read () == (magic [i] & 0xFF));
+        }
+        input.reset ();
+        return result;
+    }
+}
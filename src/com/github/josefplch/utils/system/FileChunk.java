@@ -0,0 +1,207 @@
+package com.github.josefplch.utils.system;
+
+import com.github.josefplch.utils.data.list.FunctionalList;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Part of a text file which can be processed independently of the other
+ * parts. A file is split into chunks of roughly the given size, ending at
+ * line breaks (LF, CR LF or CR). A chunk is mapped into memory, so its size
+ * is limited; if there is no line break within the limit, the chunk ends
+ * after a space or a tab, or (if there is none) at a UTF-8 character
+ * boundary. Such a chunk ends in the middle of a line (see endsMidLine): the
+ * line is then processed as two lines.
+ * 
+ * Compressed files cannot be split, every one of them is a single chunk of
+ * unknown size, which has to be streamed.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public class FileChunk {
+    public static final int DEFAULT_SIZE = 16 * 1024 * 1024;
+    public static final int MAX_SIZE = 1 << 30;
+    
+    private static final int BLOCK_SIZE = 64 * 1024;
+    
+    private final String path;
+    private final long start;
+    private final long end;
+    private final boolean endsMidLine;
+    
+    private FileChunk (String path, long start, long end, boolean endsMidLine) {
+        this.path = path;
+        this.start = start;
+        this.end = end;
+        this.endsMidLine = endsMidLine;
+    }
+    
+    // Find the end of the chunk: after the first line break from the
+    // position on, not further than the limit. CR LF is not split, it would
+    // be read as two line breaks.
+    private static long chunkEnd (RandomAccessFile file, long start, long position, long limit, long length) throws IOException {
+        byte [] buffer = new byte [BLOCK_SIZE];
+        long blankEnd = -1;
+        long current = position;
+        file.seek (current);
+        while (current < limit) {
+            int read = file.read (buffer, 0, (int) Math.min (buffer.length, limit - current));
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer [i] == '\n') {
+                    return (current + i + 1);
+                }
+                else if (buffer [i] == '\r') {
+                    long next = current + i + 1;
+                    int following = (i + 1 < read) ? buffer [i + 1] : peek (file, next, length);
+                    if (following != '\n') {
+                        return next;
+                    }
+                    else if (next < limit) {
+                        return (next + 1);
+                    }
+                }
+                else if (blankEnd < 0 && (buffer [i] == ' ' || buffer [i] == '\t')) {
+                    blankEnd = current + i + 1;
+                }
+            }
+            current += read;
+        }
+        long result;
+        if (limit == length) {
+            result = length;
+        }
+        else if (blankEnd >= 0) {
+            result = blankEnd;
+        }
+        else {
+            // Do not split a character: skip back the continuation bytes.
+            result = limit;
+            file.seek (result);
+            while (result > start + 1 && (file.read () & 0xC0) == 0x80) {
+                result--;
+                file.seek (result);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * @return True iff the chunk ends in the middle of a line (there is no
+     *         line break within the maximum size).
+     */
+    public boolean endsMidLine () {
+        return endsMidLine;
+    }
+    
+    /**
+     * @return End of the chunk (exclusive), or -1 if it is streamed.
+     */
+    public long getEnd () {
+        return end;
+    }
+    
+    public String getPath () {
+        return path;
+    }
+    
+    public long getStart () {
+        return start;
+    }
+    
+    // Does the file have a line break just before the position?
+    private static boolean isLineEnd (RandomAccessFile file, long position, long length) throws IOException {
+        int previous = peek (file, position - 1, length);
+        return (previous == '\n' || (previous == '\r' && peek (file, position, length) != '\n'));
+    }
+    
+    /**
+     * @return True iff the chunk is a whole compressed file, which cannot be
+     *         mapped.
+     */
+    public boolean isStreamed () {
+        return (end < 0);
+    }
+    
+    /**
+     * Map the chunk into memory (read-only).
+     * 
+     * @return The bytes of the chunk.
+     * @throws IOException If the file cannot be read.
+     */
+    public MappedByteBuffer map () throws IOException {
+        if (this.isStreamed ()) {
+            throw new IllegalStateException ("A compressed file cannot be mapped: " + path);
+        }
+        try (
+            RandomAccessFile file = new RandomAccessFile (path, "r");
+            FileChannel channel = file.getChannel ()
+        ) {
+            return channel.map (FileChannel.MapMode.READ_ONLY, start, end - start);
+        }
+    }
+    
+    // The byte at the position (-1 at the end of the file). The file
+    // position is left there.
+    private static int peek (RandomAccessFile file, long position, long length) throws IOException {
+        int result = -1;
+        file.seek (position);
+        if (position < length) {
+            result = file.read ();
+            file.seek (position);
+        }
+        return result;
+    }
+    
+    public static FunctionalList <FileChunk> split (String path, int chunkSize) throws IOException {
+        return split (path, chunkSize, MAX_SIZE);
+    }
+    
+    /**
+     * Split the file into chunks of (roughly) the given size, ending at line
+     * breaks.
+     * 
+     * @param path      Path to the file.
+     * @param chunkSize Approximate chunk size in bytes.
+     * @param maxSize   Maximum chunk size in bytes.
+     * @return          The chunks, in order.
+     * @throws IOException If the file cannot be read.
+     */
+    public static FunctionalList <FileChunk> split (String path, int chunkSize, int maxSize) throws IOException {
+        if (chunkSize < 1 || maxSize < 1) {
+            throw new IllegalArgumentException ("The chunk size must be positive.");
+        }
+        FunctionalList <FileChunk> result = new FunctionalList <> ();
+        if (CompressedStreams.isCompressed (path)) {
+            // The size is not known, the chunk is streamed.
+            result.add (new FileChunk (path, 0, -1, false));
+        }
+        else {
+            try (RandomAccessFile file = new RandomAccessFile (path, "r")) {
+                long length = file.length ();
+                long start = 0;
+                while (start < length) {
+                    long limit = Math.min (start + maxSize, length);
+                    long end = Math.min (start + Math.min (chunkSize, maxSize), length);
+                    if (end < length) {
+                        end = chunkEnd (file, start, end, limit, length);
+                    }
+                    result.add (new FileChunk (path, start, end, end < length && ! isLineEnd (file, end, length)));
+                    start = end;
+                }
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public String toString () {
+        return (path + " [" + start + ", " + (this.isStreamed () ? "?" : end) + ")");
+    }
+}
@@ -0,0 +1,233 @@
+package com.github.josefplch.utils.system;
+
+import com.github.josefplch.utils.data.list.FunctionalList;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel processing of large text files, without any standard input or
+ * output. Every file is memory-mapped and split into line-aligned chunks (see
+ * FileChunk); a pool of workers processes the chunks, the output of each chunk is written
+ * into its own part file. Once all the chunks of a file are processed, the
+ * parts are concatenated (by the file channel, without copying them through
+ * the memory of the program) into the output file of the same name.
+ * 
+ * Compressed files cannot be split, every one of them is a single (streamed)
+ * chunk; the output is not compressed. A line longer than the maximum chunk
+ * size is split into two chunks (see FileChunk.endsMidLine), i.e. processed
+ * as two lines; it is reported to the standard error output.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public abstract class ParallelFileProcessor {
+    /**
+     * Processor of a chunk of lines. It is called from several threads at
+     * once, with a different input and output every time.
+     */
+    @FunctionalInterface
+    public static interface ChunkProcessor {
+        public void process (InputStream input, OutputStream output) throws IOException;
+    }
+    
+    private static final class Chunk {
+        private final int file;
+        private final FileChunk range;
+        private final Path part;
+        
+        private Chunk (int file, FileChunk range, Path part) {
+            this.file = file;
+            this.range = range;
+            this.part = part;
+        }
+    }
+    
+    // Input stream reading a (mapped) byte buffer.
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+        
+        private ByteBufferInputStream (ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+        
+        @Override
+        public int available () {
+            return buffer.remaining ();
+        }
+        
+        @Override
+        public int read () {
+            return (buffer.hasRemaining () ? buffer.get () & 0xFF : -1);
+        }
+        
+        @Override
+        public int read (byte [] bytes, int offset, int length) {
+            int result;
+            if (length == 0) {
+                result = 0;
+            }
+            else if (! buffer.hasRemaining ()) {
+                result = -1;
+            }
+            else {
+                result = Math.min (length, buffer.remaining ());
+                buffer.get (bytes, offset, result);
+            }
+            return result;
+        }
+    }
+    
+    public static void process (List <String> inputPaths, String outputDirectory, int threads, ChunkProcessor processor) throws IOException {
+        process (inputPaths, outputDirectory, threads, FileChunk.DEFAULT_SIZE, processor);
+    }
+    
+    /**
+     * Process the given files. The throughput of every file is reported to
+     * the standard error output.
+     * 
+     * @param inputPaths      Paths to the input files.
+     * @param outputDirectory The directory for the output files (created if
+     *                        it does not exist).
+     * @param threads         Number of worker threads.
+     * @param chunkSize       Approximate chunk size in bytes.
+     * @param processor       The processor of the chunks.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static void process (
+        List <String> inputPaths,
+        String outputDirectory,
+        int threads,
+        int chunkSize,
+        ChunkProcessor processor
+    ) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException ("The number of threads must be positive.");
+        }
+        Path directory = Paths.get (outputDirectory);
+        Files.createDirectories (directory);
+        FunctionalList <Path> outputPaths = new FunctionalList <> ();
+        Set <Path> usedPaths = new HashSet <> ();
+        FunctionalList <Chunk> chunks = new FunctionalList <> ();
+        for (int f = 0; f < inputPaths.size (); f++) {
+            String inputPath = inputPaths.get (f);
+            Path outputPath = directory.resolve (outputName (inputPath));
+            if (! usedPaths.add (outputPath.toAbsolutePath ().normalize ())) {
+                throw new IOException ("Two input files have the same name: " + outputPath.getFileName ());
+            }
+            if (Files.exists (outputPath) && Files.isSameFile (outputPath, Paths.get (inputPath))) {
+                throw new IOException ("The output file would overwrite the input file: " + inputPath);
+            }
+            outputPaths.add (outputPath);
+            FunctionalList <FileChunk> ranges = FileChunk.split (inputPath, chunkSize);
+            for (int c = 0; c < ranges.size (); c++) {
+                if (ranges.get (c).endsMidLine ()) {
+                    System.err.println ("* " + ranges.get (c) + " ends in the middle of a line longer than " + FileChunk.MAX_SIZE + " B, it is processed as two lines.");
+                }
+                chunks.add (new Chunk (f, ranges.get (c), partPath (outputPath, c)));
+            }
+        }
+        System.err.println ("* Processing " + inputPaths.size () + " files in " + chunks.size () + " chunks using " + threads + " threads ...");
+        
+        // Start and end time of every file (of its chunks), so that the
+        // throughput is not affected by waiting for the preceding files.
+        AtomicLongArray startTimes = new AtomicLongArray (inputPaths.size ());
+        AtomicLongArray endTimes = new AtomicLongArray (inputPaths.size ());
+        ExecutorService executor = Executors.newFixedThreadPool (threads);
+        FunctionalList <Future <?>> results = new FunctionalList <> ();
+        try {
+            for (Chunk chunk : chunks) {
+                results.add (
+                    executor.submit (() -> {
+                        startTimes.compareAndSet (chunk.file, 0, System.nanoTime ());
+                        processChunk (chunk, processor);
+                        endTimes.accumulateAndGet (chunk.file, System.nanoTime (), Math :: max);
+                        return null;
+                    })
+                );
+            }
+            
+            // The files are finished in order, while the next ones are being processed.
+            int c = 0;
+            for (int f = 0; f < inputPaths.size (); f++) {
+                int firstChunk = c;
+                while (c < chunks.size () && chunks.get (c).file == f) {
+                    ParallelTasks.get (results.get (c), "File processing");
+                    c++;
+                }
+                long concatenationStart = System.nanoTime ();
+                concatenate (chunks.subList (firstChunk, c), outputPaths.get (f));
+                long nanoseconds = (endTimes.get (f) - startTimes.get (f)) + (System.nanoTime () - concatenationStart);
+                double seconds = Math.max (1, nanoseconds) / 1e9;
+                double megabytes = Files.size (Paths.get (inputPaths.get (f))) / (1024.0 * 1024.0);
+                System.err.println (
+                    "* " + inputPaths.get (f) + ": "
+                    + String.format (Locale.ROOT, "%.1f MB in %.1f s, %.1f MB/s", megabytes, seconds, megabytes / seconds)
+                );
+            }
+        }
+        finally {
+            executor.shutdownNow ();
+            for (Chunk chunk : chunks) {
+                Files.deleteIfExists (chunk.part);
+            }
+        }
+    }
+    
+    private static void concatenate (List <Chunk> chunks, Path outputPath) throws IOException {
+        try (FileChannel output = FileChannel.open (outputPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Chunk chunk : chunks) {
+                try (FileChannel part = FileChannel.open (chunk.part, StandardOpenOption.READ)) {
+                    long position = 0;
+                    long size = part.size ();
+                    while (position < size) {
+                        position += part.transferTo (position, size - position, output);
+                    }
+                }
+                Files.delete (chunk.part);
+            }
+        }
+    }
+    
+    // The compressed files keep the name without the compression extension.
+    private static String outputName (String inputPath) throws IOException {
+        String result = Paths.get (inputPath).getFileName ().toString ();
+        if (CompressedStreams.isCompressed (inputPath) && result.endsWith (CompressedStreams.GZIP_EXTENSION)) {
+            result = result.substring (0, result.length () - CompressedStreams.GZIP_EXTENSION.length ());
+        }
+        return result;
+    }
+    
+    private static void processChunk (Chunk chunk, ChunkProcessor processor) throws IOException {
+        try (OutputStream output = new BufferedOutputStream (Files.newOutputStream (chunk.part), 1 << 16)) {
+            if (chunk.range.isStreamed ()) {
+                try (InputStream input = CompressedStreams.openInput (chunk.range.getPath ())) {
+                    processor.process (input, output);
+                }
+            }
+            else {
+                processor.process (new ByteBufferInputStream (chunk.range.map ()), output);
+            }
+        }
+    }
+    
+    private static Path partPath (Path outputPath, int index) {
+        return outputPath.resolveSibling (outputPath.getFileName () + String.format (Locale.ROOT, ".part-%05d", index));
+    }
+}
@@ -0,0 +1,154 @@
+package com.github.josefplch.utils.system;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Ordered parallel processing of text lines. A reader thread splits the input
+ * into batches of lines, a pool of workers processes the batches, and the
+ * results are passed to the consumer (in the calling thread) in the original
+ * order. The queue of pending batches is bounded, so that a slow consumer
+ * stops the reader rather than filling the memory.
+ * 
+ * If the input is not ready (e.g. an interactive terminal), an incomplete
+ * batch is dispatched immediately, so that the results are not delayed.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public abstract class ParallelLineProcessor {
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    
+    /**
+     * Consumer of the results, called in the input order.
+     * 
+     * @param <B> Type of the result.
+     */
+    @FunctionalInterface
+    public static interface LineConsumer <B> {
+        public void accept (String line, B result) throws IOException;
+        
+        // Called when there are no more results available at the moment.
+        public default void pause () throws IOException {
+        }
+    }
+    
+    private static final class Batch <B> {
+        private final List <String> lines;
+        private final List <B> results;
+        
+        private Batch (List <String> lines, List <B> results) {
+            this.lines = lines;
+            this.results = results;
+        }
+    }
+    
+    /**
+     * Process all the lines of the input.
+     * 
+     * @param <B>      Type of the result.
+     * @param input    The input.
+     * @param limit    Maximum number of lines.
+     * @param threads  Number of worker threads.
+     * @param function The function applied to every line (thread-safe).
+     * @param consumer Consumer of the results.
+     * @throws IOException If the input cannot be read or the consumer fails.
+     */
+    public static <B> void process (
+        BufferedReader input,
+        Optional <Integer> limit,
+        int threads,
+        Function <String, B> function,
+        LineConsumer <B> consumer
+    ) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException ("The number of threads must be positive.");
+        }
+        // Every worker may process one batch and have one more finished.
+        BlockingQueue <Future <Batch <B>>> pending = new ArrayBlockingQueue <> (2 * threads + 1);
+        ExecutorService workers = Executors.newFixedThreadPool (threads);
+        CompletableFuture <Batch <B>> end = CompletableFuture.completedFuture (null);
+        Thread reader = new Thread (() -> {
+            try {
+                long maxLines = limit.orElse (Integer.MAX_VALUE);
+                long lineCount = 0;
+                List <String> lines = new ArrayList <> (DEFAULT_BATCH_SIZE);
+                String line;
+                while (lineCount < maxLines && (line = input.readLine ()) != null) {
+                    lines.add (line);
+                    lineCount++;
+                    if (lines.size () == DEFAULT_BATCH_SIZE || ! input.ready ()) {
+                        pending.put (submit (workers, lines, function));
+                        lines = new ArrayList <> (DEFAULT_BATCH_SIZE);
+                    }
+                }
+                if (! lines.isEmpty ()) {
+                    pending.put (submit (workers, lines, function));
+                }
+                pending.put (end);
+            }
+            catch (IOException exception) {
+                CompletableFuture <Batch <B>> failure = new CompletableFuture <> ();
+                failure.completeExceptionally (exception);
+                try {
+                    pending.put (failure);
+                }
+                catch (InterruptedException interruption) {
+                    // The processing has been cancelled.
+                }
+            }
+            catch (InterruptedException exception) {
+                // The processing has been cancelled.
+            }
+        }, "line-reader");
+        reader.setDaemon (true);
+        reader.start ();
+        
+        try {
+            Future <Batch <B>> next;
+            while ((next = pending.take ()) != end) {
+                Batch <B> batch = ParallelTasks.get (next, "Line processing");
+                for (int i = 0; i < batch.lines.size (); i++) {
+                    consumer.accept (batch.lines.get (i), batch.results.get (i));
+                }
+                if (pending.isEmpty ()) {
+                    consumer.pause ();
+                }
+            }
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread ().interrupt ();
+            throw new InterruptedIOException ("Line processing was interrupted.");
+        }
+        finally {
+            reader.interrupt ();
+            workers.shutdownNow ();
+        }
+    }
+    
+    private static <B> Future <Batch <B>> submit (
+        ExecutorService workers,
+        List <String> lines,
+        Function <String, B> function
+    ) {
+        return workers.submit (() -> {
+            List <B> results = new ArrayList <> (lines.size ());
+            for (String line : lines) {
+                results.add (function.apply (line));
+            }
+            return new Batch <> (lines, results);
+        });
+    }
+}
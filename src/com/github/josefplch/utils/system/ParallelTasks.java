@@ -0,0 +1,164 @@
+package com.github.josefplch.utils.system;
+
+import com.github.josefplch.utils.data.list.FunctionalList;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Waiting for the tasks run by an executor. The failure of a task is thrown
+ * as it was thrown by the task (an I/O or unchecked exception, or an error),
+ * other exceptions are wrapped in IllegalStateException. Waiting is
+ * interrupted by InterruptedIOException, or by IllegalStateException in the
+ * unchecked variants; the interrupt flag is kept.
+ * 
+ * The description of the work is used in the messages, e.g. "Token counting"
+ * gives "Token counting failed." and "Token counting was interrupted.".
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public abstract class ParallelTasks {
+    // Cancel the tasks which have not finished (after a failure).
+    private static <B> void cancelAll (List <Future <B>> futures) {
+        for (Future <B> future : futures) {
+            future.cancel (true);
+        }
+    }
+    
+    // The cause of the failure, wrapped unless it is unchecked.
+    private static RuntimeException failure (ExecutionException exception, String description) {
+        Throwable cause = exception.getCause ();
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return (
+            (cause instanceof RuntimeException)
+            ? (RuntimeException) cause
+            : new IllegalStateException (description + " failed.", cause)
+        );
+    }
+    
+    /**
+     * Wait for the result of the task.
+     * 
+     * @param <B>         Type of the result.
+     * @param future      The task.
+     * @param description Description of the work (for the messages).
+     * @return            The result.
+     * @throws IOException If the task has thrown it, or if the waiting has
+     *                     been interrupted (InterruptedIOException).
+     */
+    public static <B> B get (Future <B> future, String description) throws IOException {
+        try {
+            return future.get ();
+        }
+        catch (ExecutionException exception) {
+            if (exception.getCause () instanceof IOException) {
+                throw (IOException) exception.getCause ();
+            }
+            throw failure (exception, description);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread ().interrupt ();
+            throw new InterruptedIOException (description + " was interrupted.");
+        }
+    }
+    
+    /**
+     * Wait for the result of a task which does not do any I/O (an
+     * IOException would be wrapped in UncheckedIOException).
+     * 
+     * @param <B>         Type of the result.
+     * @param future      The task.
+     * @param description Description of the work (for the messages).
+     * @return            The result.
+     */
+    public static <B> B getUnchecked (Future <B> future, String description) {
+        try {
+            return future.get ();
+        }
+        catch (ExecutionException exception) {
+            if (exception.getCause () instanceof IOException) {
+                throw new UncheckedIOException ((IOException) exception.getCause ());
+            }
+            throw failure (exception, description);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread ().interrupt ();
+            throw new IllegalStateException (description + " was interrupted.", exception);
+        }
+    }
+    
+    /**
+     * Run the tasks and wait for all of them. If one of them fails, the
+     * others are cancelled.
+     * 
+     * @param <B>         Type of the results.
+     * @param executor    The executor.
+     * @param tasks       The tasks.
+     * @param description Description of the work (for the messages).
+     * @return            The results, in the order of the tasks.
+     * @throws IOException If a task has thrown it, or if the waiting has been
+     *                     interrupted (InterruptedIOException).
+     */
+    public static <B> FunctionalList <B> invokeAll (
+        ExecutorService executor,
+        List <? extends Callable <B>> tasks,
+        String description
+    ) throws IOException {
+        FunctionalList <Future <B>> futures = submitAll (executor, tasks);
+        FunctionalList <B> result = new FunctionalList <> ();
+        try {
+            for (Future <B> future : futures) {
+                result.add (get (future, description));
+            }
+        }
+        finally {
+            cancelAll (futures);
+        }
+        return result;
+    }
+    
+    /**
+     * Like invokeAll, for the tasks which do not do any I/O (see
+     * getUnchecked).
+     * 
+     * @param <B>         Type of the results.
+     * @param executor    The executor.
+     * @param tasks       The tasks.
+     * @param description Description of the work (for the messages).
+     * @return            The results, in the order of the tasks.
+     */
+    public static <B> FunctionalList <B> invokeAllUnchecked (
+        ExecutorService executor,
+        List <? extends Callable <B>> tasks,
+        String description
+    ) {
+        FunctionalList <Future <B>> futures = submitAll (executor, tasks);
+        FunctionalList <B> result = new FunctionalList <> ();
+        try {
+            for (Future <B> future : futures) {
+                result.add (getUnchecked (future, description));
+            }
+        }
+        finally {
+            cancelAll (futures);
+        }
+        return result;
+    }
+    
+    private static <B> FunctionalList <Future <B>> submitAll (ExecutorService executor, List <? extends Callable <B>> tasks) {
+        FunctionalList <Future <B>> result = new FunctionalList <> ();
+        for (Callable <B> task : tasks) {
+            result.add (executor.submit (task));
+        }
+        return result;
+    }
+}
@@ -6,8 +6,6 @@ import com.github.josefplch.utils.data.string.StringUtils;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.io.Writer;
@@ -18,9 +16,11 @@ import java.util.function.Function;
 import java.util.stream.Stream;
 
 /**
+ * The files may be compressed, see CompressedStreams.
+ * 
  * @author  Josef Plch
  * @since   2018-05-17
- * @version 2021-01-14
+ * @version 2026-10-19
  */
 public class TextFileUtils {
     public static void convertLines (
@@ -40,8 +40,8 @@ public class TextFileUtils {
         String inputFilePath,
         String outputFilePath
     ) throws IOException {
-        BufferedReader reader = new BufferedReader (new FileReader (inputFilePath));
-        BufferedWriter writer = new BufferedWriter (new FileWriter (outputFilePath));
+        BufferedReader reader = CompressedStreams.openReader (inputFilePath);
+        BufferedWriter writer = CompressedStreams.openWriter (outputFilePath);
         String line;
         while ((line = reader.readLine ()) != null) {
             for (String convertedLine : lineConverter.apply (line)) {
@@ -77,7 +77,7 @@ public class TextFileUtils {
     
     public static CharList readCharacterList (String filePath) throws IOException {
         CharList result = new CharList ();
-        BufferedReader reader = new BufferedReader (new FileReader (filePath));
+        BufferedReader reader = CompressedStreams.openReader (filePath);
         reader.lines ().forEach (line -> {
             for (Character c : line.toCharArray ()) {
                 result.add (c);
@@ -89,7 +89,7 @@ public class TextFileUtils {
     }
     
     public static Stream <Character> readCharacterStream (String filePath) throws IOException {
-        BufferedReader reader = new BufferedReader (new FileReader (filePath));
+        BufferedReader reader = CompressedStreams.openReader (filePath);
         Stream <Character> result =
             reader.lines ().flatMap (line -> {
                 Stream.Builder <Character> subStream = Stream.builder ();
@@ -105,7 +105,7 @@ public class TextFileUtils {
     
     // Equivalent to Files.readAllLines (Paths.get (filePath)).
     public static StringList readLineList (String filePath) throws IOException {
-        return readLineList (new BufferedReader (new FileReader (filePath)), 0, Optional.empty ());
+        return readLineList (CompressedStreams.openReader (filePath), 0, Optional.empty ());
     }
     
     public static StringList readLineList (BufferedReader reader) throws IOException {
@@ -113,7 +113,7 @@ public class TextFileUtils {
     }
     
     public static StringList readLineList (String filePath, int fromLine, Optional <Integer> limit) throws IOException {
-        return readLineList (new BufferedReader (new FileReader (filePath)), fromLine, limit);
+        return readLineList (CompressedStreams.openReader (filePath), fromLine, limit);
     }
     
     public static StringList readLineList (BufferedReader reader, int fromLine, Optional <Integer> limit) throws IOException {
@@ -142,7 +142,7 @@ public class TextFileUtils {
     }
     
     public static void writeLines (String outputFilePath, List <String> lines) throws IOException {
-        BufferedWriter writer = new BufferedWriter (new FileWriter (outputFilePath));
+        BufferedWriter writer = CompressedStreams.openWriter (outputFilePath);
         writeLines (writer, lines);
         writer.close ();
     }
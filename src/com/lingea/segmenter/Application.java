@@ -6,49 +6,69 @@ import com.github.josefplch.utils.data.list.StringList;
 import com.github.josefplch.utils.data.list.number.IntegerList;
 import com.github.josefplch.utils.data.nlp.Tokenizer;
 import com.github.josefplch.utils.data.string.AlignmentUtils;
+import com.github.josefplch.utils.data.string.CollationUtils;
 import com.github.josefplch.utils.data.string.DoubleFormatter;
 import com.github.josefplch.utils.data.string.StringUtils;
 import com.github.josefplch.utils.data.tuple.Pair;
 import com.github.josefplch.utils.data.tuple.UniformPair;
 import com.github.josefplch.utils.system.Args;
+import com.github.josefplch.utils.system.CompressedStreams;
 import com.github.josefplch.utils.system.FakeWriter;
+import com.github.josefplch.utils.system.FileChunk;
 import com.github.josefplch.utils.system.MemoryUtils;
+import com.github.josefplch.utils.system.ParallelFileProcessor;
+import com.github.josefplch.utils.system.ParallelLineProcessor;
 import com.github.josefplch.utils.system.TextFileUtils;
 import com.lingea.segmenter.data.ProbabilisticStringSegmentation;
 import com.lingea.segmenter.data.SimpleStringSegmentation;
 import com.lingea.segmenter.data.TestSet;
 import com.lingea.segmenter.data.frequencyList.FrequencyListConverter;
 import com.lingea.segmenter.data.frequencyList.FrequencyListEntry;
+import com.lingea.segmenter.data.token.ParametrizedNgram;
 import com.lingea.segmenter.eval.SettingTestEvaluator;
 import com.lingea.segmenter.eval.SubstitusSettingTester;
+import com.lingea.segmenter.substitus.CodePointSubstitusTokenizer;
 import com.lingea.segmenter.substitus.StringSubstitus;
-import com.lingea.segmenter.substitus.StringSubstitusTokenizer;
+import com.lingea.segmenter.substitus.StringViterbiTokenizer;
 import com.lingea.segmenter.substitus.Substitus;
 import com.lingea.segmenter.substitus.TokenPreprocessor;
 import com.lingea.segmenter.substitus.TokenTuner;
 import com.lingea.segmenter.substitus.TokenUsageAnalyser;
+import com.lingea.segmenter.substitus.Utf8StreamTokenizer;
 import com.lingea.segmenter.substitus.data.SegmentationFileReader;
+import com.lingea.segmenter.substitus.data.SegmentationFileWriter;
+import com.lingea.segmenter.substitus.data.TokenModelFile;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.BufferedWriter;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.text.Collator;
-import java.util.Comparator;
+import java.time.Duration;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
 import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 /**
  * The main class.
  * 
  * @author  Josef Plch
  * @since   2018-05-14
- * @version 2021-01-19
+ * @version 2026-10-19
  */
 public abstract class Application {
     public static final boolean DEBUG = false;
@@ -57,12 +77,14 @@ public abstract class Application {
     private static final String VERSION = VERSION_YEAR + "-01-19 (Java 8)";
     
     public static final String ACTION_BEAUTIFY_SFWL = "beautify-segmented-list";
+    public static final String ACTION_COMPILE_TOKENS = "compile-tokens";
     public static final String ACTION_CONVERT_FWL = "convert-frequency-list";
     public static final String ACTION_CREATE_FWL = "create-frequency-list";
     public static final String ACTION_CREATE_TRAIN_DATA = "create-train-data";
     public static final String ACTION_EVALUATE_SETTINGS = "evaluate-settings";
     public static final String ACTION_EVALUATE_TOKEN_FILES = "evaluate-tokens";
     public static final String ACTION_FIND_TOKENS = "find-tokens";
+    public static final String ACTION_SEGMENTIZE_CORPUS = "segmentize-corpus";
     public static final String ACTION_SEGMENTIZE_FWL = "segmentize-frequency-list";
     public static final String ACTION_SEGMENTIZE_MC2010 = "segmentize-mc2010";
     public static final String ACTION_SEGMENTIZE_WORDS = "segmentize-words";
@@ -71,6 +93,9 @@ public abstract class Application {
     public static final String ACTION_TOKENIZE = "tokenize";
     public static final String ACTION_TUNE_TOKENS = "tune-tokens";
     
+    public static final String ARG_BINARY_OUTPUT = "binary-output";
+    public static final String ARG_BYTE_MODE = "byte-mode";
+    public static final String ARG_CACHE_SIZE = "cache-size";
     public static final String ARG_CASE_SENSITIVE = "case-sensitive";
     public static final String ARG_FREQUENCY_LIST_PATH = "frequency-list";
     public static final String ARG_FREQUENCY_LIST_LIMIT = "frequency-list-limit";
@@ -92,6 +117,7 @@ public abstract class Application {
     public static final String ARG_MIN_TOKEN_IWF = "min-token-productivity";
     public static final String ARG_MIN_TOKEN_TF = "min-token-frequency";
     public static final String ARG_MIN_VARIANT_SHARE = "min-variant-share";
+    public static final String ARG_NGRAM_SKETCH_SIZE = "ngram-sketch-size";
     public static final String ARG_NORMALIZATION_MEAN = "normalization-mean";
     public static final String ARG_ONLY_WORDS = "only-words";
     public static final String ARG_OUTPUT_DIRECTORY = "output-dir";
@@ -105,17 +131,29 @@ public abstract class Application {
     public static final String ARG_OUTPUT_FORMAT_DASH = "dash";
     public static final String ARG_OUTPUT_FORMAT_SPACE = "space";
     public static final String ARG_OUTPUT_PREFIX = "output-prefix";
+    public static final String ARG_SEGMENTED_LIST = "segmented-list";
     public static final String ARG_SQUARE_SIZE = "square-size";
     public static final String ARG_TEST_SET = "test-set";
+    public static final String ARG_THREADS = "threads";
+    public static final String ARG_TIME_BUDGET = "time-budget";
     public static final String ARG_TOKEN_FILE = "token-file";
+    public static final String ARG_TOKENIZER = "tokenizer";
+    public static final String ARG_TOKENIZER_SUBSTITUS = "substitus";
+    public static final String ARG_TOKENIZER_VITERBI = "viterbi";
     public static final String ARG_TOKEN_NGRAMS = "token-ngrams";
     public static final String ARG_VERBOSITY = "verbosity";
     public static final String ARG_WORD_FILTER = "word-filter";
     
+    // Prefix of the words segmentized (partly) by the fallback tokenizer.
+    private static final String DEGRADED_WORD_MARKER = "~";
+    
+    private static final String HELP_ARG_CACHE_SIZE           = "(optional): number of cached words, 0 = no cache, default: " + CachingStringSegmenter.DEFAULT_MAX_SIZE;
     private static final String HELP_ARG_CASE_SENSITIVE       = "(optional): use case-sensitive mode";
     private static final String HELP_ARG_FREQUENCY_LIST_LIMIT = "(optional): use only n first entries";
     private static final String HELP_ARG_MAX_WORD_LENGTH      = "(optional): ignore words longer than n";
     private static final String HELP_ARG_NORMALIZATION_MEAN   = "(optional): [0..1], lower mean = more word splits";
+    private static final String HELP_ARG_THREADS              = "(optional): number of worker threads, default: number of processors";
+    private static final String HELP_ARG_TIME_BUDGET          = "(optional): maximum time per word in milliseconds; the rest of a word over the budget is segmentized by the tokenizer (--" + ARG_TOKENIZER + ", --" + ARG_TOKEN_FILE + ") and marked by the prefix " + DEGRADED_WORD_MARKER;
 
     private static final String MESSAGE_YOU_MUST_SPECIFY = "You must specify ";
     private static final String MESSAGE_NUMBER_SHORTHANDS = "You can use 'k' for thousands and 'M' for millions, e.g. 2k = 2,000.";
@@ -123,6 +161,13 @@ public abstract class Application {
     private static final String MESSAGE_UNKNOWN_USING_DEFAULT = " not specified, using the default: ";
     private static final String MESSAGE_UNKNOWN_YOU_CAN_USE = " not specified. If you want to set it, add --";
     
+    // Output of a segmented word: (segmentation, whether it is degraded,
+    // original input line) -> ().
+    @FunctionalInterface
+    private interface SegmentationPrinter {
+        public void print (ProbabilisticStringSegmentation segmentation, boolean degraded, String line) throws IOException;
+    }
+    
     public static void main (String [] args) {
         try {
             // System.setProperty ("line.separator", "\n");
@@ -170,6 +215,9 @@ public abstract class Application {
         if (action.equals (ACTION_SEGMENTIZE_WORDS)) {
             segmentizeWords (args);
         }
+        else if (action.equals (ACTION_SEGMENTIZE_CORPUS)) {
+            segmentizeCorpus (args);
+        }
         else if (action.equals (ACTION_TOKENIZE)) {
             tokenize (args);
         }
@@ -197,6 +245,9 @@ public abstract class Application {
         else if (action.equals (ACTION_TUNE_TOKENS)) {
             tuneTokens (args);
         }
+        else if (action.equals (ACTION_COMPILE_TOKENS)) {
+            compileTokens (args);
+        }
         else if (action.equals (ACTION_CREATE_TRAIN_DATA)) {
             createMultilingualArff (args);
         }
@@ -233,19 +284,24 @@ public abstract class Application {
             
             TextFileUtils.writeLines (
                 freshStdoutWriter (),
-                SegmentationFileReader.readStream (
-                    freshStdinReader (),
-                    getFrequencyListLimit (args)
-                )
-                .map (
-                    tuple -> Pair.of (
-                        tuple.get2 (),
-                        tuple.get4 ().normalize (normalizationMean)
+                CollationUtils.sort (
+                    SegmentationFileReader.readStream (
+                        freshStdinStream (),
+                        getFrequencyListLimit (args)
                     )
+                    .map (
+                        tuple -> Pair.of (
+                            tuple.get2 (),
+                            tuple.get4 ().normalize (normalizationMean)
+                        )
+                    )
+                    // Keep only "clean" words without punctuation.
+                    .filter (pair -> pair.get1 ().length () <= maxWordLength && Tokenizer.isWord (pair.get1 (), true, true, false))
+                    .collect (Collectors.toList ()),
+                    Pair :: get1,
+                    collator
                 )
-                // Keep only "clean" words without punctuation.
-                .filter (pair -> pair.get1 ().length () <= maxWordLength && Tokenizer.isWord (pair.get1 (), true, true, false))
-                .sorted (Comparator.comparing (Pair :: get1, collator))
+                .stream ()
                 .map (pair ->
                     AlignmentUtils.toLeft (pair.get1 (), maxWordLength)
                     + "  "
@@ -262,6 +318,39 @@ public abstract class Application {
         }
     }
     
+    private static void compileTokens (Args args) throws IOException {
+        if (args.contains (ARG_HELP)) {
+            printLines (
+                "Compile a list of token n-grams (" + GlobalSettings.EXTENSION_TNL + ") into a binary tokenizer model (" + GlobalSettings.EXTENSION_TKM + "), which is printed to the standard output.",
+                "The model can be used instead of the token file, it is loaded much faster. The order of the n-grams is preserved, the examples are omitted.",
+                "If the token file contains only the n-grams (without TF and IWF), the model can be used only by the " + ARG_TOKENIZER_SUBSTITUS + " tokenizer.",
+                "",
+                "Parameters:",
+                "--" + ARG_TOKEN_FILE + ": path to list of token n-grams"
+            );
+        }
+        else {
+            String tokenFilePath = getTokenFilePath (args);
+            StringList lines = TextFileUtils.readLineList (tokenFilePath);
+            BufferedOutputStream output = new BufferedOutputStream (System.out, 1 << 16);
+            // The format is given by the first line, the other lines must
+            // follow it (a malformed line is an error).
+            int columns = lines.isEmpty () ? ParametrizedNgram.COLUMNS : StringList.split ("\t", lines.get (0)).size ();
+            if (columns >= ParametrizedNgram.COLUMNS) {
+                TokenModelFile.writeParametrizedNgrams (lines.map (ParametrizedNgram :: parse), output);
+            }
+            else {
+                System.err.println ("* The token file contains no n-gram properties, only the n-grams are compiled.");
+                TokenModelFile.writeNgrams (
+                    TextFileUtils.readColumn (tokenFilePath, 0)
+                    .map (tokenNgram -> StringList.split (GlobalSettings.HARD_DELIMITER_STRING, tokenNgram)),
+                    output
+                );
+            }
+            output.flush ();
+        }
+    }
+    
     private static void convertFrequencyList (Args args) throws IOException {
         FrequencyListConverter.convert (
             freshStdinReader (),
@@ -275,12 +364,35 @@ public abstract class Application {
     }
     
     private static void createFrequencyList (Args args) throws IOException {
-        FrequencyListConverter.tokenizedToCaseSensitive (
-            freshStdinReader (),
-            Optional.of (getMaxWordLength (args)),
-            getMaxResultSize (args),
-            freshStdoutWriter ()
-        );
+        if (args.contains (ARG_HELP)) {
+            printLines (
+                "Create a frequency list (" + GlobalSettings.EXTENSION_FWL + ") from a word-level-tokenized text, tokens are delimited by spaces or tabs.",
+                "The text is read from the standard input, unless input files are specified.",
+                "",
+                "Parameters:",
+                "--" + ARG_INPUT_FILES + " (optional): comma-separated list of input files (UTF-8), counted in parallel",
+                "--" + ARG_THREADS + " " + HELP_ARG_THREADS,
+                "--" + ARG_MAX_RESULT_SIZE + " (optional): maximum number of entries (with input files: the most frequent ones)",
+                "--" + ARG_MAX_WORD_LENGTH + " " + HELP_ARG_MAX_WORD_LENGTH
+            );
+        }
+        else if (args.contains (ARG_INPUT_FILES)) {
+            FrequencyListConverter.tokenizedFilesToCaseSensitive (
+                StringList.split (",", args.getString (ARG_INPUT_FILES).get ()),
+                getThreads (args),
+                Optional.of (getMaxWordLength (args)),
+                getMaxResultSize (args),
+                freshStdoutWriter ()
+            );
+        }
+        else {
+            FrequencyListConverter.tokenizedToCaseSensitive (
+                freshStdinReader (),
+                Optional.of (getMaxWordLength (args)),
+                getMaxResultSize (args),
+                freshStdoutWriter ()
+            );
+        }
     }
     
     private static void createMultilingualArff (Args args) throws IOException {
@@ -296,7 +408,7 @@ public abstract class Application {
             StringSubstitus substitus =
                 trainSubstitus (
                     getCaseSensitive (args),
-                    new BufferedReader (new FileReader (filePair.get1 ())),
+                    CompressedStreams.openReader (filePair.get1 ()),
                     getFrequencyListLimit (args),
                     new FakeWriter (),
                     Optional.of (Pair.of (writer, writeHead)),
@@ -357,7 +469,10 @@ public abstract class Application {
                 "--" + ARG_NORMALIZATION_MEAN + " " + HELP_ARG_NORMALIZATION_MEAN,
                 "--" + ARG_MAX_WORD_LENGTH + " " + HELP_ARG_MAX_WORD_LENGTH,
                 "--" + ARG_MAX_NGRAM_LEVEL + " (optional): limit the number of tokens in n-grams",
-                "--" + ARG_MIN_NGRAM_TF + " (optional): ignore n-grams with frequency < n"
+                "--" + ARG_MIN_NGRAM_TF + " (optional): ignore n-grams with frequency < n",
+                "--" + ARG_NGRAM_SKETCH_SIZE + " (optional): count the n-gram frequencies in two passes, using a sketch of n counters (8 bytes each), to save memory",
+                "--" + ARG_SEGMENTED_LIST + " (optional): path to the segmented list; it is read repeatedly instead of being loaded (default: standard input)",
+                "--" + ARG_THREADS + " " + HELP_ARG_THREADS
             );
         }
         else {
@@ -371,25 +486,50 @@ public abstract class Application {
                     getMinNgramTf (args),
                     addBoundaries,
                     getNormalizationMean (args),
-                    5
+                    5,
+                    getThreads (args)
                 );
+            args.getInteger (ARG_NGRAM_SKETCH_SIZE).ifPresent (preprocessor :: setNgramSketchSize);
 
-            preprocessor.findTokenNgrams (
-                freshStdinReader (),
-                getFrequencyListLimit (args),
-                freshStdoutWriter ()
-            );
+            Optional <String> segmentedList = args.getString (ARG_SEGMENTED_LIST);
+            if (segmentedList.isPresent ()) {
+                preprocessor.findTokenNgrams (
+                    Paths.get (segmentedList.get ()),
+                    getFrequencyListLimit (args),
+                    freshStdoutWriter ()
+                );
+            }
+            else {
+                preprocessor.findTokenNgrams (
+                    freshStdinStream (),
+                    getFrequencyListLimit (args),
+                    freshStdoutWriter ()
+                );
+            }
         }
     }
     
-    private static BufferedReader freshStdinReader () {
-        return new BufferedReader (new InputStreamReader (System.in));
+    // The standard input may be compressed.
+    private static BufferedReader freshStdinReader () throws IOException {
+        return new BufferedReader (new InputStreamReader (freshStdinStream ()));
+    }
+    
+    private static InputStream freshStdinStream () throws IOException {
+        return CompressedStreams.decompress (System.in);
     }
     
     private static OutputStreamWriter freshStdoutWriter () {
         return new OutputStreamWriter (System.out);
     }
     
+    private static int getCacheSize (Args args) {
+        int value = args.getInteger (ARG_CACHE_SIZE).orElse (CachingStringSegmenter.DEFAULT_MAX_SIZE);
+        if (value < 0) {
+            throw new IllegalArgumentException ("The cache size must not be negative.");
+        }
+        return value;
+    }
+    
     private static UnaryOperator <Character> getCaseSensitive (Args args) {
         UnaryOperator <Character> result;
         if (args.contains (ARG_CASE_SENSITIVE)) {
@@ -406,6 +546,21 @@ public abstract class Application {
         return result;
     }
     
+    private static IntUnaryOperator getCaseSensitiveCodePoints (Args args) {
+        IntUnaryOperator result;
+        if (args.contains (ARG_CASE_SENSITIVE)) {
+            result = c -> c;
+        }
+        else {
+            System.err.println (
+                "Substitus runs in case-insensitive mode."
+                + MESSAGE_TO_CHANGE_IT_USE + ARG_CASE_SENSITIVE + "."
+            );
+            result = Character :: toLowerCase;
+        }
+        return result;
+    }
+    
     private static String getFrequencyListPath (Args args) {
         return (
             args.getString (
@@ -805,6 +960,38 @@ public abstract class Application {
         );
     }
     
+    // The time budget per word and the fallback tokenizer (optional).
+    private static Optional <Pair <Duration, StringSegmenter>> getTimeBudget (Args args) throws IOException {
+        Optional <Pair <Duration, StringSegmenter>> result;
+        Optional <Integer> milliseconds = args.getInteger (ARG_TIME_BUDGET);
+        if (milliseconds.isPresent ()) {
+            if (milliseconds.get () <= 0) {
+                throw new IllegalArgumentException ("The time budget must be positive.");
+            }
+            result = Optional.of (Pair.of (Duration.ofMillis (milliseconds.get ()), getTokenizer (args)));
+        }
+        else {
+            result = Optional.empty ();
+        }
+        return result;
+    }
+    
+    private static int getThreads (Args args) {
+        int defaultValue = Runtime.getRuntime ().availableProcessors ();
+        int value =
+            args.getInteger (ARG_THREADS).orElseGet (() -> {
+                System.err.println (
+                    "Number of threads" + MESSAGE_UNKNOWN_USING_DEFAULT + defaultValue + "."
+                    + MESSAGE_TO_CHANGE_IT_USE + ARG_THREADS + " [number]."
+                );
+                return defaultValue;
+            });
+        if (value < 1) {
+            throw new IllegalArgumentException ("The number of threads must be positive.");
+        }
+        return value;
+    }
+    
     private static String getTokenFilePath (Args args) {
         return (
             args.getString (
@@ -814,6 +1001,29 @@ public abstract class Application {
         );
     }
     
+    private static StringSegmenter getTokenizer (Args args) throws IOException {
+        String arg =
+            args.getString (ARG_TOKENIZER).orElseGet (() -> {
+                System.err.println (
+                    "Tokenizer" + MESSAGE_UNKNOWN_USING_DEFAULT + ARG_TOKENIZER_SUBSTITUS + "."
+                    + MESSAGE_TO_CHANGE_IT_USE + ARG_TOKENIZER + " (" + ARG_TOKENIZER_SUBSTITUS + "|" + ARG_TOKENIZER_VITERBI + ")."
+                );
+                return ARG_TOKENIZER_SUBSTITUS;
+            });
+        StringSegmenter result;
+        if (arg.equals (ARG_TOKENIZER_SUBSTITUS)) {
+            // Code points: no boxing, the surrogate pairs are never split.
+            result = CodePointSubstitusTokenizer.loadTokenFile (getCaseSensitiveCodePoints (args), getTokenFilePath (args));
+        }
+        else if (arg.equals (ARG_TOKENIZER_VITERBI)) {
+            result = StringViterbiTokenizer.load (getTokenFilePath (args));
+        }
+        else {
+            throw new IllegalArgumentException ("Unknown tokenizer: " + arg);
+        }
+        return result;
+    }
+    
     private static FunctionalList <SimpleStringSegmentation> getTokenNgrams (Args args) {
         return (
             StringList.split (
@@ -873,10 +1083,12 @@ public abstract class Application {
             "* ." + GlobalSettings.EXTENSION_SDS + " .... test set, lines: word \\t segment at i?on [" + GlobalSettings.COMMENT_MARK + " comment]",
             "* ." + GlobalSettings.EXTENSION_MCDS + " ... Morpho Challenge 2010 test set, lines: word \\t segmentations",
             "* ." + GlobalSettings.EXTENSION_TNL + " .... list of token n-grams (whether tuned or not)",
+            "* ." + GlobalSettings.EXTENSION_TKM + " .... compiled tokenizer model (binary)",
             "",
             "Basic usage:",
             "* Version info ................... substitus --version",
             "* Detailed word segmentation ..... substitus " + ACTION_SEGMENTIZE_WORDS,
+            "* Running text segmentation ...... substitus " + ACTION_SEGMENTIZE_CORPUS,
             "* Text tokenization .............. substitus " + ACTION_TOKENIZE,
             "",
             "How to find subword tokens using a word-level-tokenized text:",
@@ -887,6 +1099,7 @@ public abstract class Application {
             "   b) Inspect particular token ... substitus " + ACTION_SHOW_TOKEN_USAGE,
             "   c) I.  Make list of tokens .... substitus " + ACTION_FIND_TOKENS,
             "      II. Filter & order them .... substitus " + ACTION_TUNE_TOKENS,
+            "     III. Compile them ........... substitus " + ACTION_COMPILE_TOKENS,
             "",
             "Training & testing:",
             "* Run Morpho Challenge test ...... substitus " + ACTION_SEGMENTIZE_MC2010,
@@ -926,14 +1139,15 @@ public abstract class Application {
         Optional <Integer> frequencyListLimit,
         int kMostFrequent,
         int squareSize,
+        Optional <Pair <Duration, StringSegmenter>> timeBudget,
         BufferedReader inputReader,
         Function <String, String> wordExtractor,
         int verbosity,
-        BiFunction <ProbabilisticStringSegmentation, String, String> printFunction
+        int threads,
+        Writer outputWriter,
+        SegmentationPrinter printer
     ) throws IOException {
-        Writer outputWriter = freshStdoutWriter ();
-        
-        BufferedReader frequencyListReader = new BufferedReader (new FileReader (frequencyListPath));
+        BufferedReader frequencyListReader = CompressedStreams.openReader (frequencyListPath);
         StringSubstitus substitus =
             trainSubstitus (
                 charPreprocessor,
@@ -947,47 +1161,146 @@ public abstract class Application {
         
         substitus.setKMostFrequent (kMostFrequent);
         substitus.setSquareSize (squareSize);
+        timeBudget.ifPresent (budget -> substitus.setTimeBudget (budget.get1 (), budget.get2 ()));
         
-        // Skipping can be used to continue an interrupted computation.
-        int skip = 0;
-        int n = 0;
-        String line;
-        while ((line = inputReader.readLine ()) != null && n < frequencyListLimit.orElse (Integer.MAX_VALUE)) {
-            if (n < skip) {
+        // The words are segmentized in parallel, the output keeps the order.
+        // (Verbose output and debugging messages would be mixed up.)
+        if (threads > 1 && verbosity == 0 && ! Application.DEBUG) {
+            AtomicInteger n = new AtomicInteger (0);
+            ParallelLineProcessor.process (
+                inputReader,
+                frequencyListLimit,
+                threads,
+                line -> substitus.segmentizeWithinBudget (wordExtractor.apply (line)),
+                (line, result) -> {
+                    if (n.get () % 10_000 == 0) {
+                        System.err.println ("* Segmenting word #" + (n.get () / 1_000) + "k: " + wordExtractor.apply (line) + ", memory usage: " + MemoryUtils.memoryUsageMessageMB ());
+                        System.err.flush ();
+                    }
+                    printer.print (result.get1 (), result.get2 (), line);
+                    n.incrementAndGet ();
+                }
+            );
+        }
+        else {
+            // Skipping can be used to continue an interrupted computation.
+            int skip = 0;
+            int n = 0;
+            String line;
+            while ((line = inputReader.readLine ()) != null && n < frequencyListLimit.orElse (Integer.MAX_VALUE)) {
+                if (n < skip) {
+                    n++;
+                    continue;
+                }
+                
+                String word = wordExtractor.apply (line);
+                if (Application.DEBUG) {
+                    System.err.println ("* Segmenting word #" + n + ": " + word + ", memory usage: " + MemoryUtils.memoryUsageMessageMB ());
+                    System.err.flush ();
+                }
+                else if (n % 10_000 == 0) {
+                    System.err.println ("* Segmenting word #" + (n / 1_000) + "k: " + word + ", memory usage: " + MemoryUtils.memoryUsageMessageMB ());
+                    System.err.flush ();
+                }
+                
+                Pair <ProbabilisticStringSegmentation, Boolean> result = substitus.segmentizeWithinBudget (word);
+                ProbabilisticStringSegmentation segmentation = result.get1 ();
+                
+                if (Application.DEBUG) {
+                    ProbabilisticStringSegmentation normalized =
+                        segmentation.normalize (
+                            Substitus.DEFAULT_NORMALIZATION_MEAN
+                        );
+                    System.err.println ("  Raw result: " + segmentation.toStringDecimal6 ());
+                    System.err.println ("  Normalized: " + normalized.toStringDecimal6 ());
+                    System.err.flush ();
+                }
+                
+                printer.print (segmentation, result.get2 (), line);
+                
                 n++;
-                continue;
             }
+        }
+        
+        outputWriter.flush ();
+        if (timeBudget.isPresent ()) {
+            System.err.println ("* Words over the time budget (segmentized by the tokenizer): " + substitus.getDegradedCount ());
+        }
+    }
+    
+    private static void segmentizeCorpus (Args args) throws IOException {
+        if (args.contains (ARG_HELP)) {
+            printLines (
+                "Segmentize the words of running text (from standard input or the given files). Every unique word is segmentized only once, in parallel; the punctuation, numbers and spacing are kept.",
+                "",
+                "Parameters:",
+                "--" + ARG_CASE_SENSITIVE + " " + HELP_ARG_CASE_SENSITIVE,
+                "--" + ARG_FREQUENCY_LIST_PATH + ": path to word frequency list used for segmentation",
+                "--" + ARG_FREQUENCY_LIST_LIMIT + " " + HELP_ARG_FREQUENCY_LIST_LIMIT,
+                "--" + ARG_INPUT_FILES + " (optional): comma-separated list of input files; if not specified, use standard input (it is copied into a temporary file)",
+                "--" + ARG_K_MOST_FREQUENT + " (optional): change the default k most frequent parameter",
+                "--" + ARG_SQUARE_SIZE + " (optional): change the default square size parameter",
+                "--" + ARG_NORMALIZATION_MEAN + " " + HELP_ARG_NORMALIZATION_MEAN,
+                "--" + ARG_THREADS + " " + HELP_ARG_THREADS,
+                "--" + ARG_TIME_BUDGET + " " + HELP_ARG_TIME_BUDGET,
+                "--" + ARG_OUTPUT_FORMAT + ": serialization function for the segmentation, see " + ACTION_SEGMENTIZE_WORDS
+            );
+        }
+        else {
+            Function <ProbabilisticStringSegmentation, String> binarizer = getOutputFormatA (args);
+            double normalizationMean = getNormalizationMean (args);
+            Optional <StringList> inputFiles =
+                args.read (
+                    ARG_INPUT_FILES,
+                    arg -> StringList.split (",", arg)
+                );
+            Writer outputWriter = new BufferedWriter (freshStdoutWriter (), 1 << 20);
+            
+            BufferedReader frequencyListReader = CompressedStreams.openReader (getFrequencyListPath (args));
+            StringSubstitus substitus =
+                trainSubstitus (
+                    getCaseSensitive (args),
+                    frequencyListReader,
+                    getFrequencyListLimit (args),
+                    outputWriter,
+                    Optional.empty (),
+                    0
+                );
+            frequencyListReader.close ();
+            substitus.setKMostFrequent (getKMostFrequent (args));
+            substitus.setSquareSize (getSquareSize (args));
+            Optional <Pair <Duration, StringSegmenter>> timeBudget = getTimeBudget (args);
+            timeBudget.ifPresent (budget -> substitus.setTimeBudget (budget.get1 (), budget.get2 ()));
             
-            String word = wordExtractor.apply (line);
-            if (Application.DEBUG) {
-                System.err.println ("* Segmenting word #" + n + ": " + word + ", memory usage: " + MemoryUtils.memoryUsageMessageMB ());
-                System.err.flush ();
+            CorpusSegmenter segmenter =
+                new CorpusSegmenter (
+                    word -> {
+                        Pair <ProbabilisticStringSegmentation, Boolean> result = substitus.segmentizeWithinBudget (word);
+                        return (
+                            (result.get2 () ? DEGRADED_WORD_MARKER : "")
+                            + binarizer.apply (result.get1 ().normalize (normalizationMean))
+                        );
+                    },
+                    getThreads (args)
+                );
+            if (inputFiles.isPresent ()) {
+                segmenter.segmentize (inputFiles.get (), outputWriter);
             }
-            else if (n % 10_000 == 0) {
-                System.err.println ("* Segmenting word #" + (n / 1_000) + "k: " + word + ", memory usage: " + MemoryUtils.memoryUsageMessageMB ());
-                System.err.flush ();
+            else {
+                // The text is read twice.
+                Path temporaryFile = Files.createTempFile ("substitus-corpus-", ".txt");
+                try {
+                    Files.copy (freshStdinStream (), temporaryFile, StandardCopyOption.REPLACE_EXISTING);
+                    segmenter.segmentize (StringList.ofStrings (temporaryFile.toString ()), outputWriter);
+                }
+                finally {
+                    Files.delete (temporaryFile);
+                }
             }
-            
-            ProbabilisticStringSegmentation segmentation = substitus.segmentizeP (word);
-            
-            if (Application.DEBUG) {
-                ProbabilisticStringSegmentation normalized =
-                    segmentation.normalize (
-                        Substitus.DEFAULT_NORMALIZATION_MEAN
-                    );
-                System.err.println ("  Raw result: " + segmentation.toStringDecimal6 ());
-                System.err.println ("  Normalized: " + normalized.toStringDecimal6 ());
-                System.err.flush ();
+            if (timeBudget.isPresent ()) {
+                System.err.println ("* Words over the time budget (segmentized by the tokenizer): " + substitus.getDegradedCount ());
             }
-            
-            outputWriter.append (printFunction.apply (segmentation, line));
-            outputWriter.append ('\n');
-            outputWriter.flush ();
-            
-            n++;
         }
-        
-        outputWriter.flush ();
     }
     
     private static void segmentizeFrequencyList (Args args) throws IOException {
@@ -1000,54 +1313,98 @@ public abstract class Application {
                 "--" + ARG_FREQUENCY_LIST_PATH + ": path to word frequency list",
                 "--" + ARG_FREQUENCY_LIST_LIMIT + " " + HELP_ARG_FREQUENCY_LIST_LIMIT,
                 "--" + ARG_K_MOST_FREQUENT + " (optional): change the default k most frequent parameter",
-                "--" + ARG_SQUARE_SIZE + " (optional): change the default square size parameter"
+                "--" + ARG_SQUARE_SIZE + " (optional): change the default square size parameter",
+                "--" + ARG_BINARY_OUTPUT + " (optional): write binary " + GlobalSettings.EXTENSION_SFWL + " (smaller and faster to read, all the readers detect it)"
             );
         }
+        else if (args.contains (ARG_BINARY_OUTPUT)) {
+            String frequencyListPath = getFrequencyListPath (args);
+            try (SegmentationFileWriter binaryWriter = new SegmentationFileWriter (new BufferedOutputStream (System.out, 1 << 16))) {
+                runSingleSetting (
+                    getCaseSensitive (args),
+                    frequencyListPath,
+                    getFrequencyListLimit (args),
+                    getKMostFrequent (args),
+                    getSquareSize (args),
+                    Optional.empty (),
+                    CompressedStreams.openReader (frequencyListPath),
+                    line -> FrequencyListEntry.read (line).getWord (),
+                    0,
+                    1,
+                    // Nothing but the binary list may be written to the output.
+                    new FakeWriter (),
+                    (segmentation, degraded, line) -> {
+                        FrequencyListEntry entry = FrequencyListEntry.read (line);
+                        binaryWriter.write (
+                            entry.getFrequency (),
+                            entry.getWord (),
+                            entry.getLemmataAsc (),
+                            // Not normalized.
+                            segmentation.toCompact ()
+                        );
+                    }
+                );
+            }
+        }
         else {
             String frequencyListPath = getFrequencyListPath (args);
+            Writer outputWriter = freshStdoutWriter ();
             runSingleSetting (
                 getCaseSensitive (args),
                 frequencyListPath,
                 getFrequencyListLimit (args),
                 getKMostFrequent (args),
                 getSquareSize (args),
-                new BufferedReader (new FileReader (frequencyListPath)),
+                Optional.empty (),
+                CompressedStreams.openReader (frequencyListPath),
                 line -> FrequencyListEntry.read (line).getWord (),
                 0,
-                (segmentation, line) -> {
-                    FrequencyListEntry entry = FrequencyListEntry.read (line);
-                    return (
-                        // TODO: would it be sufficient to use line + "\t" + segmentation?
-                        entry.getFrequency ()
-                        + "\t" + entry.getWord ()
-                        + "\t" + entry.getLemmataAsc ().join (String.valueOf (GlobalSettings.LEMMA_DELIMITER))
-                        // Not normalized.
-                        + "\t" + segmentation.toStringDecimal6 ()
-                    );
-                }
+                1,
+                outputWriter,
+                textPrinter (
+                    outputWriter,
+                    (segmentation, line) -> {
+                        FrequencyListEntry entry = FrequencyListEntry.read (line);
+                        return (
+                            // TODO: would it be sufficient to use line + "\t" + segmentation?
+                            entry.getFrequency ()
+                            + "\t" + entry.getWord ()
+                            + "\t" + entry.getLemmataAsc ().join (String.valueOf (GlobalSettings.LEMMA_DELIMITER))
+                            // Not normalized.
+                            + "\t" + segmentation.toStringDecimal6 ()
+                        );
+                    }
+                )
             );
         }
     }
     
     private static void segmentizeMc2010 (Args args) throws IOException {
         double normalizationMean = getNormalizationMean (args);
+        Writer outputWriter = freshStdoutWriter ();
         runSingleSetting (
             getCaseSensitive (args),
             getFrequencyListPath (args),
             getFrequencyListLimit (args),
             getKMostFrequent (args),
             getSquareSize (args),
+            Optional.empty (),
             freshStdinReader (),
             line -> line.replaceFirst ("\t.*", ""),
             0,
-            (segmentation, line) -> 
-                segmentation.elements ()
-                + "\t"
-                + segmentation
-                    .normalize (normalizationMean)
-                    .binarize50S ()
-                    .mapToString (t -> t + ":" + t)
-                    .unwords ()
+            1,
+            outputWriter,
+            textPrinter (
+                outputWriter,
+                (segmentation, line) -> 
+                    segmentation.elements ()
+                    + "\t"
+                    + segmentation
+                        .normalize (normalizationMean)
+                        .binarize50S ()
+                        .mapToString (t -> t + ":" + t)
+                        .unwords ()
+            )
         );
     }
     
@@ -1063,6 +1420,8 @@ public abstract class Application {
                 "--" + ARG_K_MOST_FREQUENT + " (optional): change the default k most frequent parameter",
                 "--" + ARG_SQUARE_SIZE + " (optional): change the default square size parameter",
                 "--" + ARG_NORMALIZATION_MEAN + " " + HELP_ARG_NORMALIZATION_MEAN,
+                "--" + ARG_THREADS + " " + HELP_ARG_THREADS + " (only with verbosity 0)",
+                "--" + ARG_TIME_BUDGET + " " + HELP_ARG_TIME_BUDGET,
                 "--" + ARG_OUTPUT_FORMAT + ": serialization function for the segmentation",
                 "    * " + ARG_OUTPUT_FORMAT_BINARY + " ....... split if segmentability >= 0.5",
                 "    * " + ARG_OUTPUT_FORMAT_BINARY_ALT + " ... split if segmentability >= 0.5 or length > 8",
@@ -1081,19 +1440,27 @@ public abstract class Application {
         else {
             Function <ProbabilisticStringSegmentation, String> binarizer = getOutputFormatA (args);
             double normalizationMean = getNormalizationMean (args);
+            int verbosity = getVerbosity (args, 0, 4);
+            Writer outputWriter = freshStdoutWriter ();
             runSingleSetting (
                 getCaseSensitive (args),
                 getFrequencyListPath (args),
                 getFrequencyListLimit (args),
                 getKMostFrequent (args),
                 getSquareSize (args),
+                getTimeBudget (args),
                 freshStdinReader (),
                 String :: trim,
-                getVerbosity (args, 0, 4),
-                (segmentation, line) ->
-                    binarizer.apply (
-                        segmentation.normalize (normalizationMean)
-                    )
+                verbosity,
+                verbosity == 0 ? getThreads (args) : 1,
+                outputWriter,
+                textPrinter (
+                    outputWriter,
+                    (segmentation, line) ->
+                        binarizer.apply (
+                            segmentation.normalize (normalizationMean)
+                        )
+                )
             );
         }
     }
@@ -1121,7 +1488,7 @@ public abstract class Application {
         }
         else {
             TokenUsageAnalyser.analyse (
-                freshStdinReader (),
+                freshStdinStream (),
                 // TODO: Rename/remove the limit?
                 getFrequencyListLimit (args),
                 getMaxWordLength (args),
@@ -1150,7 +1517,7 @@ public abstract class Application {
                 ProbabilisticStringSegmentation :: toStringDecimal6
             );
         
-        BufferedReader frequencyListReader = new BufferedReader (new FileReader (frequencyListPath));
+        BufferedReader frequencyListReader = CompressedStreams.openReader (frequencyListPath);
         settingsTester.runTest (
             trainSubstitus (
                 getCaseSensitive (args),
@@ -1174,11 +1541,19 @@ public abstract class Application {
     private static void tokenize (Args args) throws IOException {
         if (args.contains (ARG_HELP)) {
             printLines (
-                "Tokenize text from standard input.",
+                "Tokenize text from standard input, or from the given files (each of them is split into chunks, which are tokenized in parallel).",
                 "",
                 "Parameters:",
+                "--" + ARG_BYTE_MODE + " (optional): process the raw UTF-8 bytes, without creating any strings (only the " + ARG_TOKENIZER_SUBSTITUS + " tokenizer, no cache; single-threaded for standard input)",
+                "--" + ARG_CACHE_SIZE + " " + HELP_ARG_CACHE_SIZE,
                 "--" + ARG_CASE_SENSITIVE + " " + HELP_ARG_CASE_SENSITIVE,
-                "--" + ARG_TOKEN_FILE + ": path to list of token n-grams used for tokenization",
+                "--" + ARG_INPUT_FILES + " (optional): comma-separated list of input files (UTF-8); if not specified, use standard input (a line longer than " + FileChunk.MAX_SIZE + " B in a file is split, i.e. tokenized as two lines)",
+                "--" + ARG_OUTPUT_DIRECTORY + " (with input files): the directory to store the tokenized files (of the same names)",
+                "--" + ARG_THREADS + " " + HELP_ARG_THREADS,
+                "--" + ARG_TOKEN_FILE + ": path to list of token n-grams used for tokenization (or a compiled model)",
+                "--" + ARG_TOKENIZER + " (optional): the tokenization algorithm",
+                "    * " + ARG_TOKENIZER_SUBSTITUS + " ... apply the n-grams in order of the token file (default)",
+                "    * " + ARG_TOKENIZER_VITERBI + " ..... find the most probable token sequence (case-sensitive)",
                 "--" + ARG_OUTPUT_FORMAT + ": how to delimit the tokens and words",
                 "    * " + ARG_OUTPUT_FORMAT_BPE + " ..... segment@@ ed word@@ s",
                 "    * " + ARG_OUTPUT_FORMAT_DASH + " .... segment-ed word-s",
@@ -1186,24 +1561,110 @@ public abstract class Application {
             );
         }
         else {
-            StringSubstitusTokenizer tokenizer =
-                StringSubstitusTokenizer.loadTokenFile (
-                    getCaseSensitive (args),
-                    getTokenFilePath (args)
-                );
             UniformPair <String> delimiters = getOutputFormatB (args);
-            freshStdinReader ().lines ().forEach (line -> {
-                System.out.println (
-                    StringList.split (" ", line)
-                    .map (tokenizer :: segmentize)
-                    .mapToString (tokens -> tokens.join (delimiters.get1 ()))
-                    .join (delimiters.get2 ())
+            Optional <StringList> inputFiles =
+                args.read (
+                    ARG_INPUT_FILES,
+                    arg -> StringList.split (",", arg)
                 );
-            });
-            System.out.flush ();
+            Optional <String> outputDirectory =
+                inputFiles.map (files ->
+                    args.getString (
+                        ARG_OUTPUT_DIRECTORY,
+                        MESSAGE_YOU_MUST_SPECIFY + "the output directory. Use: --" + ARG_OUTPUT_DIRECTORY + " [directory-path]."
+                    )
+                );
+            if (args.contains (ARG_BYTE_MODE)) {
+                if (! args.getString (ARG_TOKENIZER).orElse (ARG_TOKENIZER_SUBSTITUS).equals (ARG_TOKENIZER_SUBSTITUS)) {
+                    throw new IllegalArgumentException ("The --" + ARG_BYTE_MODE + " supports only the " + ARG_TOKENIZER_SUBSTITUS + " tokenizer.");
+                }
+                CodePointSubstitusTokenizer tokenizer =
+                    CodePointSubstitusTokenizer.loadTokenFile (getCaseSensitiveCodePoints (args), getTokenFilePath (args));
+                if (inputFiles.isPresent ()) {
+                    // The stream tokenizer has a state, every chunk needs its own.
+                    ParallelFileProcessor.process (
+                        inputFiles.get (),
+                        outputDirectory.get (),
+                        getThreads (args),
+                        (input, output) ->
+                            new Utf8StreamTokenizer (tokenizer, delimiters.get1 (), delimiters.get2 ())
+                            .tokenize (input, output)
+                    );
+                }
+                else {
+                    new Utf8StreamTokenizer (tokenizer, delimiters.get1 (), delimiters.get2 ())
+                    .tokenize (freshStdinStream (), new BufferedOutputStream (System.out, 1 << 20));
+                }
+            }
+            else {
+                // Frequent words are tokenized only once.
+                CachingStringSegmenter tokenizer = new CachingStringSegmenter (getTokenizer (args), getCacheSize (args));
+                Function <String, String> tokenizeLine =
+                    line ->
+                        StringList.split (" ", line)
+                        .map (tokenizer :: segmentize)
+                        .mapToString (tokens -> tokens.join (delimiters.get1 ()))
+                        .join (delimiters.get2 ());
+                if (inputFiles.isPresent ()) {
+                    ParallelFileProcessor.process (
+                        inputFiles.get (),
+                        outputDirectory.get (),
+                        getThreads (args),
+                        (input, output) -> {
+                            BufferedReader reader = new BufferedReader (new InputStreamReader (input, StandardCharsets.UTF_8), 1 << 16);
+                            BufferedWriter writer = new BufferedWriter (new OutputStreamWriter (output, StandardCharsets.UTF_8), 1 << 16);
+                            String line;
+                            while ((line = reader.readLine ()) != null) {
+                                writer.write (tokenizeLine.apply (line));
+                                writer.newLine ();
+                            }
+                            writer.flush ();
+                        }
+                    );
+                }
+                else {
+                    // The lines are tokenized in parallel and written in the
+                    // original order, without flushing after every line.
+                    BufferedWriter outputWriter = new BufferedWriter (freshStdoutWriter (), 1 << 20);
+                    ParallelLineProcessor.process (
+                        freshStdinReader (),
+                        Optional.empty (),
+                        getThreads (args),
+                        tokenizeLine,
+                        new ParallelLineProcessor.LineConsumer <String> () {
+                            @Override
+                            public void accept (String line, String tokenized) throws IOException {
+                                outputWriter.write (tokenized);
+                                outputWriter.newLine ();
+                            }
+                            
+                            @Override
+                            public void pause () throws IOException {
+                                outputWriter.flush ();
+                            }
+                        }
+                    );
+                    outputWriter.flush ();
+                }
+                System.err.println ("* " + tokenizer);
+            }
         }
     }
     
+    private static SegmentationPrinter textPrinter (
+        Writer writer,
+        BiFunction <ProbabilisticStringSegmentation, String, String> printFunction
+    ) {
+        return (segmentation, degraded, line) -> {
+            if (degraded) {
+                writer.append (DEGRADED_WORD_MARKER);
+            }
+            writer.append (printFunction.apply (segmentation, line));
+            writer.append ('\n');
+            writer.flush ();
+        };
+    }
+    
     private static StringSubstitus trainSubstitus (
         UnaryOperator <Character> charPreprocessor,
         BufferedReader frequencyListReader,
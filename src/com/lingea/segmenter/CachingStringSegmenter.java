@@ -0,0 +1,152 @@
+package com.lingea.segmenter;
+
+import com.github.josefplch.utils.data.list.CharList;
+import com.github.josefplch.utils.data.list.StringList;
+import com.github.josefplch.utils.data.string.StringUtils;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded word cache in front of any string segmenter. Natural text is
+ * Zipfian, so a few thousand frequent words make up most of the tokens; they
+ * are segmentized only once.
+ * 
+ * The cache is split into shards (least recently used entries are evicted
+ * from each one), so that it can be used from several threads concurrently.
+ * The underlying segmenter must be thread-safe in that case, too. The maximum
+ * size is divided exactly among the shards; a cache smaller than the number
+ * of shards has only one shard.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public class CachingStringSegmenter implements StringSegmenter {
+    public static final int DEFAULT_MAX_SIZE = 100_000;
+    private static final int SHARDS = 16;
+    
+    private final StringSegmenter segmenter;
+    private final int maxSize;
+    private final Map <String, StringList> [] shards;
+    private final LongAdder hits = new LongAdder ();
+    private final LongAdder misses = new LongAdder ();
+    
+    public CachingStringSegmenter (StringSegmenter segmenter) {
+        this (segmenter, DEFAULT_MAX_SIZE);
+    }
+    
+    /**
+     * Create a new cache.
+     * 
+     * @param segmenter The segmenter whose results are cached.
+     * @param maxSize   Maximum number of cached words, zero disables caching.
+     */
+    @SuppressWarnings ({"rawtypes", "unchecked"})
+    public CachingStringSegmenter (StringSegmenter segmenter, int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException ("The cache size must not be negative.");
+        }
+        this.segmenter = segmenter;
+        this.maxSize = maxSize;
+        this.shards = new Map [maxSize < SHARDS ? 1 : SHARDS];
+        for (int i = 0; i < shards.length; i++) {
+            // The first (maxSize % shards) shards take one entry more.
+            int shardSize = maxSize / shards.length + (i < maxSize % shards.length ? 1 : 0);
+            // Access order: the least recently used entry is the eldest one.
+            shards [i] =
+                new LinkedHashMap <String, StringList> (16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry (Map.Entry <String, StringList> eldest) {
+                        return (this.size () > shardSize);
+                    }
+                };
+        }
+    }
+    
+    public long getHits () {
+        return hits.sum ();
+    }
+    
+    public long getMisses () {
+        return misses.sum ();
+    }
+    
+    public double getHitRate () {
+        long total = this.getHits () + this.getMisses ();
+        return (total == 0 ? 0.0 : (double) this.getHits () / total);
+    }
+    
+    public int getMaxSize () {
+        return maxSize;
+    }
+    
+    public StringSegmenter getSegmenter () {
+        return segmenter;
+    }
+    
+    @Override
+    public List <List <Character>> segmentize (List <Character> sequence) {
+        return (
+            this.segmentize (StringUtils.charListToString (sequence))
+            .<List <Character>> map (CharList :: fromString)
+        );
+    }
+    
+    @Override
+    public StringList segmentize (String string) {
+        StringList result;
+        if (maxSize == 0) {
+            misses.increment ();
+            result = segmenter.segmentize (string);
+        }
+        else {
+            Map <String, StringList> shard = shards [this.shardIndex (string)];
+            StringList cached;
+            synchronized (shard) {
+                cached = shard.get (string);
+            }
+            if (cached != null) {
+                hits.increment ();
+            }
+            else {
+                misses.increment ();
+                // Segmentize outside the lock, the other threads may go on.
+                cached = segmenter.segmentize (string);
+                synchronized (shard) {
+                    shard.put (string, cached);
+                }
+            }
+            // The cached list must not be modified by the caller.
+            result = new StringList (cached);
+        }
+        return result;
+    }
+    
+    // The number of shards is a power of two.
+    private int shardIndex (String string) {
+        int hash = string.hashCode ();
+        return ((hash ^ (hash >>> 16)) & (shards.length - 1));
+    }
+    
+    public int size () {
+        int result = 0;
+        for (Map <String, StringList> shard : shards) {
+            synchronized (shard) {
+                result += shard.size ();
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public String toString () {
+        return (
+            "Cache: " + this.size () + " words, "
+            + this.getHits () + " hits, "
+            + this.getMisses () + " misses, "
+            + String.format ("hit rate %.2f %%", 100 * this.getHitRate ())
+        );
+    }
+}
@@ -0,0 +1,193 @@
+package com.lingea.segmenter;
+
+import com.github.josefplch.utils.data.list.FunctionalList;
+import com.github.josefplch.utils.data.map.ObjectLongHashMap;
+import com.github.josefplch.utils.data.nlp.Tokenizer;
+import com.github.josefplch.utils.system.CompressedStreams;
+import com.github.josefplch.utils.system.MemoryUtils;
+import com.github.josefplch.utils.system.ParallelTasks;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Segmentation of running text in two passes. The first pass counts the
+ * unique tokens (delimited by separators and control characters, same as
+ * Tokenizer.findTokens); the words are extracted from them (same as
+ * Tokenizer.findWords, accepting connectors) and every unique word is
+ * segmentized exactly once, in parallel. The second pass rewrites the text:
+ * the words are replaced by their segmentations, everything else (the
+ * punctuation around the words, numbers, whitespace) is kept.
+ * 
+ * Natural text is Zipfian, so the number of unique words is a small fraction
+ * of the number of word occurrences.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public class CorpusSegmenter {
+    private static final String LINE_SEPARATOR = System.lineSeparator ();
+    private static final Pattern TOKEN = Pattern.compile ("[^\\p{C}\\p{Z}]+");
+    
+    private final Function <String, String> wordSegmenter;
+    private final int threads;
+    
+    /**
+     * @param wordSegmenter The word segmentation, including its output format
+     *                      (thread-safe).
+     * @param threads       Number of worker threads.
+     */
+    public CorpusSegmenter (Function <String, String> wordSegmenter, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException ("The number of threads must be positive.");
+        }
+        this.wordSegmenter = wordSegmenter;
+        this.threads = threads;
+    }
+    
+    // Count the tokens in all the files.
+    private static ObjectLongHashMap <String> countTokens (List <String> filePaths) throws IOException {
+        ObjectLongHashMap <String> result = new ObjectLongHashMap <> (1 << 16);
+        for (String filePath : filePaths) {
+            try (BufferedReader reader = CompressedStreams.openReader (filePath)) {
+                String line;
+                while ((line = reader.readLine ()) != null) {
+                    Matcher matcher = TOKEN.matcher (line);
+                    while (matcher.find ()) {
+                        result.addTo (matcher.group (), 1L);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+    
+    // The word in the token (without the surrounding punctuation), or null.
+    private static String findWord (String token) {
+        String word = Tokenizer.trimChars (token, false, true, true);
+        return (Tokenizer.isWord (word, true, false, false) ? word : null);
+    }
+    
+    // Apply the function on all the values in parallel, keep the order.
+    private <A, B> FunctionalList <B> parallelMap (FunctionalList <A> values, Function <A, B> function, String progressMessage) throws IOException {
+        Object [] results = new Object [values.size ()];
+        AtomicInteger next = new AtomicInteger (0);
+        Callable <Void> worker = () -> {
+            int index;
+            while ((index = next.getAndIncrement ()) < values.size ()) {
+                if (progressMessage != null && index % 10_000 == 0) {
+                    System.err.println ("* " + progressMessage + " #" + (index / 1_000) + "k: " + values.get (index) + ", memory usage: " + MemoryUtils.memoryUsageMessageMB ());
+                }
+                results [index] = function.apply (values.get (index));
+            }
+            return null;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool (threads);
+        try {
+            ParallelTasks.invokeAll (executor, FunctionalList.replicate (threads, worker), "Corpus segmentation");
+        }
+        finally {
+            executor.shutdownNow ();
+        }
+        FunctionalList <B> result = new FunctionalList <> ();
+        for (Object value : results) {
+            @SuppressWarnings ("unchecked")
+            B typedValue = (B) value;
+            result.add (typedValue);
+        }
+        return result;
+    }
+    
+    /**
+     * Segmentize the text files; the result is written as a single text.
+     * Every file is read twice.
+     * 
+     * @param filePaths Paths to the text files.
+     * @param output    The output.
+     * @throws IOException If a file cannot be read or the output written.
+     */
+    public void segmentize (List <String> filePaths, Writer output) throws IOException {
+        System.err.println ("* Counting the tokens ...");
+        ObjectLongHashMap <String> tokenFrequencies = countTokens (filePaths);
+        FunctionalList <String> tokens = new FunctionalList <> ();
+        tokenFrequencies.forEach ((token, frequency) -> tokens.add (token));
+        FunctionalList <String> tokenWords = this.parallelMap (tokens, CorpusSegmenter :: findWord, null);
+        
+        // Count the words.
+        Set <String> uniqueWords = new LinkedHashSet <> ();
+        long wordOccurrences = 0;
+        for (int i = 0; i < tokens.size (); i++) {
+            if (tokenWords.get (i) != null) {
+                uniqueWords.add (tokenWords.get (i));
+                wordOccurrences += tokenFrequencies.get (tokens.get (i));
+            }
+        }
+        System.err.println (
+            "* Word occurrences: " + wordOccurrences
+            + ", unique words: " + uniqueWords.size ()
+            + String.format (Locale.ROOT, " (%.2f %%)", wordOccurrences == 0 ? 0.0 : 100.0 * uniqueWords.size () / wordOccurrences)
+        );
+        
+        // Segmentize every unique word once.
+        FunctionalList <String> words = FunctionalList.from (uniqueWords);
+        FunctionalList <String> segmentations = this.parallelMap (words, wordSegmenter, "Segmenting word");
+        Map <String, String> wordSegmentations = new HashMap <> (2 * words.size ());
+        for (int i = 0; i < words.size (); i++) {
+            wordSegmentations.put (words.get (i), segmentations.get (i));
+        }
+        
+        // Rewritten tokens: the word is replaced, the punctuation is kept.
+        Map <String, String> rewrittenTokens = new HashMap <> (2 * tokens.size ());
+        for (int i = 0; i < tokens.size (); i++) {
+            String token = tokens.get (i);
+            String word = tokenWords.get (i);
+            if (word != null) {
+                // The prefix consists of non-word characters only, the word
+                // cannot start inside it.
+                int start = token.indexOf (word);
+                rewrittenTokens.put (
+                    token,
+                    token.substring (0, start)
+                    + wordSegmentations.get (word)
+                    + token.substring (start + word.length ())
+                );
+            }
+        }
+        
+        System.err.println ("* Rewriting the text ...");
+        for (String filePath : filePaths) {
+            try (BufferedReader reader = CompressedStreams.openReader (filePath)) {
+                String line;
+                while ((line = reader.readLine ()) != null) {
+                    Matcher matcher = TOKEN.matcher (line);
+                    int end = 0;
+                    while (matcher.find ()) {
+                        String rewritten = rewrittenTokens.get (matcher.group ());
+                        if (rewritten != null) {
+                            output.write (line, end, matcher.start () - end);
+                            output.write (rewritten);
+                            end = matcher.end ();
+                        }
+                    }
+                    output.write (line, end, line.length () - end);
+                    output.write (LINE_SEPARATOR);
+                }
+            }
+        }
+        output.flush ();
+    }
+}
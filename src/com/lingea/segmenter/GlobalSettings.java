@@ -3,7 +3,7 @@ package com.lingea.segmenter;
 /**
  * @author  Josef Plch
  * @since   2018-06-02
- * @version 2020-12-09
+ * @version 2026-10-19
  */
 public abstract class GlobalSettings {
     public static final String COMMENT_MARK = "#";
@@ -12,6 +12,7 @@ public abstract class GlobalSettings {
     public static final String EXTENSION_MCDS = "mcds";
     public static final String EXTENSION_SFWL = "sfwl";
     public static final String EXTENSION_SDS  = "sds";
+    public static final String EXTENSION_TKM  = "tkm";
     public static final String EXTENSION_TNL  = "tnl";
     public static final char HARD_DELIMITER = ' ';
     public static final char HARD_DELIMITER_ALT = '_';
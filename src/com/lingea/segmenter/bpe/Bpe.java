@@ -3,18 +3,35 @@ package com.lingea.segmenter.bpe;
 import com.github.josefplch.utils.data.list.FunctionalList;
 import com.github.josefplch.utils.data.list.PairList;
 import com.github.josefplch.utils.data.map.FrequencyHashMap;
+import com.github.josefplch.utils.data.map.LongLongHashMap;
 import com.github.josefplch.utils.data.tuple.Pair;
 import com.github.josefplch.utils.data.tuple.UniformPair;
+import com.github.josefplch.utils.system.CompressedStreams;
+import com.github.josefplch.utils.system.ParallelTasks;
 import com.lingea.segmenter.Segmenter;
+import com.lingea.segmenter.bpe.BpeCheckpoint.AtomCodec;
 import com.lingea.segmenter.bpe.metric.AssociationMetric;
 import com.lingea.segmenter.data.token.SequenceToken;
 import com.lingea.segmenter.data.token.Token;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 
 /**
@@ -24,17 +41,52 @@ import java.util.stream.Stream;
  * 
  * @author  Josef Plch
  * @since   2018-05-03
- * @version 2020-12-07
+ * @version 2026-10-19
  */
 public class Bpe <A> implements Segmenter <A> {
-    private final Map <UniformPair <Token <A>>, Long> commonFrequencies = new HashMap <> ();
+    // Smaller sets of words are not split into shards.
+    private static final int MIN_SHARD_SIZE = 10_000;
+    
+    // The ties in findBestPair are broken by the order of this map: the hash
+    // order, or the order of appearance (see setTiesByAppearance).
+    private Map <UniformPair <Token <A>>, Long> commonFrequencies = new HashMap <> ();
+    // Number of the words already counted in the token (pair) frequencies;
+    // the counting is deferred, the indexed training does not need it.
+    private int countedWords = 0;
+    private ExecutorService executor = null;
+    private boolean indexedTraining = false;
+    private IndexedBpeTrainer <A> indexedTrainer = null;
+    // The most pairs the common frequencies have held at once: it determines
+    // the capacity of the hash map, and so the order of the pairs.
+    private int maxPairCount = 0;
     private final FunctionalList <UniformPair <Token <A>>> mergedPairs;
     private final AssociationMetric metric;
     private final int minFrequency;
     private int stepLimit = 999999;
+    private int threads = 1;
+    private boolean tiesByAppearance = false;
+    private volatile MergeRanks <A> mergeRanks = null;
     private final Map <Token <A>, Long> tokenFrequencies = new HashMap <> ();
     private final PairList <Word <A>, Long> wordsWithFrequencies = new PairList <> ();
     
+    // Changes of the token (pair) frequencies made by a shard of the words.
+    private static class FrequencyDeltas <A> {
+        // Linked: the new pairs are added to the common frequencies in the
+        // order of appearance, as if the words were processed one by one.
+        private final Map <UniformPair <Token <A>>, Long> pairs;
+        private final Map <Token <A>, Long> tokens;
+        
+        private FrequencyDeltas (Map <UniformPair <Token <A>>, Long> pairs, Map <Token <A>, Long> tokens) {
+            this.pairs = pairs;
+            this.tokens = tokens;
+        }
+    }
+    
+    @FunctionalInterface
+    private static interface WordTask <A> {
+        public void process (Word <A> word, Long frequency, FrequencyDeltas <A> deltas);
+    }
+    
     // Word must be an ArrayList to work efficiently.
     private static class Word <A> extends ArrayList <Token <A>> {
         public static <A> Word <A> uniatomicTokens (List <A> atoms) {
@@ -46,6 +98,49 @@ public class Bpe <A> implements Segmenter <A> {
         }
     }
     
+    // The merges by token IDs. A pair may have been merged more than once (if
+    // one of its tokens has been created again), its ranks are chained.
+    private static class MergeRanks <A> {
+        // Number of the merged pairs at the time of creation.
+        private final int size;
+        private final TokenSymbolTable <A> symbols;
+        // The first rank of the pair (+ 1, 0 if never merged).
+        private final LongLongHashMap firstRanks;
+        // The next rank of the same pair (-1 if none).
+        private final int [] laterRanks;
+        // The pair (packed IDs) merged in the given step.
+        private final long [] pairKeys;
+        // ID of the token created in the given step.
+        private final int [] mergedIds;
+        
+        private MergeRanks (List <UniformPair <Token <A>>> mergedPairs) {
+            size = mergedPairs.size ();
+            symbols = new TokenSymbolTable <> ();
+            firstRanks = new LongLongHashMap (size);
+            laterRanks = new int [size];
+            pairKeys = new long [size];
+            mergedIds = new int [size];
+            int [] lastRanks = new int [size];
+            for (int rank = 0; rank < size; rank++) {
+                int id1 = symbols.id (mergedPairs.get (rank).get1 ());
+                int id2 = symbols.id (mergedPairs.get (rank).get2 ());
+                long key = TokenSymbolTable.pairKey (id1, id2);
+                int first = (int) firstRanks.get (key) - 1;
+                if (first < 0) {
+                    firstRanks.put (key, rank + 1);
+                    lastRanks [rank] = rank;
+                }
+                else {
+                    laterRanks [lastRanks [first]] = rank;
+                    lastRanks [first] = rank;
+                }
+                laterRanks [rank] = -1;
+                pairKeys [rank] = key;
+                mergedIds [rank] = symbols.merge (id1, id2);
+            }
+        }
+    }
+    
     protected Bpe (AssociationMetric metric, int minFrequency, FunctionalList <UniformPair <Token <A>>> mergedPairs) {
         this.mergedPairs = mergedPairs;
         this.metric = metric;
@@ -76,21 +171,29 @@ public class Bpe <A> implements Segmenter <A> {
         );
     }
     
-    private void computeInitialFrequencies (Word <A> word, Long frequency) {
+    // Count the token (pair) frequencies of the words not counted yet.
+    private void countWords () {
+        if (countedWords < wordsWithFrequencies.size ()) {
+            this.processShards (countedWords, this :: computeInitialFrequencies);
+            countedWords = wordsWithFrequencies.size ();
+            maxPairCount = Math.max (maxPairCount, commonFrequencies.size ());
+        }
+    }
+    
+    private void computeInitialFrequencies (Word <A> word, Long frequency, FrequencyDeltas <A> deltas) {
         Token <A> previousToken = null;
         for (Token <A> thisToken : word) {
             // Increment token frequency.
-            tokenFrequencies.merge (thisToken, frequency, Long :: sum);
+            deltas.tokens.merge (thisToken, frequency, Long :: sum);
             
             // Increment token pair frequency.
             if (Objects.nonNull (previousToken)) {
                 UniformPair <Token <A>> tokenPair = new UniformPair <> (previousToken, thisToken);
-                commonFrequencies.merge (tokenPair, frequency, Long :: sum);
+                deltas.pairs.merge (tokenPair, frequency, Long :: sum);
             }
             
             previousToken = thisToken;
         }
-        wordsWithFrequencies.addPair (word, frequency);
     }
     
     public FunctionalList <UniformPair <Token <A>>> getMergedPairs () {
@@ -105,7 +208,15 @@ public class Bpe <A> implements Segmenter <A> {
     }
     
     public Map <Token <A>, Long> getTokenFrequencies () {
-        return tokenFrequencies;
+        Map <Token <A>, Long> result;
+        if (indexedTrainer != null) {
+            result = indexedTrainer.getTokenFrequencies ();
+        }
+        else {
+            this.countWords ();
+            result = tokenFrequencies;
+        }
+        return result;
     }
     
     private UniformPair <Token <A>> findBestPair () {
@@ -128,15 +239,33 @@ public class Bpe <A> implements Segmenter <A> {
     }
     
     public void loadTrainData (Stream <Pair <List <A>, Long>> trainData) {
+        if (indexedTrainer != null) {
+            throw new IllegalStateException ("The train data cannot be added during the indexed training.");
+        }
         trainData.forEach (entry -> {
-            this.computeInitialFrequencies (
-                Word.uniatomicTokens (entry.get1 ()),
-                entry.get2 ()
-            );
+            wordsWithFrequencies.addPair (Word.uniatomicTokens (entry.get1 ()), entry.get2 ());
         });
     }
     
     public void makeStep () {
+        if (indexedTraining) {
+            if (indexedTrainer == null) {
+                indexedTrainer = new IndexedBpeTrainer <> (metric, minFrequency, wordsWithFrequencies, commonFrequencies.keySet ());
+                // The trainer keeps its own (integer) copy of everything.
+                wordsWithFrequencies.clear ();
+                commonFrequencies.clear ();
+                tokenFrequencies.clear ();
+                countedWords = 0;
+            }
+            mergedPairs.add (indexedTrainer.makeStep ());
+        }
+        else {
+            makeScanningStep ();
+        }
+    }
+    
+    private void makeScanningStep () {
+        this.countWords ();
         UniformPair <Token <A>> bestPair = findBestPair ();
         mergedPairs.add (bestPair);
         
@@ -144,10 +273,7 @@ public class Bpe <A> implements Segmenter <A> {
         Token <A> bestToken2 = bestPair.get2 ();
         Token <A> mergedToken = SequenceToken.merge (bestToken1, bestToken2);
         
-        for (Pair <Word <A>, Long> wordWithFrequency : wordsWithFrequencies) {
-            Word <A> word = wordWithFrequency.get1 ();
-            Long wordFrequency = wordWithFrequency.get2 ();
-            
+        this.processShards (0, (word, wordFrequency, deltas) -> {
             // Iterate the elements in descending order, starting at the
             // penultimate element (to enable creating a pair).
             int i = word.size () - 2;
@@ -158,33 +284,51 @@ public class Bpe <A> implements Segmenter <A> {
                     word.add (i, mergedToken);
                     
                     // Update token frequencies.
-                    tokenFrequencies.merge (bestToken1,  - wordFrequency, Long :: sum);
-                    tokenFrequencies.merge (bestToken2,  - wordFrequency, Long :: sum);
-                    tokenFrequencies.merge (mergedToken, + wordFrequency, Long :: sum);
-
+                    deltas.tokens.merge (bestToken1,  - wordFrequency, Long :: sum);
+                    deltas.tokens.merge (bestToken2,  - wordFrequency, Long :: sum);
+                    deltas.tokens.merge (mergedToken, + wordFrequency, Long :: sum);
+                    
                     // Update token pair frequencies.
                     if (i > 0) {
                         Token <A> leftToken = word.get (i - 1);
                         UniformPair <Token <A>> oldLeftPair = new UniformPair <> (leftToken, bestToken1);
                         UniformPair <Token <A>> newLeftPair = new UniformPair <> (leftToken, mergedToken);
-                        commonFrequencies.merge (oldLeftPair, - wordFrequency, Long :: sum);
-                        commonFrequencies.merge (newLeftPair, + wordFrequency, Long :: sum);
+                        deltas.pairs.merge (oldLeftPair, - wordFrequency, Long :: sum);
+                        deltas.pairs.merge (newLeftPair, + wordFrequency, Long :: sum);
                     }
                     if (i < word.size () - 1) {
                         Token <A> rightToken = word.get (i + 1);
                         UniformPair <Token <A>> oldRightPair = new UniformPair <> (bestToken2, rightToken);
                         UniformPair <Token <A>> newRightPair = new UniformPair <> (mergedToken, rightToken);
-                        commonFrequencies.merge (oldRightPair, - wordFrequency, Long :: sum);
-                        commonFrequencies.merge (newRightPair, + wordFrequency, Long :: sum);
+                        deltas.pairs.merge (oldRightPair, - wordFrequency, Long :: sum);
+                        deltas.pairs.merge (newRightPair, + wordFrequency, Long :: sum);
                     }
                 }
                 i--;
             }
-        }
+        });
+        maxPairCount = Math.max (maxPairCount, commonFrequencies.size ());
         commonFrequencies.remove (bestPair);
     }
     
     public int makeSteps (int n) {
+        try {
+            return this.makeSteps (n, 0, null, null);
+        }
+        catch (IOException exception) {
+            // Cannot happen, there are no checkpoints.
+            throw new UncheckedIOException (exception);
+        }
+    }
+    
+    // Make the steps, saving a checkpoint every given number of steps and at
+    // the end (see saveCheckpoint). The models which support checkpoints
+    // expose it with their codec (see StringBpe).
+    int makeSteps (int n, int checkpointInterval, String checkpointPath, AtomCodec <A> codec) throws IOException {
+        // Fail before the training, not at the first checkpoint.
+        if (checkpointInterval > 0 && (metric == null || codec == null)) {
+            throw new IllegalStateException ("Only a model being trained can be checkpointed, with the atom codec.");
+        }
         int dotSize = 100;
         int lineSize = 80;
         System.out.println ("Computing (each dot = " + dotSize + " steps):");
@@ -202,42 +346,379 @@ public class Bpe <A> implements Segmenter <A> {
             catch (NoSuchElementException exception) {
                 break;
             }
+            if (checkpointInterval > 0 && step % checkpointInterval == 0 && step < n) {
+                this.saveCheckpoint (checkpointPath, codec);
+            }
         }
         System.out.println ();
+        if (checkpointInterval > 0) {
+            this.saveCheckpoint (checkpointPath, codec);
+        }
         return (step - 1);
     }
     
-    private static <A> void mergeTokenPair (UniformPair <Token <A>> pairToMerge, List <Token <A>> list) {
-        Token <A> token1 = pairToMerge.get1 ();
-        Token <A> token2 = pairToMerge.get2 ();
-        Token <A> mergedToken = SequenceToken.merge (token1, token2);
-        // System.out.println ("Merging " + token1 + " + " + token2);
-        
-        // Iterate the elements in descending order, starting at the
-        // penultimate element (to enable creating a pair).
-        int i = list.size () - 2;
-        while (i >= 0) {
-            if (list.get (i).equals (token1) && list.get (i + 1).equals (token2)) {
-                list.remove (i);
-                list.remove (i);
-                list.add (i, mergedToken);
+    /**
+     * Run the task on the words from the given index. With more threads, the
+     * words are split into consecutive shards, each of them is processed by
+     * a worker thread into its own frequency deltas, and the deltas are added
+     * in the order of the shards: the frequencies, as well as the order in
+     * which the new pairs are added (which breaks the ties), are the same as
+     * if the words were processed one by one.
+     */
+    private void processShards (int from, WordTask <A> task) {
+        int to = wordsWithFrequencies.size ();
+        int shards = Math.max (1, Math.min (threads, (to - from) / MIN_SHARD_SIZE));
+        if (shards == 1) {
+            FrequencyDeltas <A> deltas = new FrequencyDeltas <> (commonFrequencies, tokenFrequencies);
+            for (int w = from; w < to; w++) {
+                task.process (wordsWithFrequencies.get (w).get1 (), wordsWithFrequencies.get (w).get2 (), deltas);
+            }
+        }
+        else {
+            if (executor == null) {
+                executor = Executors.newFixedThreadPool (threads, runnable -> {
+                    Thread thread = new Thread (runnable, "bpe-shard");
+                    thread.setDaemon (true);
+                    return thread;
+                });
+            }
+            FunctionalList <Callable <FrequencyDeltas <A>>> shardTasks = new FunctionalList <> ();
+            for (int s = 0; s < shards; s++) {
+                int shardFrom = from + (int) ((long) (to - from) * s / shards);
+                int shardTo = from + (int) ((long) (to - from) * (s + 1) / shards);
+                shardTasks.add (() -> {
+                    FrequencyDeltas <A> deltas = new FrequencyDeltas <> (new LinkedHashMap <> (), new HashMap <> ());
+                    for (int w = shardFrom; w < shardTo; w++) {
+                        task.process (wordsWithFrequencies.get (w).get1 (), wordsWithFrequencies.get (w).get2 (), deltas);
+                    }
+                    return deltas;
+                });
+            }
+            for (FrequencyDeltas <A> deltas : ParallelTasks.invokeAllUnchecked (executor, shardTasks, "BPE training")) {
+                deltas.pairs.forEach ((pair, delta) -> commonFrequencies.merge (pair, delta, Long :: sum));
+                deltas.tokens.forEach ((token, delta) -> tokenFrequencies.merge (token, delta, Long :: sum));
             }
-            i--;
         }
     }
     
+    private MergeRanks <A> getMergeRanks () {
+        MergeRanks <A> current = mergeRanks;
+        // The model may still be trained.
+        if (current == null || current.size != mergedPairs.size ()) {
+            current = new MergeRanks <> (mergedPairs);
+            mergeRanks = current;
+        }
+        return current;
+    }
+    
+    // The first rank of the pair greater or equal to the given one (and below
+    // the step limit), or -1. Unknown atoms (ID -1) are never merged.
+    private int nextRank (MergeRanks <A> mergeRanks, int token1, int token2, int minRank) {
+        int result = -1;
+        if (token1 >= 0 && token2 >= 0) {
+            result = (int) mergeRanks.firstRanks.get (TokenSymbolTable.pairKey (token1, token2)) - 1;
+            while (result >= 0 && result < minRank) {
+                result = mergeRanks.laterRanks [result];
+            }
+            if (result >= stepLimit) {
+                result = -1;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Apply the merges in the order of training, the same way as if they
+     * were applied one by one (every merge on all the occurrences of the pair,
+     * from right to left). Only the pairs present in the word are considered:
+     * a heap of the adjacent pairs, by rank, gives the next merge. The tokens
+     * are compared by their IDs.
+     */
     @Override
     public List <List <A>> segmentize (List <A> atoms) {
-        FunctionalList <Token <A>> sequence = new FunctionalList <> ();
-        for (A atom : atoms) {
-            sequence.add (SequenceToken.fromAtoms (atom));
+        MergeRanks <A> mergeRanks = this.getMergeRanks ();
+        int length = atoms.size ();
+        int [] tokens = new int [length];
+        for (int i = 0; i < length; i++) {
+            tokens [i] = mergeRanks.symbols.findAtomId (atoms.get (i));
         }
-        for (UniformPair <Token <A>> pairToMerge : mergedPairs.take (stepLimit)) {
-            mergeTokenPair (pairToMerge, sequence);
+        // The tokens are linked, the right token of a merged pair is removed.
+        boolean [] removed = new boolean [length];
+        int [] next = new int [length];
+        int [] previous = new int [length];
+        // Rank (upper half) and position of the left token (lower half).
+        PriorityQueue <Long> heap = new PriorityQueue <> ();
+        for (int i = 0; i < length; i++) {
+            next [i] = i + 1;
+            previous [i] = i - 1;
+            if (i + 1 < length) {
+                int rank = this.nextRank (mergeRanks, tokens [i], tokens [i + 1], 0);
+                if (rank >= 0) {
+                    heap.add (((long) rank << 32) | i);
+                }
+            }
+        }
+        
+        int [] positions = new int [length];
+        while (! heap.isEmpty ()) {
+            int rank = (int) (heap.peek () >>> 32);
+            int size = 0;
+            while (! heap.isEmpty () && (int) (heap.peek () >>> 32) == rank) {
+                if (size == positions.length) {
+                    positions = Arrays.copyOf (positions, 2 * size);
+                }
+                positions [size++] = (int) (heap.poll () & 0xFFFFFFFFL);
+            }
+            long pairKey = mergeRanks.pairKeys [rank];
+            int mergedToken = mergeRanks.mergedIds [rank];
+            
+            // From right to left; some of the positions may be outdated.
+            Arrays.sort (positions, 0, size);
+            for (int k = size - 1; k >= 0; k--) {
+                int left = positions [k];
+                int right = removed [left] ? length : next [left];
+                if (right < length && TokenSymbolTable.pairKey (tokens [left], tokens [right]) == pairKey) {
+                    tokens [left] = mergedToken;
+                    removed [right] = true;
+                    next [left] = next [right];
+                    if (next [left] < length) {
+                        previous [next [left]] = left;
+                        int rightRank = this.nextRank (mergeRanks, mergedToken, tokens [next [left]], rank + 1);
+                        if (rightRank >= 0) {
+                            heap.add (((long) rightRank << 32) | left);
+                        }
+                    }
+                    if (previous [left] >= 0) {
+                        int leftRank = this.nextRank (mergeRanks, tokens [previous [left]], mergedToken, rank + 1);
+                        if (leftRank >= 0) {
+                            heap.add (((long) leftRank << 32) | previous [left]);
+                        }
+                    }
+                }
+            }
+        }
+        
+        List <List <A>> result = new ArrayList <> ();
+        for (int i = 0; i < length; i = next [i]) {
+            if (tokens [i] < 0) {
+                result.add (SequenceToken.fromAtoms (atoms.get (i)).getAtoms ());
+            }
+            else {
+                result.add (SequenceToken.fromAtoms (mergeRanks.symbols.token (tokens [i]).getAtoms ()).getAtoms ());
+            }
+        }
+        return result;
+    }
+    
+    // Capacity of a hash map which has held the given number of entries at
+    // most (the default one, grown on demand).
+    private static int hashCapacity (int maxSize) {
+        int result = 16;
+        while (maxSize > result / 4 * 3) {
+            result *= 2;
+        }
+        return result;
+    }
+    
+    /**
+     * Restore the training from the checkpoint. The model must be empty (it
+     * must be created with the metric and minimal frequency of the
+     * checkpoint). The ties are broken as in the checkpointed training: a
+     * hash map of the same capacity is filled with the pairs in the same
+     * order, so it iterates them in the same order.
+     * 
+     * @param checkpoint The checkpoint.
+     */
+    void restoreCheckpoint (BpeCheckpoint <A> checkpoint) {
+        if (! mergedPairs.isEmpty () || ! wordsWithFrequencies.isEmpty () || indexedTrainer != null) {
+            throw new IllegalStateException ("A checkpoint can be restored only into an empty model.");
+        }
+        List <Token <A>> tokens = checkpoint.tokens;
+        for (int m = 0; m < checkpoint.mergedPairs.length; m += 2) {
+            mergedPairs.add (new UniformPair <> (tokens.get (checkpoint.mergedPairs [m]), tokens.get (checkpoint.mergedPairs [m + 1])));
+        }
+        for (int t = 0; t < tokens.size (); t++) {
+            tokenFrequencies.put (tokens.get (t), checkpoint.tokenFrequencies [t]);
+        }
+        tiesByAppearance = checkpoint.tiesByAppearance;
+        maxPairCount = Math.max (checkpoint.maxPairCount, checkpoint.pairs.length);
+        commonFrequencies = (tiesByAppearance ? new LinkedHashMap <> () : new HashMap <> (hashCapacity (maxPairCount)));
+        for (int p = 0; p < checkpoint.pairs.length; p++) {
+            UniformPair <Token <A>> pair =
+                new UniformPair <> (
+                    tokens.get (TokenSymbolTable.first (checkpoint.pairs [p])),
+                    tokens.get (TokenSymbolTable.second (checkpoint.pairs [p]))
+                );
+            commonFrequencies.put (pair, checkpoint.pairFrequencies [p]);
+        }
+        for (int w = 0; w < checkpoint.words.length; w++) {
+            Word <A> word = new Word <> ();
+            for (int token : checkpoint.words [w]) {
+                word.add (tokens.get (token));
+            }
+            wordsWithFrequencies.addPair (word, checkpoint.wordFrequencies [w]);
+        }
+        countedWords = wordsWithFrequencies.size ();
+    }
+    
+    /**
+     * Read the checkpoint (see saveCheckpoint).
+     * 
+     * @param <A>      Type of the atoms.
+     * @param filePath Path to the checkpoint.
+     * @param codec    Reader of the atoms.
+     * @return         The checkpoint.
+     * @throws IOException If the file cannot be read or is not a checkpoint.
+     */
+    static <A> BpeCheckpoint <A> readCheckpoint (String filePath, AtomCodec <A> codec) throws IOException {
+        try (InputStream input = CompressedStreams.openInput (filePath)) {
+            return BpeCheckpoint.read (input, codec);
+        }
+    }
+    
+    /**
+     * Save the state of the training: the words (as the current tokens), the
+     * token and pair frequencies, the merged pairs, the metric and the
+     * minimal frequency. The training can be resumed from it with the same
+     * result as if it had not been interrupted (in either training mode if
+     * the ties are broken by appearance, see setTiesByAppearance), and
+     * continued beyond the original number of steps. The file is replaced
+     * only when the new checkpoint is complete, an incomplete one is
+     * deleted. If the path ends with ".gz", it is compressed.
+     * 
+     * @param filePath Path to the checkpoint file.
+     * @param codec    Writer of the atoms.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    void saveCheckpoint (String filePath, AtomCodec <A> codec) throws IOException {
+        Objects.requireNonNull (codec, "The atom codec is required to save a checkpoint.");
+        if (metric == null) {
+            throw new IllegalStateException ("Only a model being trained can be checkpointed.");
+        }
+        BpeCheckpoint <A> checkpoint;
+        if (indexedTrainer != null) {
+            checkpoint = indexedTrainer.createCheckpoint (mergedPairs);
+        }
+        else {
+            this.countWords ();
+            TokenSymbolTable <A> symbols = new TokenSymbolTable <> ();
+            int [] merged = new int [2 * mergedPairs.size ()];
+            for (int m = 0; m < mergedPairs.size (); m++) {
+                merged [2 * m] = symbols.id (mergedPairs.get (m).get1 ());
+                merged [2 * m + 1] = symbols.id (mergedPairs.get (m).get2 ());
+            }
+            int [][] words = new int [wordsWithFrequencies.size ()][];
+            long [] wordFrequencies = new long [words.length];
+            for (int w = 0; w < words.length; w++) {
+                Word <A> word = wordsWithFrequencies.get (w).get1 ();
+                words [w] = new int [word.size ()];
+                for (int i = 0; i < word.size (); i++) {
+                    words [w][i] = symbols.id (word.get (i));
+                }
+                wordFrequencies [w] = wordsWithFrequencies.get (w).get2 ();
+            }
+            long [] pairs = new long [commonFrequencies.size ()];
+            long [] pairFrequencies = new long [pairs.length];
+            int p = 0;
+            for (Map.Entry <UniformPair <Token <A>>, Long> entry : commonFrequencies.entrySet ()) {
+                pairs [p] = TokenSymbolTable.pairKey (symbols.id (entry.getKey ().get1 ()), symbols.id (entry.getKey ().get2 ()));
+                pairFrequencies [p] = entry.getValue ();
+                p++;
+            }
+            for (Token <A> token : tokenFrequencies.keySet ()) {
+                symbols.id (token);
+            }
+            List <Token <A>> tokens = new ArrayList <> (symbols.size ());
+            long [] frequencies = new long [symbols.size ()];
+            for (int t = 0; t < symbols.size (); t++) {
+                tokens.add (symbols.token (t));
+                frequencies [t] = tokenFrequencies.getOrDefault (symbols.token (t), 0L);
+            }
+            checkpoint =
+                new BpeCheckpoint <> (
+                    metric,
+                    minFrequency,
+                    tiesByAppearance,
+                    tokens,
+                    frequencies,
+                    merged,
+                    maxPairCount,
+                    pairs,
+                    pairFrequencies,
+                    words,
+                    wordFrequencies
+                );
+        }
+        
+        String temporaryPath = filePath + ".part" + (filePath.endsWith (CompressedStreams.GZIP_EXTENSION) ? CompressedStreams.GZIP_EXTENSION : "");
+        try {
+            try (OutputStream output = CompressedStreams.openOutput (temporaryPath)) {
+                checkpoint.write (output, codec);
+            }
+            Files.move (Paths.get (temporaryPath), Paths.get (filePath), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException | RuntimeException exception) {
+            Files.deleteIfExists (Paths.get (temporaryPath));
+            throw exception;
+        }
+        System.err.println ("* Checkpoint saved after " + mergedPairs.size () + " steps: " + filePath);
+    }
+    
+    /**
+     * Use the indexed training (see IndexedBpeTrainer): much faster. It
+     * always breaks the ties by appearance: the result is the same as of the
+     * scanning training with setTiesByAppearance (true), with the default
+     * (hash) order the ties may be broken differently. It can be chosen until
+     * the indexed training starts (also after some steps, e.g. when resuming
+     * from a checkpoint).
+     * 
+     * @param indexedTraining Whether to use the indexed training.
+     */
+    public void setIndexedTraining (boolean indexedTraining) {
+        if (indexedTrainer != null) {
+            throw new IllegalStateException ("The training mode cannot be changed once the indexed training has started.");
+        }
+        this.indexedTraining = indexedTraining;
+    }
+    
+    /**
+     * Use more threads in the (scanning) training: the words are split into
+     * shards, counted and merged in parallel. The result does not depend on
+     * the number of threads. The indexed training is not affected, it visits
+     * only the words containing the merged pair.
+     * 
+     * @param threads Number of worker threads.
+     */
+    public void setThreads (int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException ("The number of threads must be positive.");
+        }
+        if (executor != null) {
+            executor.shutdown ();
+            executor = null;
+        }
+        this.threads = threads;
+    }
+    
+    /**
+     * Break the ties of the best pair by the order of appearance of the pairs
+     * (the first one wins), instead of the order of a hash map. Both are
+     * deterministic, but they give different merges whenever the best pairs
+     * tie; the hash order is the default, as in the earlier versions. The
+     * indexed training always uses the order of appearance. It must be set
+     * before the training starts.
+     * 
+     * @param tiesByAppearance Whether to break the ties by appearance.
+     */
+    public void setTiesByAppearance (boolean tiesByAppearance) {
+        if (countedWords > 0 || ! mergedPairs.isEmpty () || indexedTrainer != null) {
+            throw new IllegalStateException ("The order of the ties cannot be changed once the training has started.");
         }
-        return (new ArrayList <> (sequence.map (Token :: getAtoms)));
+        this.tiesByAppearance = tiesByAppearance;
+        commonFrequencies = (tiesByAppearance ? new LinkedHashMap <> () : new HashMap <> ());
     }
     
+    // Use only the merges of the first n steps (ranks).
     public void setStepLimit (int stepLimit) {
         this.stepLimit = stepLimit;
     }
@@ -0,0 +1,265 @@
+package com.lingea.segmenter.bpe;
+
+import com.lingea.segmenter.bpe.metric.AssociationMetric;
+import com.lingea.segmenter.data.token.SequenceToken;
+import com.lingea.segmenter.data.token.Token;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Snapshot of the BPE training: everything needed to continue it with the
+ * same result as if it had not been interrupted. The tokens are stored only
+ * once, everything else refers to them by index.
+ * 
+ * Format (all the numbers are non-negative, written as variable-length
+ * numbers: 7 bits per byte, the lowest first, the highest bit set in all the
+ * bytes but the last one):
+ * header:   magic bytes "BPEC", 0, version
+ * settings: class of the association metric (string in modified UTF-8, the
+ *           metric must have a constructor without arguments), minimal
+ *           frequency, the order of the ties (1 = by appearance, 0 = hash
+ *           order, see Bpe.setTiesByAppearance)
+ * tokens:   number of tokens, then for every token: number of atoms, atoms,
+ *           frequency
+ * merges:   number of merged pairs, token indices (2 per pair)
+ * pairs:    the most pairs held at once (it determines the hash order),
+ *           number of pairs, then in the order which breaks the ties: token
+ *           indices (2), frequency
+ * words:    number of words, then for every word: frequency, number of
+ *           tokens, token indices
+ * 
+ * @param <A> Type of the basic, atomic element (typically: byte or character).
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+class BpeCheckpoint <A> {
+    private static final byte [] MAGIC = {'B', 'P', 'E', 'C', 0, 2};
+    
+    final AssociationMetric metric;
+    final int minFrequency;
+    final boolean tiesByAppearance;
+    final List <Token <A>> tokens;
+    final long [] tokenFrequencies;
+    // Token indices of the merged pairs, two per step.
+    final int [] mergedPairs;
+    final int maxPairCount;
+    // Packed token indices (see TokenSymbolTable.pairKey).
+    final long [] pairs;
+    final long [] pairFrequencies;
+    final int [][] words;
+    final long [] wordFrequencies;
+    
+    // Writing and reading of the atoms.
+    static interface AtomCodec <A> {
+        public A read (DataInput input) throws IOException;
+        
+        public void write (DataOutput output, A atom) throws IOException;
+    }
+    
+    BpeCheckpoint (
+        AssociationMetric metric,
+        int minFrequency,
+        boolean tiesByAppearance,
+        List <Token <A>> tokens,
+        long [] tokenFrequencies,
+        int [] mergedPairs,
+        int maxPairCount,
+        long [] pairs,
+        long [] pairFrequencies,
+        int [][] words,
+        long [] wordFrequencies
+    ) {
+        this.metric = metric;
+        this.minFrequency = minFrequency;
+        this.tiesByAppearance = tiesByAppearance;
+        this.tokens = tokens;
+        this.tokenFrequencies = tokenFrequencies;
+        this.mergedPairs = mergedPairs;
+        this.maxPairCount = maxPairCount;
+        this.pairs = pairs;
+        this.pairFrequencies = pairFrequencies;
+        this.words = words;
+        this.wordFrequencies = wordFrequencies;
+    }
+    
+    /**
+     * Read the checkpoint.
+     * 
+     * @param <A>   Type of the atoms.
+     * @param input The input stream (it is not closed).
+     * @param codec Reader of the atoms.
+     * @return      The checkpoint.
+     * @throws IOException If the input cannot be read or is not a checkpoint.
+     */
+    static <A> BpeCheckpoint <A> read (InputStream input, AtomCodec <A> codec) throws IOException {
+        DataInputStream data = new DataInputStream (input);
+        byte [] header = new byte [MAGIC.length];
+        data.readFully (header);
+        if (! Arrays.equals (header, MAGIC)) {
+            throw new IOException ("Not a BPE checkpoint (or unsupported version).");
+        }
+        
+        String metricClass = data.readUTF ();
+        AssociationMetric metric;
+        try {
+            metric = Class.forName (metricClass).asSubclass (AssociationMetric.class).getDeclaredConstructor ().newInstance ();
+        }
+        catch (ReflectiveOperationException | ClassCastException exception) {
+            throw new IOException ("Unsupported association metric: " + metricClass, exception);
+        }
+        int minFrequency = readCount (data);
+        boolean tiesByAppearance = (readNumber (data) != 0);
+        
+        int tokenCount = readCount (data);
+        List <Token <A>> tokens = new ArrayList <> (tokenCount);
+        long [] tokenFrequencies = new long [tokenCount];
+        for (int t = 0; t < tokenCount; t++) {
+            int length = readCount (data);
+            List <A> atoms = new ArrayList <> (length);
+            for (int i = 0; i < length; i++) {
+                atoms.add (codec.read (data));
+            }
+            tokens.add (SequenceToken.fromAtoms (atoms));
+            tokenFrequencies [t] = readNumber (data);
+        }
+        
+        int [] mergedPairs = new int [2 * readCount (data)];
+        for (int i = 0; i < mergedPairs.length; i++) {
+            mergedPairs [i] = readIndex (data, tokenCount);
+        }
+        
+        int maxPairCount = readCount (data);
+        long [] pairs = new long [readCount (data)];
+        long [] pairFrequencies = new long [pairs.length];
+        for (int p = 0; p < pairs.length; p++) {
+            pairs [p] = TokenSymbolTable.pairKey (readIndex (data, tokenCount), readIndex (data, tokenCount));
+            pairFrequencies [p] = readNumber (data);
+        }
+        
+        int [][] words = new int [readCount (data)][];
+        long [] wordFrequencies = new long [words.length];
+        for (int w = 0; w < words.length; w++) {
+            wordFrequencies [w] = readNumber (data);
+            words [w] = new int [readCount (data)];
+            for (int i = 0; i < words [w].length; i++) {
+                words [w][i] = readIndex (data, tokenCount);
+            }
+        }
+        return (
+            new BpeCheckpoint <> (
+                metric,
+                minFrequency,
+                tiesByAppearance,
+                tokens,
+                tokenFrequencies,
+                mergedPairs,
+                maxPairCount,
+                pairs,
+                pairFrequencies,
+                words,
+                wordFrequencies
+            )
+        );
+    }
+    
+    private static int readCount (DataInput input) throws IOException {
+        long result = readNumber (input);
+        if (result > Integer.MAX_VALUE) {
+            throw new IOException ("Corrupted BPE checkpoint: count " + result + " out of range.");
+        }
+        return (int) result;
+    }
+    
+    private static int readIndex (DataInput input, int tokenCount) throws IOException {
+        int result = readCount (input);
+        if (result >= tokenCount) {
+            throw new IOException ("Corrupted BPE checkpoint: token index " + result + " out of range.");
+        }
+        return result;
+    }
+    
+    private static long readNumber (DataInput input) throws IOException {
+        long result = 0;
+        int shift = 0;
+        int value;
+        do {
+            if (shift > 63) {
+                throw new IOException ("Corrupted BPE checkpoint: too long number.");
+            }
+            value = input.readUnsignedByte ();
+            result |= (long) (value & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((value & 0x80) != 0);
+        return result;
+    }
+    
+    /**
+     * Write the checkpoint.
+     * 
+     * @param output The output stream (it is not closed).
+     * @param codec  Writer of the atoms.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    void write (OutputStream output, AtomCodec <A> codec) throws IOException {
+        DataOutputStream data = new DataOutputStream (output);
+        data.write (MAGIC);
+        data.writeUTF (metric.getClass ().getName ());
+        writeNumber (data, minFrequency);
+        writeNumber (data, tiesByAppearance ? 1 : 0);
+        
+        writeNumber (data, tokens.size ());
+        for (int t = 0; t < tokens.size (); t++) {
+            List <A> atoms = tokens.get (t).getAtoms ();
+            writeNumber (data, atoms.size ());
+            for (A atom : atoms) {
+                codec.write (data, atom);
+            }
+            writeNumber (data, tokenFrequencies [t]);
+        }
+        
+        writeNumber (data, mergedPairs.length / 2);
+        for (int index : mergedPairs) {
+            writeNumber (data, index);
+        }
+        
+        writeNumber (data, maxPairCount);
+        writeNumber (data, pairs.length);
+        for (int p = 0; p < pairs.length; p++) {
+            writeNumber (data, TokenSymbolTable.first (pairs [p]));
+            writeNumber (data, TokenSymbolTable.second (pairs [p]));
+            writeNumber (data, pairFrequencies [p]);
+        }
+        
+        writeNumber (data, words.length);
+        for (int w = 0; w < words.length; w++) {
+            writeNumber (data, wordFrequencies [w]);
+            writeNumber (data, words [w].length);
+            for (int index : words [w]) {
+                writeNumber (data, index);
+            }
+        }
+        data.flush ();
+    }
+    
+    private static void writeNumber (DataOutput output, long number) throws IOException {
+        if (number < 0) {
+            throw new IllegalArgumentException ("Negative number in a BPE checkpoint: " + number);
+        }
+        while (number >= 0x80) {
+            output.writeByte ((int) (number & 0x7F) | 0x80);
+            number >>>= 7;
+        }
+        output.writeByte ((int) number);
+    }
+}
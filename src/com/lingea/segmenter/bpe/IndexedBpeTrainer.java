@@ -0,0 +1,438 @@
+package com.lingea.segmenter.bpe;
+
+import com.github.josefplch.utils.data.map.LongLongHashMap;
+import com.github.josefplch.utils.data.tree.IndexedPriorityQueue;
+import com.github.josefplch.utils.data.tuple.Pair;
+import com.github.josefplch.utils.data.tuple.UniformPair;
+import com.lingea.segmenter.bpe.metric.AssociationMetric;
+import com.lingea.segmenter.bpe.metric.CommonFrequency;
+import com.lingea.segmenter.data.token.Token;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+/**
+ * Fast BPE training, producing the same merges as Bpe.makeStep. Instead of
+ * scanning all the pairs and all the words in every step, the trainer keeps:
+ * - an inverted index from every token pair to the words containing it (the
+ *   index may contain words which do not contain the pair any more, they are
+ *   skipped),
+ * - an indexed priority queue of the pairs which can be merged, by score,
+ * - for every token, the pairs it participates in: the score of a pair may
+ *   depend on the token frequencies (e.g. LogDice), so when the frequency of
+ *   a token changes, its pairs are rescored (and only those).
+ * The words are stored as arrays with tombstones: the right token of a merged
+ * pair is removed by setting it to -1 and linking over it.
+ * 
+ * The tokens are represented by their IDs in a symbol table: the words are
+ * arrays of IDs and the pairs are packed into longs. Every pair has a slot in
+ * the primitive arrays (frequency, score, words ...); the slots of the merged
+ * pairs are reused.
+ * 
+ * The ties are broken the same way as by Bpe with the ties by appearance
+ * (Bpe.setTiesByAppearance): the pair which was the first to appear in the
+ * common frequencies wins.
+ * 
+ * @param <A> Type of the basic, atomic element (typically: byte or character).
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+class IndexedBpeTrainer <A> {
+    private static final int [] NO_WORDS = new int [0];
+    
+    private final AssociationMetric metric;
+    private final int minFrequency;
+    // Whether the score depends on the token frequencies.
+    private final boolean tokenScore;
+    private final TokenSymbolTable <A> symbols = new TokenSymbolTable <> ();
+    private long [] tokenFrequencies = new long [256];
+    // Slots of the pairs in which every token participates.
+    private int [][] tokenPairs = new int [256][];
+    private int [] tokenPairCounts = new int [256];
+    
+    // Token IDs of every word (-1 = removed) and the index of the next token.
+    private final int [][] words;
+    private final int [][] nextTokens;
+    private final long [] wordFrequencies;
+    
+    // Pair (packed token IDs) -> slot.
+    private final LongLongHashMap pairSlots = new LongLongHashMap ();
+    private long [] pairKeys = new long [1024];
+    private long [] pairFrequencies = new long [1024];
+    // The order of the pair in the common frequencies.
+    private long [] sequenceNumbers = new long [1024];
+    private double [] scores = new double [1024];
+    // The words which (may) contain the pair.
+    private int [][] pairWords = new int [1024][];
+    private int [] pairWordCounts = new int [1024];
+    private int slotCount = 0;
+    private int [] freeSlots = new int [16];
+    private int freeSlotCount = 0;
+    private long nextSequenceNumber = 0;
+    
+    // Higher score first, then the older pair.
+    private final IndexedPriorityQueue queue =
+        new IndexedPriorityQueue ((slot1, slot2) -> {
+            int result = Double.compare (scores [slot2], scores [slot1]);
+            if (result == 0) {
+                result = Long.compare (sequenceNumbers [slot1], sequenceNumbers [slot2]);
+            }
+            return result;
+        });
+    // Pairs changed in the current step, they are rescored at its end.
+    private final BitSet changedSlots = new BitSet ();
+    
+    /**
+     * Count the tokens and pairs of the words.
+     * 
+     * @param metric             The association metric.
+     * @param minFrequency       Minimal frequency of a pair to be merged.
+     * @param wordsWithFrequency Tokens of the words, with frequencies.
+     * @param pairOrder          The pairs counted so far (e.g. in a restored
+     *                           checkpoint), in the order of appearance;
+     *                           they keep it, even if they do not occur in
+     *                           the words any more.
+     */
+    IndexedBpeTrainer (
+        AssociationMetric metric,
+        int minFrequency,
+        List <? extends Pair <? extends List <Token <A>>, Long>> wordsWithFrequency,
+        Collection <UniformPair <Token <A>>> pairOrder
+    ) {
+        this.metric = metric;
+        this.minFrequency = minFrequency;
+        this.tokenScore = ! new CommonFrequency ().equals (metric);
+        this.words = new int [wordsWithFrequency.size ()][];
+        this.nextTokens = new int [words.length][];
+        this.wordFrequencies = new long [words.length];
+        for (UniformPair <Token <A>> pair : pairOrder) {
+            int token1 = symbols.id (pair.get1 ());
+            int token2 = symbols.id (pair.get2 ());
+            this.addTokenFrequency (token1, 0);
+            this.addTokenFrequency (token2, 0);
+            this.addPair (TokenSymbolTable.pairKey (token1, token2), token1, token2);
+        }
+        
+        // Same order as Bpe.computeInitialFrequencies.
+        for (int w = 0; w < words.length; w++) {
+            List <Token <A>> tokens = wordsWithFrequency.get (w).get1 ();
+            long frequency = wordsWithFrequency.get (w).get2 ();
+            words [w] = new int [tokens.size ()];
+            nextTokens [w] = new int [tokens.size ()];
+            wordFrequencies [w] = frequency;
+            for (int i = 0; i < tokens.size (); i++) {
+                int token = symbols.id (tokens.get (i));
+                words [w][i] = token;
+                nextTokens [w][i] = i + 1;
+                this.addTokenFrequency (token, frequency);
+                if (i > 0) {
+                    this.addPairFrequency (words [w][i - 1], token, frequency, w);
+                }
+            }
+        }
+        this.rescoreChanged ();
+    }
+    
+    // Change the pair frequency (same as Map.merge on the common frequencies).
+    private void addPairFrequency (int token1, int token2, long difference, int word) {
+        long key = TokenSymbolTable.pairKey (token1, token2);
+        int slot;
+        if (pairSlots.containsKey (key)) {
+            slot = (int) pairSlots.get (key);
+        }
+        else {
+            slot = this.addPair (key, token1, token2);
+        }
+        if (difference > 0) {
+            // The word is being processed, it may have been just added.
+            int count = pairWordCounts [slot];
+            if (count == 0 || pairWords [slot][count - 1] != word) {
+                if (count == pairWords [slot].length) {
+                    pairWords [slot] = Arrays.copyOf (pairWords [slot], Math.max (2, 2 * count));
+                }
+                pairWords [slot][count] = word;
+                pairWordCounts [slot]++;
+            }
+        }
+        pairFrequencies [slot] += difference;
+        changedSlots.set (slot);
+    }
+    
+    // Index a pair which has just appeared in the common frequencies.
+    private int addPair (long key, int token1, int token2) {
+        int result;
+        if (freeSlotCount > 0) {
+            result = freeSlots [--freeSlotCount];
+        }
+        else {
+            result = slotCount++;
+            if (result == pairKeys.length) {
+                int capacity = 2 * result;
+                pairKeys = Arrays.copyOf (pairKeys, capacity);
+                pairFrequencies = Arrays.copyOf (pairFrequencies, capacity);
+                sequenceNumbers = Arrays.copyOf (sequenceNumbers, capacity);
+                scores = Arrays.copyOf (scores, capacity);
+                pairWords = Arrays.copyOf (pairWords, capacity);
+                pairWordCounts = Arrays.copyOf (pairWordCounts, capacity);
+            }
+        }
+        pairSlots.put (key, result);
+        pairKeys [result] = key;
+        pairFrequencies [result] = 0;
+        sequenceNumbers [result] = nextSequenceNumber++;
+        pairWords [result] = NO_WORDS;
+        pairWordCounts [result] = 0;
+        this.addTokenPair (token1, result);
+        if (token2 != token1) {
+            this.addTokenPair (token2, result);
+        }
+        return result;
+    }
+    
+    private void addTokenFrequency (int token, long difference) {
+        if (token >= tokenFrequencies.length) {
+            int capacity = Math.max (token + 1, 2 * tokenFrequencies.length);
+            tokenFrequencies = Arrays.copyOf (tokenFrequencies, capacity);
+            tokenPairs = Arrays.copyOf (tokenPairs, capacity);
+            tokenPairCounts = Arrays.copyOf (tokenPairCounts, capacity);
+        }
+        tokenFrequencies [token] += difference;
+    }
+    
+    private void addTokenPair (int token, int slot) {
+        int count = tokenPairCounts [token];
+        if (tokenPairs [token] == null) {
+            tokenPairs [token] = new int [4];
+        }
+        else if (count == tokenPairs [token].length) {
+            tokenPairs [token] = Arrays.copyOf (tokenPairs [token], 2 * count);
+        }
+        tokenPairs [token][count] = slot;
+        tokenPairCounts [token]++;
+    }
+    
+    /**
+     * Create a checkpoint of the training.
+     * 
+     * @param mergedPairs The pairs merged so far (including those merged
+     *                    before this trainer was created).
+     * @return            The checkpoint.
+     */
+    BpeCheckpoint <A> createCheckpoint (List <UniformPair <Token <A>>> mergedPairs) {
+        // The same IDs, extended by the tokens merged before.
+        TokenSymbolTable <A> checkpointSymbols = new TokenSymbolTable <> ();
+        for (int token = 0; token < symbols.size (); token++) {
+            checkpointSymbols.id (symbols.token (token));
+        }
+        int [] merged = new int [2 * mergedPairs.size ()];
+        for (int m = 0; m < mergedPairs.size (); m++) {
+            merged [2 * m] = checkpointSymbols.id (mergedPairs.get (m).get1 ());
+            merged [2 * m + 1] = checkpointSymbols.id (mergedPairs.get (m).get2 ());
+        }
+        List <Token <A>> tokens = new ArrayList <> (checkpointSymbols.size ());
+        long [] frequencies = new long [checkpointSymbols.size ()];
+        for (int token = 0; token < checkpointSymbols.size (); token++) {
+            tokens.add (checkpointSymbols.token (token));
+            frequencies [token] = (token < tokenFrequencies.length) ? tokenFrequencies [token] : 0L;
+        }
+        
+        int [] slots =
+            IntStream.range (0, slotCount)
+            .filter (slot -> pairSlots.containsKey (pairKeys [slot]) && (int) pairSlots.get (pairKeys [slot]) == slot)
+            .boxed ()
+            .sorted (Comparator.comparingLong (slot -> sequenceNumbers [slot]))
+            .mapToInt (Integer :: intValue)
+            .toArray ();
+        long [] pairs = new long [slots.length];
+        long [] frequenciesOfPairs = new long [slots.length];
+        for (int p = 0; p < slots.length; p++) {
+            pairs [p] = pairKeys [slots [p]];
+            frequenciesOfPairs [p] = pairFrequencies [slots [p]];
+        }
+        
+        // Without the removed tokens.
+        int [][] checkpointWords = new int [words.length][];
+        for (int w = 0; w < words.length; w++) {
+            int length = 0;
+            for (int i = 0; i < words [w].length; i = nextTokens [w][i]) {
+                length++;
+            }
+            checkpointWords [w] = new int [length];
+            length = 0;
+            for (int i = 0; i < words [w].length; i = nextTokens [w][i]) {
+                checkpointWords [w][length++] = words [w][i];
+            }
+        }
+        return (
+            new BpeCheckpoint <> (
+                metric,
+                minFrequency,
+                true,
+                tokens,
+                frequencies,
+                merged,
+                pairs.length,
+                pairs,
+                frequenciesOfPairs,
+                checkpointWords,
+                wordFrequencies
+            )
+        );
+    }
+    
+    // The frequencies of all the tokens (including those which are not used any more).
+    Map <Token <A>, Long> getTokenFrequencies () {
+        Map <Token <A>, Long> result = new HashMap <> (2 * symbols.size ());
+        for (int token = 0; token < symbols.size (); token++) {
+            result.put (symbols.token (token), tokenFrequencies [token]);
+        }
+        return result;
+    }
+    
+    /**
+     * Merge the best pair in all the words containing it.
+     * 
+     * @return The merged pair.
+     * @throws NoSuchElementException If there is no pair to be merged.
+     */
+    UniformPair <Token <A>> makeStep () {
+        if (queue.isEmpty ()) {
+            throw new NoSuchElementException ("No pair found");
+        }
+        int bestSlot = queue.peek ();
+        long bestKey = pairKeys [bestSlot];
+        int bestToken1 = TokenSymbolTable.first (bestKey);
+        int bestToken2 = TokenSymbolTable.second (bestKey);
+        int mergedToken = symbols.merge (bestToken1, bestToken2);
+        this.addTokenFrequency (mergedToken, 0);
+        
+        // The words are processed in the same order as by Bpe.
+        int [] bestWords = Arrays.copyOf (pairWords [bestSlot], pairWordCounts [bestSlot]);
+        Arrays.sort (bestWords);
+        int [] positions = new int [0];
+        for (int b = 0; b < bestWords.length; b++) {
+            int w = bestWords [b];
+            if (b > 0 && bestWords [b - 1] == w) {
+                continue;
+            }
+            int [] word = words [w];
+            int [] next = nextTokens [w];
+            long wordFrequency = wordFrequencies [w];
+            
+            // Positions of the remaining tokens.
+            if (positions.length < word.length) {
+                positions = new int [word.length];
+            }
+            int size = 0;
+            for (int i = 0; i < word.length; i = next [i]) {
+                positions [size++] = i;
+            }
+            
+            // Iterate the tokens in descending order, starting at the
+            // penultimate token (to enable creating a pair).
+            for (int k = size - 2; k >= 0; k--) {
+                int left = positions [k];
+                int right = next [left];
+                if (word [left] == bestToken1 && word [right] == bestToken2) {
+                    word [left] = mergedToken;
+                    word [right] = -1;
+                    next [left] = next [right];
+                    
+                    // Update token frequencies.
+                    this.addTokenFrequency (bestToken1,  - wordFrequency);
+                    this.addTokenFrequency (bestToken2,  - wordFrequency);
+                    this.addTokenFrequency (mergedToken, + wordFrequency);
+                    
+                    // Update token pair frequencies.
+                    if (k > 0) {
+                        int leftToken = word [positions [k - 1]];
+                        this.addPairFrequency (leftToken, bestToken1, - wordFrequency, w);
+                        this.addPairFrequency (leftToken, mergedToken, + wordFrequency, w);
+                    }
+                    if (next [left] < word.length) {
+                        int rightToken = word [next [left]];
+                        this.addPairFrequency (bestToken2, rightToken, - wordFrequency, w);
+                        this.addPairFrequency (mergedToken, rightToken, + wordFrequency, w);
+                    }
+                }
+            }
+        }
+        this.removePair (bestSlot);
+        // Only these three tokens have changed their frequencies.
+        if (tokenScore) {
+            for (int token : new int [] {bestToken1, bestToken2, mergedToken}) {
+                for (int i = 0; i < tokenPairCounts [token]; i++) {
+                    changedSlots.set (tokenPairs [token][i]);
+                }
+            }
+        }
+        changedSlots.clear (bestSlot);
+        this.rescoreChanged ();
+        return new UniformPair <> (symbols.token (bestToken1), symbols.token (bestToken2));
+    }
+    
+    private void removePair (int slot) {
+        long key = pairKeys [slot];
+        pairSlots.remove (key);
+        queue.remove (slot);
+        this.removeTokenPair (TokenSymbolTable.first (key), slot);
+        this.removeTokenPair (TokenSymbolTable.second (key), slot);
+        pairWords [slot] = NO_WORDS;
+        pairWordCounts [slot] = 0;
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf (freeSlots, 2 * freeSlotCount);
+        }
+        freeSlots [freeSlotCount++] = slot;
+    }
+    
+    private void removeTokenPair (int token, int slot) {
+        int [] slots = tokenPairs [token];
+        for (int i = 0; i < tokenPairCounts [token]; i++) {
+            if (slots [i] == slot) {
+                slots [i] = slots [--tokenPairCounts [token]];
+                break;
+            }
+        }
+    }
+    
+    // Compute the current score of the pair and update the queue.
+    private void rescore (int slot) {
+        long key = pairKeys [slot];
+        int token1 = TokenSymbolTable.first (key);
+        int token2 = TokenSymbolTable.second (key);
+        long frequency = pairFrequencies [slot];
+        double score =
+            metric.apply (
+                symbols.length (token1),
+                symbols.length (token2),
+                tokenFrequencies [token1],
+                tokenFrequencies [token2],
+                frequency
+            );
+        // Same as Bpe.findBestPair: the pair must be frequent enough and have
+        // a better score than negative infinity (which also excludes NaN).
+        if (frequency >= minFrequency && score > Double.NEGATIVE_INFINITY) {
+            scores [slot] = score;
+            queue.put (slot);
+        }
+        else {
+            queue.remove (slot);
+        }
+    }
+    
+    private void rescoreChanged () {
+        for (int slot = changedSlots.nextSetBit (0); slot >= 0; slot = changedSlots.nextSetBit (slot + 1)) {
+            this.rescore (slot);
+        }
+        changedSlots.clear ();
+    }
+}
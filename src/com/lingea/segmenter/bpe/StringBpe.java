@@ -5,6 +5,7 @@ import com.github.josefplch.utils.data.list.FunctionalList;
 import com.github.josefplch.utils.data.string.StringUtils;
 import com.github.josefplch.utils.data.tuple.Pair;
 import com.github.josefplch.utils.data.tuple.UniformPair;
+import com.github.josefplch.utils.system.CompressedStreams;
 import com.github.josefplch.utils.system.TextFileUtils;
 import com.lingea.segmenter.StringSegmenter;
 import com.lingea.segmenter.bpe.metric.AssociationMetric;
@@ -12,16 +13,30 @@ import com.lingea.segmenter.data.BoundaryStrings;
 import com.lingea.segmenter.data.token.SequenceToken;
 import com.lingea.segmenter.data.token.Token;
 import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.stream.Stream;
 
 /**
  * @author  Josef Plch
  * @since   2019-02-27
- * @version 2021-01-14
+ * @version 2026-10-19
  */
 public class StringBpe extends Bpe <Character> implements StringSegmenter {
+    private static final BpeCheckpoint.AtomCodec <Character> CHARACTER_CODEC =
+        new BpeCheckpoint.AtomCodec <Character> () {
+            @Override
+            public Character read (DataInput input) throws IOException {
+                return input.readChar ();
+            }
+            
+            @Override
+            public void write (DataOutput output, Character atom) throws IOException {
+                output.writeChar (atom);
+            }
+        };
+    
     private final BoundaryStrings boundaryStrings;
     
     protected StringBpe (
@@ -42,6 +57,21 @@ public class StringBpe extends Bpe <Character> implements StringSegmenter {
         this.boundaryStrings = boundaryStrings;
     }
     
+    /**
+     * Resume the training from the checkpoint (see saveCheckpoint).
+     * 
+     * @param boundaryStrings The boundary strings used in the training.
+     * @param filePath        Path to the checkpoint.
+     * @return                The model, ready to continue the training.
+     * @throws IOException If the file cannot be read or is not a checkpoint.
+     */
+    public static StringBpe loadCheckpoint (BoundaryStrings boundaryStrings, String filePath) throws IOException {
+        BpeCheckpoint <Character> checkpoint = readCheckpoint (filePath, CHARACTER_CODEC);
+        StringBpe bpe = new StringBpe (checkpoint.metric, checkpoint.minFrequency, new FunctionalList <> (), boundaryStrings);
+        bpe.restoreCheckpoint (checkpoint);
+        return bpe;
+    }
+    
     public static StringBpe loadModel (BoundaryStrings boundaryStrings, String filePath) throws IOException {
         return (
             new StringBpe (
@@ -74,8 +104,33 @@ public class StringBpe extends Bpe <Character> implements StringSegmenter {
         return bpe;
     }
     
+    /**
+     * Make the steps, saving a checkpoint every given number of steps and at
+     * the end (see saveCheckpoint).
+     * 
+     * @param n                  Number of steps.
+     * @param checkpointInterval Number of steps between the checkpoints (0 =
+     *                           no checkpoints).
+     * @param checkpointPath     Path to the checkpoint file.
+     * @return                   Number of the steps made.
+     * @throws IOException If a checkpoint cannot be written.
+     */
+    public int makeSteps (int n, int checkpointInterval, String checkpointPath) throws IOException {
+        return this.makeSteps (n, checkpointInterval, checkpointPath, CHARACTER_CODEC);
+    }
+    
+    /**
+     * Save the state of the training, see Bpe.saveCheckpoint.
+     * 
+     * @param filePath Path to the checkpoint file.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    public void saveCheckpoint (String filePath) throws IOException {
+        this.saveCheckpoint (filePath, CHARACTER_CODEC);
+    }
+    
     public void saveModel (String filePath) throws IOException {
-        BufferedWriter writer = new BufferedWriter (new FileWriter (filePath));
+        BufferedWriter writer = CompressedStreams.openWriter (filePath);
         for (UniformPair <Token <Character>> mergedTokens : this.getMergedPairs ()) {
             UniformPair <String> mergedStrings =
                 mergedTokens
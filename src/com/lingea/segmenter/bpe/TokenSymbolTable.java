@@ -0,0 +1,74 @@
+package com.lingea.segmenter.bpe;
+
+import com.lingea.segmenter.data.token.SequenceToken;
+import com.lingea.segmenter.data.token.Token;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Symbol table of the BPE tokens: every token (equal tokens are the same
+ * symbol) gets an integer ID, assigned in the order of appearance. A pair of
+ * tokens is then packed into a single long, so hashing a pair does not mean
+ * hashing two lists of atoms.
+ * 
+ * @param <A> Type of the basic, atomic element (typically: byte or character).
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+class TokenSymbolTable <A> {
+    private final Map <A, Integer> atomIds = new HashMap <> ();
+    private final Map <Token <A>, Integer> tokenIds = new HashMap <> ();
+    private final List <Token <A>> tokens = new ArrayList <> ();
+    
+    // The ID of the single atom token, or -1 if there is none.
+    int findAtomId (A atom) {
+        return atomIds.getOrDefault (atom, -1);
+    }
+    
+    static int first (long pairKey) {
+        return (int) (pairKey >>> 32);
+    }
+    
+    // The ID of the token, which is created if necessary.
+    int id (Token <A> token) {
+        Integer result = tokenIds.get (token);
+        if (result == null) {
+            result = tokens.size ();
+            tokens.add (token);
+            tokenIds.put (token, result);
+            if (token.size () == 1) {
+                atomIds.put (token.getAtoms ().get (0), result);
+            }
+        }
+        return result;
+    }
+    
+    int length (int id) {
+        return tokens.get (id).size ();
+    }
+    
+    // The ID of the concatenated token, which is created if necessary.
+    int merge (int id1, int id2) {
+        return this.id (SequenceToken.merge (tokens.get (id1), tokens.get (id2)));
+    }
+    
+    static long pairKey (int id1, int id2) {
+        return (((long) id1 << 32) | (id2 & 0xFFFFFFFFL));
+    }
+    
+    static int second (long pairKey) {
+        return (int) pairKey;
+    }
+    
+    int size () {
+        return tokens.size ();
+    }
+    
+    Token <A> token (int id) {
+        return tokens.get (id);
+    }
+}
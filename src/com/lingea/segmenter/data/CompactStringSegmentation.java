@@ -0,0 +1,220 @@
+package com.lingea.segmenter.data;
+
+import com.github.josefplch.utils.data.list.GluedList;
+import com.github.josefplch.utils.data.list.StringList;
+import com.github.josefplch.utils.data.string.DoubleFormatter;
+import com.lingea.segmenter.GlobalSettings;
+import com.lingea.segmenter.substitus.Substitus;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.BiPredicate;
+
+/**
+ * Array-backed probabilistic segmentation of a string:
+ * ['h' 0.05 'a' 0.23 'v' 0.87 'e']
+ * 
+ * In contrast to ProbabilisticStringSegmentation (a linked list), appending
+ * takes amortized constant time and all the operations are iterative. The
+ * serialized format is the same, see toStringDecimal6.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public class CompactStringSegmentation {
+    private static final char GLUE_DELIMITER = ' ';
+    
+    private char [] atoms;
+    // The i-th glue is between atoms i and i + 1.
+    private double [] glues;
+    private int size;
+    
+    public CompactStringSegmentation (char firstAtom) {
+        this (firstAtom, 16);
+    }
+    
+    public CompactStringSegmentation (char firstAtom, int expectedSize) {
+        atoms = new char [Math.max (1, expectedSize)];
+        glues = new double [Math.max (1, expectedSize - 1)];
+        atoms [0] = firstAtom;
+        size = 1;
+    }
+    
+    public static CompactStringSegmentation from (GluedList <Character, Double> segmentation) {
+        CompactStringSegmentation result = new CompactStringSegmentation (segmentation.getElement ());
+        GluedList <Character, Double> pointer = segmentation;
+        while (pointer.hasNext ()) {
+            double glue = pointer.getNext ().get ().get1 ();
+            pointer = pointer.getNext ().get ().get2 ();
+            result.addLast (glue, pointer.getElement ());
+        }
+        return result;
+    }
+    
+    /**
+     * Read the serialized segmentation (atom, probability, atom, ..., atom),
+     * e.g. "h 0.05 a 0.23 v 0.87 e". A dangling probability at the end is
+     * ignored, as in ProbabilisticStringSegmentation.
+     * 
+     * @param string The serialized segmentation.
+     * @return       The segmentation.
+     * @throws IllegalArgumentException If an atom is not a single character
+     *                                  (or a probability is not a number).
+     */
+    public static CompactStringSegmentation readDouble (String string) throws IllegalArgumentException {
+        int atomEnd = nextDelimiter (string, 0);
+        CompactStringSegmentation result = new CompactStringSegmentation (readChar (string, 0, atomEnd), (string.length () + 2) / 4);
+        int position = atomEnd + 1;
+        while (position < string.length ()) {
+            int glueEnd = nextDelimiter (string, position);
+            if (glueEnd >= string.length ()) {
+                break;
+            }
+            double glue = Double.parseDouble (string.substring (position, glueEnd));
+            atomEnd = nextDelimiter (string, glueEnd + 1);
+            result.addLast (glue, readChar (string, glueEnd + 1, atomEnd));
+            position = atomEnd + 1;
+        }
+        return result;
+    }
+    
+    private static int nextDelimiter (String string, int from) {
+        int index = string.indexOf (GLUE_DELIMITER, from);
+        return (index < 0 ? string.length () : index);
+    }
+    
+    // The substring must contain just one character, which is the result.
+    private static char readChar (String string, int from, int to) {
+        if (to - from == 1) {
+            return string.charAt (from);
+        }
+        else {
+            throw new IllegalArgumentException ("Illegal character: " + string.substring (from, to));
+        }
+    }
+    
+    public void addLast (double glue, char atom) {
+        if (size == atoms.length) {
+            atoms = Arrays.copyOf (atoms, 2 * size);
+        }
+        if (size - 1 == glues.length) {
+            glues = Arrays.copyOf (glues, 2 * glues.length);
+        }
+        glues [size - 1] = glue;
+        atoms [size] = atom;
+        size++;
+    }
+    
+    public char atom (int index) {
+        checkIndex (index, size);
+        return atoms [index];
+    }
+    
+    public StringList binarize (double threshold) {
+        return this.binarizeIf ((l, p) -> p >= threshold);
+    }
+    
+    public StringList binarize50 () {
+        return this.binarize (0.5);
+    }
+    
+    /**
+     * Convert the probabilistic segmentation into binary. Same as in
+     * ProbabilisticSegmentation.binarizeIf: the segmentation is split at the
+     * (first) maximum probability, as long as the predicate holds for the
+     * length of the part and the maximum.
+     * 
+     * @param predicate Predicate (length, max. probability) -> split?
+     * @return          The segments.
+     */
+    public StringList binarizeIf (BiPredicate <Integer, Double> predicate) {
+        StringList result = new StringList ();
+        // Stack of atom ranges [from, to], the leftmost on the top.
+        int [] stack = new int [2 * size];
+        int top = 0;
+        stack [top++] = 0;
+        stack [top++] = size - 1;
+        while (top > 0) {
+            int to = stack [--top];
+            int from = stack [--top];
+            int maxIndex = -1;
+            for (int i = from; i < to; i++) {
+                if (maxIndex < 0 || glues [i] > glues [maxIndex]) {
+                    maxIndex = i;
+                }
+            }
+            if (maxIndex < 0 || ! predicate.test (to - from + 1, glues [maxIndex])) {
+                result.add (new String (atoms, from, to - from + 1));
+            }
+            else {
+                stack [top++] = maxIndex + 1;
+                stack [top++] = to;
+                stack [top++] = from;
+                stack [top++] = maxIndex;
+            }
+        }
+        return result;
+    }
+    
+    private static void checkIndex (int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException ("Index: " + index + ", size: " + bound);
+        }
+    }
+    
+    public String elements () {
+        return new String (atoms, 0, size);
+    }
+    
+    public double glue (int index) {
+        checkIndex (index, size - 1);
+        return glues [index];
+    }
+    
+    public Optional <Double> maxProbability () {
+        Optional <Double> result = Optional.empty ();
+        for (int i = 0; i < size - 1; i++) {
+            if (! result.isPresent () || glues [i] > result.get ()) {
+                result = Optional.of (glues [i]);
+            }
+        }
+        return result;
+    }
+    
+    public CompactStringSegmentation normalize (double meanValue) {
+        CompactStringSegmentation result = new CompactStringSegmentation (atoms [0], size);
+        for (int i = 1; i < size; i++) {
+            result.addLast (Substitus.normalize (glues [i - 1], meanValue), atoms [i]);
+        }
+        return result;
+    }
+    
+    public int size () {
+        return size;
+    }
+    
+    public ProbabilisticStringSegmentation toProbabilistic () {
+        ProbabilisticStringSegmentation result = new ProbabilisticStringSegmentation (atoms [size - 1]);
+        for (int i = size - 2; i >= 0; i--) {
+            result = new ProbabilisticStringSegmentation (atoms [i], glues [i], result);
+        }
+        return result;
+    }
+    
+    @Override
+    public String toString () {
+        return String.join (GlobalSettings.HARD_DELIMITER_STRING, this.binarize50 ());
+    }
+    
+    public String toStringDecimal6 () {
+        StringBuilder result = new StringBuilder (9 * size);
+        result.append (atoms [0]);
+        for (int i = 1; i < size; i++) {
+            result.append (GLUE_DELIMITER);
+            result.append (DoubleFormatter.POINT_6.format (glues [i - 1]));
+            result.append (GLUE_DELIMITER);
+            result.append (atoms [i]);
+        }
+        return result.toString ();
+    }
+}
@@ -5,11 +5,12 @@ import com.github.josefplch.utils.data.function.Function3;
 import com.github.josefplch.utils.data.list.FunctionalList;
 import com.github.josefplch.utils.data.list.number.DoubleList;
 import com.github.josefplch.utils.data.string.DoubleFormatter;
-import com.github.josefplch.utils.data.tuple.Pair;
 import com.github.josefplch.utils.data.tuple.UniformPair;
 import com.lingea.segmenter.GlobalSettings;
 import com.lingea.segmenter.substitus.Substitus;
-import java.util.Objects;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
@@ -22,7 +23,7 @@ import java.util.function.Function;
  * 
  * @author  Josef Plch
  * @since   2019-03-19
- * @version 2021-01-18
+ * @version 2026-10-19
  */
 public class ProbabilisticSegmentation <A> extends GluedList <A, Double> {
     protected static final String GLUE_DELIMITER = " ";
@@ -39,6 +40,19 @@ public class ProbabilisticSegmentation <A> extends GluedList <A, Double> {
         return new ProbabilisticSegmentation <> (atom);
     }
     
+    /**
+     * Create a segmentation from the atoms and the probabilities between them,
+     * in linear time.
+     * 
+     * @param <A>           Type of the atoms.
+     * @param atoms         The atoms (at least one).
+     * @param probabilities The probabilities, one less than atoms.
+     * @return              The segmentation.
+     */
+    public static <A> ProbabilisticSegmentation <A> of (List <A> atoms, List <Double> probabilities) {
+        return build (atoms, probabilities, ProbabilisticSegmentation :: new);
+    }
+    
     // Amount of chaos:
     // 
     // entropy
@@ -65,19 +79,18 @@ public class ProbabilisticSegmentation <A> extends GluedList <A, Double> {
         );
     }
     
-    // Read the serialized segmentation. TODO: Non-recursive version.
+    // Read the serialized segmentation: atom, probability, atom, ..., atom.
+    // (A dangling probability at the end is ignored.)
     protected static <A> ProbabilisticSegmentation <A> readDouble (String string, Function <String, A> atomReader) throws NumberFormatException {
-        // Chunks: (first atom, probability, tail of the list).
-        String [] chunks = string.split (GLUE_DELIMITER, 3);
-        ProbabilisticSegmentation <A> result =
-            ProbabilisticSegmentation.atom (
-                atomReader.apply (chunks [0])
-            );
-        if (chunks.length == 3) {
-            result.glue = Double.valueOf (chunks [1]);
-            result.next = ProbabilisticSegmentation.readDouble (chunks [2], atomReader);
+        String [] chunks = string.split (GLUE_DELIMITER, -1);
+        FunctionalList <A> atoms = new FunctionalList <> ();
+        DoubleList probabilities = new DoubleList ();
+        atoms.add (atomReader.apply (chunks [0]));
+        for (int i = 1; i + 1 < chunks.length; i += 2) {
+            probabilities.add (Double.valueOf (chunks [i]));
+            atoms.add (atomReader.apply (chunks [i + 1]));
         }
-        return result;
+        return ProbabilisticSegmentation.of (atoms, probabilities);
     }
     
     public FunctionalList <FunctionalList <A>> binarize (double threshold) {
@@ -99,30 +112,6 @@ public class ProbabilisticSegmentation <A> extends GluedList <A, Double> {
         return (this.splitIf (predicate).map (GluedList :: elements));
     }
     
-    // Example:
-    // [u 0.1 p 0.8 s 0.4 e 0.2 t].cut (0.8) = ([u 0.1 p], [s 0.4 e 0.2 t])
-    private static <A> UniformPair <GluedList <A, Double>> cutOnProbability (
-        GluedList <A, Double> list,
-        double cutProbability,
-        GluedList <A, Double> first
-    ) {
-        UniformPair <GluedList <A, Double>> result;
-        if (list.isLast ()) {
-            throw new IllegalArgumentException ("No such probability: " + cutProbability);
-        }
-        else {
-            Pair <Double, GluedList <A, Double>> next = list.getNext ().get ();
-            if (Objects.equals (next.get1 (), cutProbability)) {
-                result = new UniformPair <> (first, next.get2 ());
-            }
-            else {
-                first.addLast (next.get1 (), next.get2 ().getElement ());
-                result = cutOnProbability (next.get2 (), cutProbability, first);
-            }
-            return result;
-        }
-    }
-    
     public Double getProbability () {
         return glue;
     }
@@ -137,36 +126,46 @@ public class ProbabilisticSegmentation <A> extends GluedList <A, Double> {
     }
     
     public Optional <Double> maxProbability () {
-        return maxProbability (this, Optional.empty ());
-    }
-    
-    private static <A> Optional <Double> maxProbability (GluedList <A, Double> list, Optional <Double> knownMax) {
-        return list.glues ().mapToDouble (p -> p).maximum ();
+        return this.glues ().maximum ();
     }
     
+    /**
+     * Recursively split the list at the position with the maximum probability
+     * (the first one if there are more), as long as the predicate holds for
+     * the length of the part and the maximum. The implementation is iterative.
+     * 
+     * @param predicate Predicate (length, max. probability) -> split?
+     * @return          The parts, from left to right.
+     */
     public FunctionalList <GluedList <A, Double>> splitIf (BiPredicate <Integer, Double> predicate) {
-        return ProbabilisticSegmentation.splitIf (this, predicate);
-    }
-    
-    // Find the position with max probability and try to split there.
-    private static <A> FunctionalList <GluedList <A, Double>> splitIf (GluedList <A, Double> list, BiPredicate <Integer, Double> predicate) {
-        FunctionalList <GluedList <A, Double>> result;
-        Optional <Double> max = maxProbability (list, Optional.empty ());
-        if (! max.isPresent () || ! predicate.test (list.size (), max.get ())) {
-            result = FunctionalList.of (list);
-        }
-        else {
-            UniformPair <GluedList <A, Double>> cutList =
-                cutOnProbability (
-                    list,
-                    max.get (),
-                    new ProbabilisticSegmentation <> (list.getElement ())
-                );
-            result =
-                FunctionalList.concat (
-                    ProbabilisticSegmentation.splitIf (cutList.get1 (), predicate),
-                    ProbabilisticSegmentation.splitIf (cutList.get2 (), predicate)
+        FunctionalList <A> atoms = this.elements ();
+        DoubleList probabilities = this.glues ();
+        FunctionalList <GluedList <A, Double>> result = new FunctionalList <> ();
+        // Stack of atom ranges [from, to] waiting for processing, the leftmost on the top.
+        Deque <UniformPair <Integer>> stack = new ArrayDeque <> ();
+        stack.push (new UniformPair <> (0, atoms.size () - 1));
+        while (! stack.isEmpty ()) {
+            UniformPair <Integer> range = stack.pop ();
+            int from = range.get1 ();
+            int to = range.get2 ();
+            int maxIndex = -1;
+            for (int i = from; i < to; i++) {
+                if (maxIndex < 0 || probabilities.get (i) > probabilities.get (maxIndex)) {
+                    maxIndex = i;
+                }
+            }
+            if (maxIndex < 0 || ! predicate.test (to - from + 1, probabilities.get (maxIndex))) {
+                result.add (
+                    ProbabilisticSegmentation.of (
+                        atoms.subList (from, to + 1),
+                        probabilities.subList (from, to)
+                    )
                 );
+            }
+            else {
+                stack.push (new UniformPair <> (maxIndex + 1, to));
+                stack.push (new UniformPair <> (from, maxIndex));
+            }
         }
         return result;
     }
@@ -9,7 +9,7 @@ import java.util.function.BiPredicate;
 /**
  * @author  Josef Plch
  * @since   2019-03-19
- * @version 2021-01-18
+ * @version 2026-10-19
  */
 public class ProbabilisticStringSegmentation extends ProbabilisticSegmentation <Character> {
     protected ProbabilisticStringSegmentation (Character character) {
@@ -25,20 +25,8 @@ public class ProbabilisticStringSegmentation extends ProbabilisticSegmentation <
     }
     
     public static ProbabilisticStringSegmentation readDouble (String string) throws NumberFormatException {
-        return (
-            ProbabilisticSegmentation.readDouble (string, ProbabilisticStringSegmentation :: readChar)
-            .mapToChar (c -> c)
-        );
-    }
-    
-    // The string must contain just one character, which is the result.
-    private static Character readChar (String string) {
-        if (string.length () == 1) {
-            return string.charAt (0);
-        }
-        else {
-            throw new IllegalArgumentException ("Illegal character: " + string);
-        }
+        // The compact segmentation is parsed without splitting the string.
+        return CompactStringSegmentation.readDouble (string).toProbabilistic ();
     }
     
     public StringList binarizeS (double threshold) {
@@ -67,6 +55,10 @@ public class ProbabilisticStringSegmentation extends ProbabilisticSegmentation <
         return toStrings (super.sureTokens (lower, upper));
     }
     
+    public CompactStringSegmentation toCompact () {
+        return CompactStringSegmentation.from (this);
+    }
+    
     private static StringList toStrings (FunctionalList <FunctionalList <Character>> list) {
         return list.mapToString (StringUtils :: charListToString);
     }
@@ -5,6 +5,7 @@ import com.github.josefplch.utils.data.list.CharList;
 import com.github.josefplch.utils.data.list.FunctionalList;
 import com.github.josefplch.utils.data.list.StringList;
 import com.github.josefplch.utils.data.map.FunctionalMap;
+import com.github.josefplch.utils.data.map.ObjectLongHashMap;
 import com.github.josefplch.utils.data.nlp.Tokenizer;
 import com.github.josefplch.utils.data.set.StringSet;
 import com.github.josefplch.utils.data.string.StringUtils;
@@ -14,6 +15,7 @@ import com.lingea.segmenter.GlobalSettings;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.function.UnaryOperator;
@@ -21,7 +23,7 @@ import java.util.function.UnaryOperator;
 /**
  * @author  Josef Plch
  * @since   2019-11-13
- * @version 2020-01-11
+ * @version 2026-10-19
  */
 public abstract class FrequencyListConverter {
     public static void convert (
@@ -140,15 +142,25 @@ public abstract class FrequencyListConverter {
             + ", " + ignoredAccentVariants + " accent variants"
         );
         
-        System.err.println ("Ordering ...");
-        FunctionalList <FrequencyListEntry> ordered =
+        orderAndWrite (
             entries
             .toList ()
-            .mapToComparable (entry -> new FrequencyListEntry (entry.get2 ().get1 (), entry.get1 (), entry.get2 ().get2 ()))
-            .sortAsc ();
+            .map (entry -> new FrequencyListEntry (entry.get2 ().get1 (), entry.get1 (), entry.get2 ().get2 ())),
+            Optional.empty (),
+            writer
+        );
+    }
+    
+    private static void orderAndWrite (
+        FunctionalList <FrequencyListEntry> entries,
+        Optional <Integer> maxResultSize,
+        Writer writer
+    ) throws IOException {
+        System.err.println ("Ordering ...");
+        FunctionalList <FrequencyListEntry> ordered = FrequencyListEntry.sort (entries);
         
         System.err.println ("Writing ...");
-        for (FrequencyListEntry entry : ordered) {
+        for (FrequencyListEntry entry : ordered.take (maxResultSize.orElse (ordered.size ()))) {
             writer.append (
                 entry.getFrequency ()
                 + "\t" + entry.getWord ()
@@ -156,6 +168,7 @@ public abstract class FrequencyListConverter {
                 + "\n"
             );
         }
+        writer.flush ();
     }
     
     public static void tokenizedToCaseSensitive (
@@ -167,10 +180,45 @@ public abstract class FrequencyListConverter {
         convertInternal (
             reader,
             line -> StringList.split ("[ \t]+", line).map (word -> new FrequencyListEntry (1L, word, new StringSet ())),
-            maxResultSize,
-            Optional.empty (),
             maxWordLength,
+            Optional.empty (),
+            maxResultSize,
             writer
         );
     }
+    
+    /**
+     * Create a frequency list from word-level-tokenized text files, counting
+     * the tokens in parallel. In contrast to the sequential conversion, the
+     * maximum result size keeps the most frequent words, not the first seen.
+     * 
+     * @param paths         Paths to the input files (UTF-8).
+     * @param threads       Number of counting threads.
+     * @param maxWordLength Words longer than this are ignored.
+     * @param maxResultSize Maximum number of resulting entries.
+     * @param writer        Where to write the frequency list.
+     * @throws IOException  If a file cannot be read or written.
+     */
+    public static void tokenizedFilesToCaseSensitive (
+        List <String> paths,
+        int threads,
+        Optional <Integer> maxWordLength,
+        Optional <Integer> maxResultSize,
+        Writer writer
+    ) throws IOException {
+        ObjectLongHashMap <String> frequencies = ParallelTokenCounter.count (paths, threads);
+        FunctionalList <FrequencyListEntry> entries = new FunctionalList <> ();
+        StringSet noLemmata = new StringSet ();
+        frequencies.forEach ((word, frequency) -> {
+            // Ignore too long words.
+            if (maxWordLength.map (maxLength -> word.length () <= maxLength).orElse (true)) {
+                entries.add (new FrequencyListEntry (frequency, word, noLemmata));
+            }
+        });
+        System.err.println (
+            "Resulting entries: " + entries.size ()
+            + ", ignored too long: " + (frequencies.size () - entries.size ())
+        );
+        orderAndWrite (entries, maxResultSize, writer);
+    }
 }
@@ -0,0 +1,120 @@
+package com.lingea.segmenter.data.frequencyList;
+
+import com.github.josefplch.utils.data.list.FunctionalList;
+import com.github.josefplch.utils.data.map.ObjectLongHashMap;
+import com.github.josefplch.utils.system.CompressedStreams;
+import com.github.josefplch.utils.system.FileChunk;
+import com.github.josefplch.utils.system.ParallelTasks;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts tokens of word-level-tokenized text files (tokens delimited by spaces
+ * or tabs) in parallel. The files are split into line-aligned chunks (see
+ * FileChunk), which are consumed by a pool of workers. Every worker counts
+ * into its own map; the maps are merged once all the chunks have been
+ * processed.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public abstract class ParallelTokenCounter {
+    public static ObjectLongHashMap <String> count (List <String> paths, int threads) throws IOException {
+        return count (paths, threads, FileChunk.DEFAULT_SIZE);
+    }
+    
+    /**
+     * Count the tokens in the given files.
+     * 
+     * @param paths     Paths to the tokenized text files (UTF-8).
+     * @param threads   Number of worker threads.
+     * @param chunkSize Approximate chunk size in bytes.
+     * @return          Token frequencies.
+     * @throws IOException If a file cannot be read.
+     */
+    public static ObjectLongHashMap <String> count (List <String> paths, int threads, int chunkSize) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException ("The number of threads must be positive.");
+        }
+        FunctionalList <FileChunk> chunks = new FunctionalList <> ();
+        for (String path : paths) {
+            chunks.addAll (FileChunk.split (path, chunkSize));
+        }
+        System.err.println ("* Counting tokens in " + chunks.size () + " chunks using " + threads + " threads ...");
+        
+        AtomicInteger nextChunk = new AtomicInteger (0);
+        Callable <ObjectLongHashMap <String>> worker = () -> {
+            ObjectLongHashMap <String> frequencies = new ObjectLongHashMap <> (1 << 16);
+            int index;
+            while ((index = nextChunk.getAndIncrement ()) < chunks.size ()) {
+                countChunk (chunks.get (index), frequencies);
+                if ((index + 1) % 64 == 0) {
+                    System.err.println ("* Counted chunk #" + (index + 1) + " / " + chunks.size ());
+                }
+            }
+            return frequencies;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool (threads);
+        try {
+            ObjectLongHashMap <String> result = null;
+            for (ObjectLongHashMap <String> frequencies : ParallelTasks.invokeAll (executor, FunctionalList.replicate (threads, worker), "Token counting")) {
+                // Merge the smaller map into the bigger one.
+                if (result == null) {
+                    result = frequencies;
+                }
+                else if (frequencies.size () > result.size ()) {
+                    frequencies.addAll (result);
+                    result = frequencies;
+                }
+                else {
+                    result.addAll (frequencies);
+                }
+            }
+            System.err.println ("* Unique tokens: " + result.size ());
+            return result;
+        }
+        finally {
+            executor.shutdownNow ();
+        }
+    }
+    
+    private static void countChunk (FileChunk chunk, ObjectLongHashMap <String> frequencies) throws IOException {
+        if (chunk.isStreamed ()) {
+            try (BufferedReader reader = CompressedStreams.openReader (chunk.getPath (), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine ()) != null) {
+                    char [] chars = line.toCharArray ();
+                    countTokens (chars, 0, chars.length, frequencies);
+                }
+            }
+        }
+        else {
+            CharBuffer text = StandardCharsets.UTF_8.decode (chunk.map ());
+            countTokens (text.array (), text.arrayOffset (), text.arrayOffset () + text.limit (), frequencies);
+        }
+    }
+    
+    private static void countTokens (char [] chars, int start, int end, ObjectLongHashMap <String> frequencies) {
+        int tokenStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || isDelimiter (chars [i])) {
+                if (i > tokenStart) {
+                    frequencies.addTo (new String (chars, tokenStart, i - tokenStart), 1L);
+                }
+                tokenStart = i + 1;
+            }
+        }
+    }
+    
+    private static boolean isDelimiter (char c) {
+        return (c == ' ' || c == '\t' || c == '\n' || c == '\r');
+    }
+}
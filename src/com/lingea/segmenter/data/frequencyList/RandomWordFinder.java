@@ -3,15 +3,15 @@ package com.lingea.segmenter.data.frequencyList;
 import com.github.josefplch.utils.data.list.PairList;
 import com.github.josefplch.utils.data.nlp.Tokenizer;
 import com.github.josefplch.utils.data.tuple.Pair;
+import com.github.josefplch.utils.system.CompressedStreams;
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 
 /**
  * @author  Josef Plch
  * @since   2018-07-13
- * @version 2021-01-14
+ * @version 2026-10-19
  */
 public class RandomWordFinder {
     private final PairList <Long, String> frequencyList;
@@ -20,7 +20,7 @@ public class RandomWordFinder {
     public RandomWordFinder (String filePath, long limit) throws FileNotFoundException, IOException {
         this.frequencyList = new PairList <> ();
         
-        BufferedReader reader = new BufferedReader (new FileReader (filePath));
+        BufferedReader reader = CompressedStreams.openReader (filePath);
         String line;
         long i = 0;
         long totalWords = 0;
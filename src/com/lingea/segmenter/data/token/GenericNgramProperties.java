@@ -1,8 +1,11 @@
 package com.lingea.segmenter.data.token;
 
+import com.github.josefplch.utils.data.list.PairList;
 import com.github.josefplch.utils.data.math.fraction.LongFraction;
+import com.github.josefplch.utils.data.tuple.Pair;
 import com.github.josefplch.utils.data.tuple.Tuple3;
 import com.github.josefplch.utils.data.tuple.UniformPair;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Characteristics of token n-gram: TF (frequency), IWF (productivity), and some
@@ -10,7 +13,7 @@ import com.github.josefplch.utils.data.tuple.UniformPair;
  * 
  * @author  Josef Plch
  * @since   2019-11-21
- * @version 2021-01-12
+ * @version 2026-10-19
  */
 public abstract class GenericNgramProperties <T> extends Tuple3 <LongFraction, LongFraction, UniformPair <T>> {
     public GenericNgramProperties (LongFraction tf, LongFraction iwf, UniformPair <T> examples) {
@@ -57,6 +60,44 @@ public abstract class GenericNgramProperties <T> extends Tuple3 <LongFraction, L
         return e1.doubleValue ();
     }
     
+    /**
+     * Merge two lists of examples ordered by their score (the lowest first),
+     * taking the first maxExamples of them, the ones of the first list first
+     * if equal. It is the same as sorting the concatenation (stably) and
+     * taking the first ones, but each score is computed only once.
+     * 
+     * @param <A>         Type of the example.
+     * @param <B>         Type of the example data (e.g. frequency).
+     * @param a           The examples (not modified).
+     * @param b           The following examples (neither modified).
+     * @param score       Score of an example.
+     * @param maxExamples Maximum number of the examples.
+     * @return            The merged examples.
+     */
+    protected static <A, B> PairList <A, B> mergeExamples (
+        PairList <A, B> a,
+        PairList <A, B> b,
+        ToDoubleFunction <Pair <A, B>> score,
+        int maxExamples
+    ) {
+        double [] aScores = scores (a, score, maxExamples);
+        double [] bScores = scores (b, score, maxExamples);
+        PairList <A, B> result = new PairList <> ();
+        int i = 0;
+        int j = 0;
+        while (result.size () < maxExamples && (i < aScores.length || j < bScores.length)) {
+            if (j == bScores.length || (i < aScores.length && Double.compare (aScores [i], bScores [j]) <= 0)) {
+                result.add (a.get (i));
+                i++;
+            }
+            else {
+                result.add (b.get (j));
+                j++;
+            }
+        }
+        return result;
+    }
+    
     // Idea: The more occurences, the more reliable the information is.
     // E.g. 500/1000 it much more reliable than 1/2.
     // f = 1 ...... 0.60
@@ -68,4 +109,13 @@ public abstract class GenericNgramProperties <T> extends Tuple3 <LongFraction, L
     private static double reliability (long denominator) {
         return (1 - 0.4 / Math.sqrt (denominator));
     }
+    
+    // Scores of the examples which can be taken.
+    private static <A, B> double [] scores (PairList <A, B> examples, ToDoubleFunction <Pair <A, B>> score, int maxExamples) {
+        double [] result = new double [Math.min (examples.size (), Math.max (maxExamples, 0))];
+        for (int i = 0; i < result.length; i++) {
+            result [i] = score.applyAsDouble (examples.get (i));
+        }
+        return result;
+    }
 }
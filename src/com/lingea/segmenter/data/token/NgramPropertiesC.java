@@ -0,0 +1,73 @@
+package com.lingea.segmenter.data.token;
+
+import com.github.josefplch.utils.data.list.PairList;
+import com.github.josefplch.utils.data.math.fraction.LongFraction;
+import com.github.josefplch.utils.data.tuple.Pair;
+import com.github.josefplch.utils.data.tuple.UniformPair;
+import com.lingea.segmenter.data.ProbabilisticStringSegmentation;
+import java.util.function.IntFunction;
+
+/**
+ * Like NgramPropertiesA, but the examples are only referenced: by the index of
+ * the word in the segmented list, together with the score of the example (see
+ * NgramPropertiesA), so the words need not be kept in memory. The examples are
+ * resolved at the end (resolveExamples).
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public class NgramPropertiesC extends GenericNgramProperties <PairList <Integer, Double>> {
+    private static final long serialVersionUID = 1L;
+    
+    public NgramPropertiesC (LongFraction tf, LongFraction iwf, UniformPair <PairList <Integer, Double>> examples) {
+        super (tf, iwf, examples);
+    }
+    
+    /**
+     * Combine the properties of the same n-gram, see NgramPropertiesA.combine:
+     * the result is the same, with the examples referenced.
+     * 
+     * @param a           The properties (they are not modified).
+     * @param b           The following properties (neither modified).
+     * @param maxExamples Maximum number of positive and of negative examples.
+     * @return            The combined properties.
+     */
+    public static NgramPropertiesC combine (NgramPropertiesC a, NgramPropertiesC b, int maxExamples) {
+        return new NgramPropertiesC (
+            a.e1.sumElementWise (b.e1),
+            a.e2.sumElementWise (b.e2),
+            new UniformPair <> (
+                mergeExamples (a.e3.get1 (), b.e3.get1 (), Pair :: get2, maxExamples),
+                mergeExamples (a.e3.get2 (), b.e3.get2 (), Pair :: get2, maxExamples)
+            )
+        );
+    }
+    
+    /**
+     * @param segmentation Segmentation of the word.
+     * @param frequency    Frequency of the word.
+     * @return             Score of the word as an example (the lower, the
+     *                     better).
+     */
+    public static double exampleScore (ProbabilisticStringSegmentation segmentation, long frequency) {
+        return NgramPropertiesA.exampleScore (Pair.of (segmentation, frequency));
+    }
+    
+    /**
+     * @param examples Provider of the examples by word index (as in
+     *                 NgramPropertiesA.binarizeExamples).
+     * @return         The properties with the examples resolved.
+     */
+    public NgramPropertiesB resolveExamples (IntFunction <String> examples) {
+        return (
+            new NgramPropertiesB (
+                e1,
+                e2,
+                e3.map (references ->
+                    references.mapToString (reference -> examples.apply (reference.get1 ()))
+                )
+            )
+        );
+    }
+}
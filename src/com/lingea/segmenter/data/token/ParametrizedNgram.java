@@ -12,9 +12,11 @@ import com.lingea.segmenter.GlobalSettings;
  * 
  * @author  Josef Plch
  * @since   2019-06-14
- * @version 2021-01-12
+ * @version 2026-10-19
  */
 public class ParametrizedNgram extends Pair <StringList, NgramPropertiesB> {
+    // Number of columns of the serialized n-gram.
+    public static final int COLUMNS = 8;
     public static final String EXAMPLES_DELIMITER = " ";
     public static final String EXAMPLES_NEGATIVE = "NEG: ";
     public static final String EXAMPLES_POSITIVE = "POS: ";
@@ -13,6 +13,7 @@ import com.github.josefplch.utils.data.set.FunctionalSet;
 import com.github.josefplch.utils.data.string.DoubleFormatter;
 import com.github.josefplch.utils.data.tuple.Pair;
 import com.github.josefplch.utils.data.tuple.Tuple3;
+import com.github.josefplch.utils.system.CompressedStreams;
 import com.lingea.segmenter.GlobalSettings;
 import com.lingea.segmenter.data.ProbabilisticStringSegmentation;
 import com.lingea.segmenter.data.SimpleStringSegmentation;
@@ -24,7 +25,6 @@ import com.lingea.segmenter.substitus.data.SubstitusSetting4;
 import com.lingea.segmenter.substitus.data.TokenizerSettings;
 import com.lingea.segmenter.utils.ShowUtils;
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.Comparator;
@@ -42,7 +42,7 @@ import java.util.stream.Stream;
  * 
  * @author  Josef Plch
  * @since   2018-09-19
- * @version 2021-01-18
+ * @version 2026-10-19
  */
 public class SettingTestEvaluator {
     private static final boolean PRINT_BEST_SETTINGS = true;
@@ -126,7 +126,7 @@ public class SettingTestEvaluator {
         TestSet testSet,
         Map <SubstitusSetting4, ConfusionMatrix <Integer>> results
     ) throws IOException {
-        BufferedReader reader = new BufferedReader (new FileReader (inputFilePath));
+        BufferedReader reader = CompressedStreams.openReader (inputFilePath);
         
         Optional <String> headerLine = Optional.empty ();
         String line;
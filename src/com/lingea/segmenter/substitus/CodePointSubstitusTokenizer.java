@@ -0,0 +1,229 @@
+package com.lingea.segmenter.substitus;
+
+import com.github.josefplch.utils.data.list.CharList;
+import com.github.josefplch.utils.data.list.FunctionalList;
+import com.github.josefplch.utils.data.list.StringList;
+import com.github.josefplch.utils.data.string.StringUtils;
+import com.github.josefplch.utils.data.tree.IntAhoCorasickAutomaton;
+import com.github.josefplch.utils.system.TextFileUtils;
+import com.lingea.segmenter.GlobalSettings;
+import com.lingea.segmenter.StringSegmenter;
+import com.lingea.segmenter.substitus.data.TokenModelFile;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Same as StringSubstitusTokenizer (with the overlapping segmentation), but
+ * the atoms are Unicode code points stored in primitive arrays: nothing is
+ * boxed, and the supplementary characters (surrogate pairs) are never split.
+ * 
+ * The main method segmentizes a word given as an array of code points and
+ * returns the token boundaries, so that the caller (e.g. Utf8StreamTokenizer)
+ * does not have to create any strings at all.
+ * 
+ * The tokenizer is immutable, it can be used from several threads.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public class CodePointSubstitusTokenizer implements StringSegmenter {
+    private final IntUnaryOperator codePointPreprocessor;
+    // The atoms of the n-gram tokens (concatenated) and the (exclusive) end
+    // of every token, in the order of priority.
+    private final int [][] ngramAtoms;
+    private final int [][] ngramTokenEnds;
+    private final IntAhoCorasickAutomaton ngramMatcher;
+    
+    public CodePointSubstitusTokenizer (IntUnaryOperator codePointPreprocessor, FunctionalList <StringList> knownTokenSequences) {
+        this.codePointPreprocessor = codePointPreprocessor;
+        List <int []> atoms = new ArrayList <> ();
+        List <int []> tokenEnds = new ArrayList <> ();
+        for (StringList ngram : knownTokenSequences) {
+            int [] ends = new int [ngram.size ()];
+            StringBuilder concatenated = new StringBuilder ();
+            for (int t = 0; t < ngram.size (); t++) {
+                concatenated.append (ngram.get (t));
+                ends [t] = concatenated.codePointCount (0, concatenated.length ());
+            }
+            // An n-gram without atoms would be applicable everywhere, without
+            // any effect.
+            if (concatenated.length () > 0) {
+                atoms.add (concatenated.codePoints ().map (codePointPreprocessor).toArray ());
+                tokenEnds.add (ends);
+            }
+        }
+        this.ngramAtoms = atoms.toArray (new int [0][]);
+        this.ngramTokenEnds = tokenEnds.toArray (new int [0][]);
+        this.ngramMatcher = new IntAhoCorasickAutomaton (atoms);
+    }
+    
+    /**
+     * Create a new tokenizer based on provided token file.
+     * 
+     * @param codePointPreprocessor
+     * @param tokenFilePath A file containing token n-grams in the first column,
+     *                      or a compiled token model.
+     * @return              A new tokenizer based on the provided file.
+     * @throws IOException  If something goes wrong.
+     */
+    public static CodePointSubstitusTokenizer loadTokenFile (IntUnaryOperator codePointPreprocessor, String tokenFilePath) throws IOException {
+        FunctionalList <StringList> ngrams;
+        if (TokenModelFile.isModel (tokenFilePath)) {
+            ngrams = TokenModelFile.readNgrams (tokenFilePath);
+        }
+        else {
+            // The tokens are separated by space.
+            ngrams =
+                TextFileUtils.readColumn (tokenFilePath, 0)
+                .map (tokenNgram -> StringList.split (GlobalSettings.HARD_DELIMITER_STRING, tokenNgram));
+        }
+        return new CodePointSubstitusTokenizer (codePointPreprocessor, ngrams);
+    }
+    
+    @Override
+    public List <List <Character>> segmentize (List <Character> list) {
+        return (
+            this.segmentize (StringUtils.charListToString (list))
+            .<List <Character>> map (CharList :: fromString)
+        );
+    }
+    
+    @Override
+    public StringList segmentize (String string) {
+        int [] codePoints = string.codePoints ().toArray ();
+        int [] tokenEnds = new int [codePoints.length];
+        int tokens = this.segmentize (codePoints, codePoints.length, tokenEnds);
+        StringList result = new StringList ();
+        int start = 0;
+        int charStart = 0;
+        for (int t = 0; t < tokens; t++) {
+            int charEnd = string.offsetByCodePoints (charStart, tokenEnds [t] - start);
+            result.add (string.substring (charStart, charEnd));
+            start = tokenEnds [t];
+            charStart = charEnd;
+        }
+        return result;
+    }
+    
+    /**
+     * Segmentize the word.
+     * 
+     * @param codePoints The word, starting at index 0 (not modified).
+     * @param length     Length of the word (number of code points).
+     * @param tokenEnds  Output: the (exclusive) end of every token; it must
+     *                   have at least the length of the word.
+     * @return           The number of tokens.
+     */
+    public int segmentize (int [] codePoints, int length, int [] tokenEnds) {
+        int [] preprocessed = new int [length];
+        for (int i = 0; i < length; i++) {
+            preprocessed [i] = codePointPreprocessor.applyAsInt (codePoints [i]);
+        }
+        
+        // Token starts (there is always one at the end) and starts of the
+        // merged tokens, see TokenBoundaries.
+        boolean [] starts = new boolean [length + 1];
+        boolean [] merged = new boolean [length + 1];
+        for (int i = 0; i <= length; i++) {
+            starts [i] = true;
+        }
+        
+        // As applying is costy, we first find the present n-grams. They are
+        // applied in the original order.
+        BitSet presentNgrams = ngramMatcher.findPatterns (preprocessed, 0, length);
+        for (int n = presentNgrams.nextSetBit (0); n >= 0; n = presentNgrams.nextSetBit (n + 1)) {
+            apply (preprocessed, length, starts, merged, ngramAtoms [n], ngramTokenEnds [n]);
+        }
+        
+        int result = 0;
+        for (int i = 1; i <= length; i++) {
+            if (starts [i]) {
+                tokenEnds [result++] = i;
+            }
+        }
+        return result;
+    }
+    
+    // Same as TokenBoundaries.apply.
+    private static void apply (int [] word, int length, boolean [] starts, boolean [] merged, int [] atoms, int [] tokenEnds) {
+        int position = 0;
+        while (position < length) {
+            int end = matchAt (word, length, starts, merged, position, atoms, tokenEnds);
+            if (end >= 0) {
+                // Replace the tokens at the position with the n-gram tokens.
+                int from = 0;
+                for (int tokenEnd : tokenEnds) {
+                    if (tokenEnd > from) {
+                        starts [position + from] = true;
+                        merged [position + from] = true;
+                        for (int i = position + from + 1; i < position + tokenEnd; i++) {
+                            starts [i] = false;
+                            merged [i] = false;
+                        }
+                    }
+                    from = tokenEnd;
+                }
+                position = end;
+            }
+            else {
+                position = tokenEnd (starts, position);
+            }
+        }
+    }
+    
+    // Is the segmentation compatible with the n-gram at the (token) position?
+    // Returns the position after the n-gram, or -1 if it is not compatible.
+    private static int matchAt (int [] word, int length, boolean [] starts, boolean [] merged, int position, int [] atoms, int [] tokenEnds) {
+        int result = position;
+        int from = 0;
+        for (int t = 0; t < tokenEnds.length && result >= 0; t++) {
+            int tokenLength = tokenEnds [t] - from;
+            // Only a prefix of the n-gram is present.
+            if (result >= length) {
+                result = -1;
+            }
+            // Already merged (the same sequence token).
+            else if (merged [result] && tokenEnd (starts, result) - result == tokenLength && equalAtoms (word, result, atoms, from, tokenLength)) {
+                result += tokenLength;
+            }
+            // Not merged yet (a sequence of single atom tokens).
+            else if (areSingleAtoms (length, starts, merged, result, tokenLength) && equalAtoms (word, result, atoms, from, tokenLength)) {
+                result += tokenLength;
+            }
+            else {
+                result = -1;
+            }
+            from = tokenEnds [t];
+        }
+        return result;
+    }
+    
+    private static boolean areSingleAtoms (int length, boolean [] starts, boolean [] merged, int position, int tokenLength) {
+        boolean result = (position + tokenLength <= length);
+        for (int i = position; result && i < position + tokenLength; i++) {
+            result = (! merged [i] && starts [i + 1]);
+        }
+        return result;
+    }
+    
+    private static boolean equalAtoms (int [] word, int position, int [] atoms, int from, int tokenLength) {
+        boolean result = true;
+        for (int i = 0; result && i < tokenLength; i++) {
+            result = (word [position + i] == atoms [from + i]);
+        }
+        return result;
+    }
+    
+    // The end of the token starting at the position (exclusive).
+    private static int tokenEnd (boolean [] starts, int position) {
+        int result = position + 1;
+        while (! starts [result]) {
+            result++;
+        }
+        return result;
+    }
+}
@@ -3,6 +3,7 @@ package com.lingea.segmenter.substitus;
 import com.github.josefplch.utils.data.list.CharList;
 import com.github.josefplch.utils.data.tuple.Pair;
 import com.lingea.segmenter.ProbabilisticStringSegmenter;
+import com.lingea.segmenter.data.ProbabilisticSegmentation;
 import com.lingea.segmenter.data.ProbabilisticStringSegmentation;
 import com.lingea.segmenter.data.SimpleStringSegmentation;
 import com.lingea.segmenter.data.frequencyList.FrequencyListEntry;
@@ -18,7 +19,7 @@ import java.util.function.UnaryOperator;
  * 
  * @author  Josef Plch
  * @since   2018-05-18
- * @version 2020-12-11
+ * @version 2026-10-19
  */
 public class StringSubstitus extends Substitus <Character> implements ProbabilisticStringSegmenter {
     public StringSubstitus (
@@ -78,4 +79,10 @@ public class StringSubstitus extends Substitus <Character> implements Probabilis
     public ProbabilisticStringSegmentation segmentizeP (String compound) {
         return this.segmentizeP (CharList.fromString (compound));
     }
+    
+    public Pair <ProbabilisticStringSegmentation, Boolean> segmentizeWithinBudget (String compound) {
+        Pair <ProbabilisticSegmentation <Character>, Boolean> result =
+            super.segmentizeWithinBudget (CharList.fromString (compound));
+        return Pair.of (result.get1 ().mapToChar (c -> c), result.get2 ());
+    }
 }
@@ -6,6 +6,7 @@ import com.github.josefplch.utils.data.list.StringList;
 import com.github.josefplch.utils.system.TextFileUtils;
 import com.lingea.segmenter.GlobalSettings;
 import com.lingea.segmenter.StringSegmenter;
+import com.lingea.segmenter.substitus.data.TokenModelFile;
 import java.io.IOException;
 import java.util.function.UnaryOperator;
 
@@ -14,7 +15,7 @@ import java.util.function.UnaryOperator;
  * 
  * @author  Josef Plch
  * @since   2019-02-28
- * @version 2021-01-14
+ * @version 2026-10-19
  */
 public class StringSubstitusTokenizer extends SubstitusTokenizer <Character> implements StringSegmenter {
     public StringSubstitusTokenizer (UnaryOperator <Character> characterPreprocessor, FunctionalList <StringList> knownTokenSequences) {
@@ -25,16 +26,22 @@ public class StringSubstitusTokenizer extends SubstitusTokenizer <Character> imp
      * Create a new tokenizer based on provided token file.
      * 
      * @param characterPreprocessor
-     * @param tokenFilePath A file containing token n-grams in the first column.
+     * @param tokenFilePath A file containing token n-grams in the first column,
+     *                      or a compiled token model.
      * @return              A new tokenizer based on the provided file.
      * @throws IOException  If somethink goes wrong.
      */
     public static StringSubstitusTokenizer loadTokenFile (UnaryOperator <Character> characterPreprocessor, String tokenFilePath) throws IOException {
-        return new StringSubstitusTokenizer (
-            characterPreprocessor,
+        FunctionalList <StringList> ngrams;
+        if (TokenModelFile.isModel (tokenFilePath)) {
+            ngrams = TokenModelFile.readNgrams (tokenFilePath);
+        }
+        else {
             // The tokens are separated by space.
-            TextFileUtils.readColumn (tokenFilePath, 0)
-            .map (tokenNgram -> StringList.split (GlobalSettings.HARD_DELIMITER_STRING, tokenNgram))
-        );
+            ngrams =
+                TextFileUtils.readColumn (tokenFilePath, 0)
+                .map (tokenNgram -> StringList.split (GlobalSettings.HARD_DELIMITER_STRING, tokenNgram));
+        }
+        return new StringSubstitusTokenizer (characterPreprocessor, ngrams);
     }
 }
@@ -3,48 +3,159 @@ package com.lingea.segmenter.substitus;
 import com.github.josefplch.utils.data.list.CharList;
 import com.github.josefplch.utils.data.list.FunctionalList;
 import com.github.josefplch.utils.data.list.StringList;
-import com.github.josefplch.utils.data.string.AlignmentUtils;
-import com.github.josefplch.utils.data.string.DoubleFormatter;
 import com.github.josefplch.utils.data.string.StringUtils;
-import com.github.josefplch.utils.data.tuple.Pair;
 import com.github.josefplch.utils.system.TextFileUtils;
 import com.lingea.segmenter.data.token.ParametrizedNgram;
 import com.lingea.segmenter.GlobalSettings;
 import com.lingea.segmenter.StringSegmenter;
-import com.lingea.segmenter.utils.ShowUtils;
+import com.lingea.segmenter.substitus.data.TokenModelFile;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
- * Segmenter based on dynamic programming.
+ * Segmenter based on dynamic programming (Viterbi algorithm): the word is
+ * split into the most probable sequence of tokens, where the probability of
+ * a token depends on the next one (bigram), or only on itself (unigram).
+ * 
+ * The tokens are identified by numbers and found using a character trie, the
+ * log-probabilities are precomputed. Only the substrings not longer than the
+ * longest known token are considered, an unknown token longer than one
+ * character has zero probability.
+ * 
+ * The tokenizer is immutable, it can be used from several threads.
  * 
  * @author  Josef Plch
  * @since   2019-06-19
- * @version 2021-01-14
+ * @version 2026-10-19
  */
 public class StringViterbiTokenizer implements StringSegmenter {
-    private static final int VERBOSE = 0;
-    private final Map <StringList, ParametrizedNgram> ngrams;
+    // Only the n-grams with at least this IWF numerator are used.
+    private static final int MIN_IWF_NUMERATOR = 3;
+    private static final double UNKNOWN_CHARACTER_LOG_PROBABILITY = Math.log (0.001);
+    private static final int UNKNOWN = -1;
+    
+    // Trie over the known tokens, stored as compressed rows: the children of
+    // state s are at [childOffsets [s], childOffsets [s + 1]), sorted by label.
+    private final int [] childOffsets;
+    private final char [] childLabels;
+    private final int [] childStates;
+    // Token ID of the state, or UNKNOWN.
+    private final int [] stateTokens;
+    private final int maxTokenLength;
+    
+    // Log-probability of each token as unigram, NaN if there is no unigram.
+    private final double [] unigramLogProbabilities;
+    // Sorted bigram keys (pairs of token IDs) and their log-probabilities.
+    private final long [] bigramKeys;
+    private final double [] bigramLogProbabilities;
+    private final int openingTag;
+    private final int closingTag;
     
     public StringViterbiTokenizer (FunctionalList <ParametrizedNgram> ngrams) {
-        this.ngrams =
-            ngrams
-            .filter (ngram -> ngram.getIwf ().getNumerator () >= 3)
-            .mapToPair (ngram -> Pair.of (ngram.getNgram (), ngram))
-            .toMap ();
+        Map <String, Integer> tokenIds = new HashMap <> ();
+        Map <Integer, Double> unigrams = new HashMap <> ();
+        Map <Long, Double> bigrams = new HashMap <> ();
+        Set <StringList> known = new HashSet <> ();
+        for (ParametrizedNgram ngram : ngrams) {
+            if (ngram.getIwf ().getNumerator () >= MIN_IWF_NUMERATOR) {
+                StringList tokens = ngram.getNgram ();
+                if (! known.add (tokens)) {
+                    throw new IllegalStateException ("The list contains non-unique pair key: " + tokens);
+                }
+                int [] ids = new int [tokens.size ()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids [i] = tokenIds.computeIfAbsent (tokens.get (i), token -> tokenIds.size ());
+                }
+                // Longer n-grams are never looked up.
+                if (ids.length == 1) {
+                    unigrams.put (ids [0], Math.log (ngram.getTfRatio ()));
+                }
+                else if (ids.length == 2) {
+                    bigrams.put (bigramKey (ids [0], ids [1]), Math.log (ngram.getTfRatio ()));
+                }
+            }
+        }
+        
+        this.unigramLogProbabilities = new double [tokenIds.size ()];
+        Arrays.fill (unigramLogProbabilities, Double.NaN);
+        for (Map.Entry <Integer, Double> unigram : unigrams.entrySet ()) {
+            unigramLogProbabilities [unigram.getKey ()] = unigram.getValue ();
+        }
+        this.bigramKeys = bigrams.keySet ().stream ().mapToLong (Long :: longValue).sorted ().toArray ();
+        this.bigramLogProbabilities = new double [bigramKeys.length];
+        for (int i = 0; i < bigramKeys.length; i++) {
+            bigramLogProbabilities [i] = bigrams.get (bigramKeys [i]);
+        }
+        this.openingTag = tokenIds.getOrDefault (GlobalSettings.WORD_OPENING_TAG, UNKNOWN);
+        this.closingTag = tokenIds.getOrDefault (GlobalSettings.WORD_CLOSING_TAG, UNKNOWN);
+        
+        // Build the trie, then convert it to the compressed rows.
+        List <TreeMap <Character, Integer>> children = new ArrayList <> ();
+        List <Integer> tokens = new ArrayList <> ();
+        children.add (new TreeMap <> ());
+        tokens.add (UNKNOWN);
+        int maxLength = 1;
+        for (Map.Entry <String, Integer> token : tokenIds.entrySet ()) {
+            String string = token.getKey ();
+            maxLength = Math.max (maxLength, string.length ());
+            int state = 0;
+            for (int i = 0; i < string.length (); i++) {
+                Integer child = children.get (state).get (string.charAt (i));
+                if (child == null) {
+                    child = children.size ();
+                    children.get (state).put (string.charAt (i), child);
+                    children.add (new TreeMap <> ());
+                    tokens.add (UNKNOWN);
+                }
+                state = child;
+            }
+            if (state != 0) {
+                tokens.set (state, token.getValue ());
+            }
+        }
+        this.maxTokenLength = maxLength;
+        this.stateTokens = tokens.stream ().mapToInt (Integer :: intValue).toArray ();
+        this.childOffsets = new int [children.size () + 1];
+        this.childLabels = new char [children.size () - 1];
+        this.childStates = new int [children.size () - 1];
+        int offset = 0;
+        for (int state = 0; state < children.size (); state++) {
+            childOffsets [state] = offset;
+            for (Map.Entry <Character, Integer> child : children.get (state).entrySet ()) {
+                childLabels [offset] = child.getKey ();
+                childStates [offset] = child.getValue ();
+                offset++;
+            }
+        }
+        childOffsets [children.size ()] = offset;
+    }
+    
+    private static long bigramKey (int tokenA, int tokenB) {
+        return (((long) tokenA << 32) | (tokenB & 0xFFFFFFFFL));
+    }
+    
+    // Returns the child state, or -1 if there is none.
+    private int child (int state, char label) {
+        int index = Arrays.binarySearch (childLabels, childOffsets [state], childOffsets [state + 1], label);
+        return (index >= 0 ? childStates [index] : -1);
     }
     
     public static StringViterbiTokenizer load (String filePath) throws IOException {
-        return (
-            new StringViterbiTokenizer (
-                TextFileUtils.readLineList (filePath)
-                .map (ParametrizedNgram :: parse)
-            )
-        );
+        FunctionalList <ParametrizedNgram> ngrams;
+        if (TokenModelFile.isModel (filePath)) {
+            ngrams = TokenModelFile.readParametrizedNgrams (filePath);
+        }
+        else {
+            ngrams = TextFileUtils.readLineList (filePath).map (ParametrizedNgram :: parse);
+        }
+        return new StringViterbiTokenizer (ngrams);
     }
     
     public static void main (String tokenFilePath) {
@@ -67,151 +178,106 @@ public class StringViterbiTokenizer implements StringSegmenter {
         }
     }
     
+    public int getMaxTokenLength () {
+        return maxTokenLength;
+    }
+    
+    // Log-probability of the transition from token A to token B.
+    private double logTransition (int tokenA, int lengthA, int tokenB) {
+        double result;
+        int bigram =
+            (tokenA == UNKNOWN || tokenB == UNKNOWN)
+            ? -1
+            : Arrays.binarySearch (bigramKeys, bigramKey (tokenA, tokenB));
+        if (bigram >= 0) {
+            result = bigramLogProbabilities [bigram];
+        }
+        else if (tokenA != UNKNOWN && ! Double.isNaN (unigramLogProbabilities [tokenA])) {
+            result = unigramLogProbabilities [tokenA];
+        }
+        else {
+            // We move backwards, so we must use token A.
+            result = (lengthA == 1 ? UNKNOWN_CHARACTER_LOG_PROBABILITY : Double.NEGATIVE_INFINITY);
+        }
+        return result;
+    }
+    
     @Override
     public List <List <Character>> segmentize (List <Character> list) {
-        LinkedList <String> tokens = new LinkedList <> ();
-        this.segmentize (StringUtils.charListToString (list));
-        System.out.println ("Tokens: " + tokens);
-        return StringList.from (tokens).map (token -> CharList.fromString (token));
+        return (
+            this.segmentize (StringUtils.charListToString (list))
+            .<List <Character>> map (CharList :: fromString)
+        );
     }
     
-    // 00 > {11, 12, 13}, 01 > {22, 23}, 02 > {33},
-    // 11 > {22, 23}, 12 > {33},
-    // 22 > {33}
     @Override
     public StringList segmentize (String string) {
-        Map <Pair <Integer, Integer>, Pair <Double, Integer>> table = new HashMap <> ();
+        int n = string.length ();
+        int width = Math.min (maxTokenLength, n);
+        // Token IDs of the substrings [start, start + length), indexed by
+        // [start][length - 1].
+        int [][] tokens = new int [n][width];
+        for (int start = 0; start < n; start++) {
+            int state = 0;
+            for (int length = 1; length <= width; length++) {
+                state = (state < 0 || start + length > n) ? -1 : this.child (state, string.charAt (start + length - 1));
+                tokens [start][length - 1] = (state < 0) ? UNKNOWN : stateTokens [state];
+            }
+        }
         
-        // Fill the dynamic table.
-        for (int end = string.length () - 1; end >= 0; end--) {
-            for (int start = end; start >= 0; start--) {
-                String token = string.substring (start, end + 1);
-                if (VERBOSE >= 3) {
-                    System.out.println ("Indices: (" + start + ", " + end + "): " + token);
-                }
-                Double probability;
-                Pair <Double, Integer> bestSubresult = Pair.of (Double.NEGATIVE_INFINITY, -1);
-                if (end == string.length () - 1) {
-                    probability = Math.log (transitionProbability (token, GlobalSettings.WORD_CLOSING_TAG));
-                    if (VERBOSE >= 3) {
-                        System.out.println ("Direct: " + probability);
-                    }
-                    bestSubresult.set1 (probability);
+        // The best log-probability of the rest of the word, starting with the
+        // token [start, end], and the end of the next token (-1 at the end).
+        double [][] probabilities = new double [n][width];
+        int [][] nextEnds = new int [n][width];
+        for (int end = n - 1; end >= 0; end--) {
+            for (int start = end; start >= 0 && end - start < width; start--) {
+                int length = end - start + 1;
+                int token = tokens [start][length - 1];
+                double bestProbability = Double.NEGATIVE_INFINITY;
+                int bestNextEnd = -1;
+                if (end == n - 1) {
+                    bestProbability = this.logTransition (token, length, closingTag);
                 }
                 else {
-                    for (int nextEnd = string.length () - 1; nextEnd > end; nextEnd--) {
-                        String nextToken = string.substring (end + 1, nextEnd + 1);
-                        Pair <Double, Integer> next = table.get (Pair.of (end + 1, nextEnd));
-                        probability =
-                            Math.log (transitionProbability (token, nextToken))
-                            + next.get1 ()
-                            ;
-                        if (VERBOSE >= 3) {
-                            System.out.println (
-                                "Indices: (" + start + ", " + end + ")"
-                                + " -> (" + end + ", " + nextEnd + "): " + nextToken
-                                + ", probability: " + probability + ", translation: " + transitionProbability (token, nextToken)
-                            );
-                        }
-                        if (probability > bestSubresult.get1 ()) {
-                            bestSubresult = Pair.of (probability, nextEnd);
+                    // Ties: the longest next token wins.
+                    for (int nextEnd = Math.min (n - 1, end + width); nextEnd > end; nextEnd--) {
+                        int nextLength = nextEnd - end;
+                        double probability =
+                            this.logTransition (token, length, tokens [end + 1][nextLength - 1])
+                            + probabilities [end + 1][nextLength - 1];
+                        if (probability > bestProbability) {
+                            bestProbability = probability;
+                            bestNextEnd = nextEnd;
                         }
                     }
                 }
-                table.put (Pair.of (start, end), bestSubresult);
+                probabilities [start][length - 1] = bestProbability;
+                nextEnds [start][length - 1] = bestNextEnd;
             }
         }
         
-        // Print the table.
-        if (VERBOSE >= 2) {
-            System.out.println ("Table size: " + table.size ());
-            
-            // Header.
-            System.out.print (AlignmentUtils.toLeft ("", 8));
-            for (int hi = 0; hi < string.length (); hi++) {
-                System.out.print (
-                    AlignmentUtils.toLeft (
-                        "#" + hi + " " + string.substring (hi, hi + 1),
-                        30
-                    )
-                );
-            }
-            System.out.println ();
-            
-            // Body.
-            for (int vi = 0; vi < string.length (); vi++) {
-                System.out.print (
-                    AlignmentUtils.toLeft (
-                        "#" + vi + " " + string.substring (vi, vi + 1),
-                        8
-                    )
-                );
-                for (int hi = 0; hi < string.length (); hi++) {
-                    Pair <Double, Integer> cell = table.get (Pair.of (vi, hi));
-                    System.out.print (
-                        AlignmentUtils.toLeft (
-                            Optional.ofNullable (cell)
-                            .map (pair -> pair.map1 (p -> DoubleFormatter.POINT_6.format (100 * p))
-                            .toString ())
-                            .orElse ("--"),
-                            30
-                        )
-                    );
+        // Find the best first token. Ties: the shortest one wins.
+        StringList result = new StringList ();
+        if (n > 0) {
+            int end = 0;
+            double maxProbability = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < width; i++) {
+                double p =
+                    this.logTransition (openingTag, GlobalSettings.WORD_OPENING_TAG.length (), tokens [0][i])
+                    + probabilities [0][i];
+                if (p > maxProbability) {
+                    maxProbability = p;
+                    end = i;
                 }
-                System.out.println ();
-            }
-            System.out.println ();
-        }
-        
-        // Compute best segmentation.
-        int start = 0;
-        int end = 0;
-        double maxProbability = Double.NEGATIVE_INFINITY;
-        for (int i = 0; i < string.length (); i++) {
-            String prefix = string.substring (0, i + 1);
-            double p =
-                Math.log (transitionProbability (GlobalSettings.WORD_OPENING_TAG, prefix))
-                + table.get (Pair.of (0, i)).get1 ();
-            if (VERBOSE >= 2) {
-                System.out.println ("Prefix " + prefix + ": " + p);
-            }
-            if (p > maxProbability) {
-                maxProbability = p;
-                end = i;
             }
-        }
-        System.out.println (ShowUtils.showAsPercent (Math.exp (maxProbability)));
-        
-        StringList result = new StringList ();
-        while (end != -1) {
-            Pair <Double, Integer> pair = table.get (Pair.of (start, end));
-            String token = string.substring (start, end + 1);
-            result.add (token);
-            if (VERBOSE >= 1) {
-                System.out.println (
-                    "(" + start + ", " + end + "): " + token
-                    + " (" + ShowUtils.showAsPercent (Math.exp (pair.get1 ())) + ")"
-                );
+            int start = 0;
+            while (end != -1) {
+                result.add (string.substring (start, end + 1));
+                int nextEnd = nextEnds [start][end - start];
+                start = end + 1;
+                end = nextEnd;
             }
-            start = end + 1;
-            end = pair.get2 ();
         }
         return result;
     }
-    
-    private Double transitionProbability (String tokenA, String tokenB) {
-        StringList bigram = StringList.ofStrings (tokenA, tokenB);
-        return (
-            Optional.ofNullable (
-                ngrams.get (
-                    ngrams.containsKey (bigram)
-                    ? bigram
-                    : StringList.ofStrings (tokenA)
-                )
-            )
-            .map (ParametrizedNgram :: getTfRatio)
-            // We move backwards, so we must use tokenA.
-            .orElse (tokenA.length () == 1 ? 0.001 : 0)
-        );
-    }
 }
@@ -24,6 +24,7 @@ import com.github.josefplch.utils.system.MemoryUtils;
 import com.lingea.segmenter.Application;
 import com.lingea.segmenter.GlobalSettings;
 import com.lingea.segmenter.ProbabilisticSegmenter;
+import com.lingea.segmenter.Segmenter;
 import com.lingea.segmenter.data.ProbabilisticSegmentation;
 import com.lingea.segmenter.data.SimpleStringSegmentation;
 import com.lingea.segmenter.substitus.data.AffixInfo;
@@ -36,11 +37,13 @@ import java.io.Closeable;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.Writer;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
@@ -61,7 +64,7 @@ import java.util.function.UnaryOperator;
  * 
  * @author  Josef Plch
  * @since   2018-05-12
- * @version 2021-01-19
+ * @version 2026-10-19
  */
 public class Substitus <A> implements ProbabilisticSegmenter <A>, Closeable, Flushable {
     // The number of attributes must correspond to the table size (max: 2 * TS).
@@ -89,15 +92,20 @@ public class Substitus <A> implements ProbabilisticSegmenter <A>, Closeable, Flu
     private int minCompoundFrequency = 1;
     private int kMostFrequent = DEFAULT_K_MOST_FREQUENT;
     private int squareSize = DEFAULT_SQUARE_SIZE;
+    // Time budget per word in nanoseconds (0 = unlimited). When it runs out,
+    // the remaining positions are taken from the fallback segmenter.
+    private long timeBudget = 0;
+    private Optional <Segmenter <A>> fallbackSegmenter = Optional.empty ();
+    private final LongAdder degradedCount = new LongAdder ();
     
-    // Time counters.
+    // Time counters (shared by concurrent segmentations).
     private static final boolean PRINT_EXECUTION_TIME = true;
-    private long arffTime = 0;
-    private long bigCompoundTime = 0;
-    private long prefixTime = 0;
-    private long suffixTime = 0;
-    private long similarTime = 0;
-    private long totalTime = 0;
+    private final LongAdder arffTime = new LongAdder ();
+    private final LongAdder bigCompoundTime = new LongAdder ();
+    private final LongAdder prefixTime = new LongAdder ();
+    private final LongAdder suffixTime = new LongAdder ();
+    private final LongAdder similarTime = new LongAdder ();
+    private final LongAdder totalTime = new LongAdder ();
     
     public Substitus (UnaryOperator <A> atomPreprocessor, Writer outputWriter, Optional <Pair <Writer, Boolean>> arffSetting, int verbosity) throws IOException {
         this (new FrequencyTriePair <> (4), atomPreprocessor, outputWriter, arffSetting, verbosity);
@@ -891,6 +899,10 @@ public class Substitus <A> implements ProbabilisticSegmenter <A>, Closeable, Flu
         return result;
     }
     
+    public long getDegradedCount () {
+        return degradedCount.sum ();
+    }
+    
     // For graph, see the Excel file.
     private static Double lengthScore (int sequenceSize) {
         return (1.0 - 1.0 / (2.0 + sequenceSize));
@@ -900,6 +912,24 @@ public class Substitus <A> implements ProbabilisticSegmenter <A>, Closeable, Flu
         return lengthScore (sequence.size ());
     }
     
+    // Glues according to the fallback segmenter: 1 at the token boundaries.
+    private DoubleList fallbackGlues (List <A> compound) {
+        DoubleList result = new DoubleList ();
+        for (List <A> token : fallbackSegmenter.get ().segmentize (compound)) {
+            if (token.size () > 0) {
+                for (int i = 1; i < token.size (); i++) {
+                    result.add (0.0);
+                }
+                result.add (1.0);
+            }
+        }
+        // There is no glue after the last atom.
+        if (! result.isEmpty ()) {
+            result.remove (result.size () - 1);
+        }
+        return result;
+    }
+    
     public static double normalize (double probability, double normalizationMean) {
         return (Math.tanh (25.0 * (probability - normalizationMean)) + 1) / 2;
     }
@@ -1033,6 +1063,12 @@ public class Substitus <A> implements ProbabilisticSegmenter <A>, Closeable, Flu
         final int width1 = 24;
         final int width2 = 10;
         final int width3 = 9;
+        final long arffTime = this.arffTime.sum ();
+        final long bigCompoundTime = this.bigCompoundTime.sum ();
+        final long prefixTime = this.prefixTime.sum ();
+        final long suffixTime = this.suffixTime.sum ();
+        final long similarTime = this.similarTime.sum ();
+        final long totalTime = this.totalTime.sum ();
         final long otherTime = totalTime - (prefixTime + suffixTime + similarTime + bigCompoundTime + arffTime);
         
         System.err.println ();
@@ -1071,6 +1107,12 @@ public class Substitus <A> implements ProbabilisticSegmenter <A>, Closeable, Flu
             + AlignmentUtils.toRight ((totalTime / billion) + " s", width2)
             + " (" + (totalTime / billion / 60) + " min)"
         );
+        if (timeBudget > 0) {
+            System.err.println (
+                AlignmentUtils.toLeft ("Over time budget:", width1)
+                + AlignmentUtils.toRight (this.getDegradedCount () + " words", width2)
+            );
+        }
         System.err.flush ();
     }
     
@@ -1178,7 +1220,7 @@ public class Substitus <A> implements ProbabilisticSegmenter <A>, Closeable, Flu
                 orderedColumns.map1 (AffixInfo :: getForm)
             );
         }
-        bigCompoundTime += System.nanoTime () - bigCompoundTimeStart;
+        bigCompoundTime.add (System.nanoTime () - bigCompoundTimeStart);
         
         // Get the n best ordered affixes.
         FunctionalList <AffixInfo <A>> orderedPrefixesInfo = orderedRows.take (squareSize).firsts ();
@@ -1233,12 +1275,12 @@ public class Substitus <A> implements ProbabilisticSegmenter <A>, Closeable, Flu
         long prefixTimeStart = System.nanoTime ();
         PairList <FunctionalList <A>, Long> mostFrequentPrefixes =
             getMostFrequentEntriesBySuffix (testedSuffix, testedPrefix);
-        prefixTime += System.nanoTime () - prefixTimeStart;
+        prefixTime.add (System.nanoTime () - prefixTimeStart);
         
         long suffixTimeStart = System.nanoTime ();
         PairList <FunctionalList <A>, Long> mostFrequentSuffixes =
             getMostFrequentEntriesByPrefix (testedPrefix, testedSuffix);
-        suffixTime += System.nanoTime () - suffixTimeStart;
+        suffixTime.add (System.nanoTime () - suffixTimeStart);
         
         long similarTimeStart = System.nanoTime ();
         FunctionalList <AffixInfo <A>> prefixesBySimilarity =
@@ -1261,7 +1303,7 @@ public class Substitus <A> implements ProbabilisticSegmenter <A>, Closeable, Flu
                 mostFrequentSuffixes,
                 mostFrequentPrefixes.firsts ()
             );
-        similarTime += System.nanoTime () - similarTimeStart;
+        similarTime.add (System.nanoTime () - similarTimeStart);
         
         return (
             processSimilarAffixes (
@@ -1276,40 +1318,62 @@ public class Substitus <A> implements ProbabilisticSegmenter <A>, Closeable, Flu
     public ProbabilisticSegmentation <A> segmentizeAndPrintArff (
         List <A> compound,
         Optional <SimpleStringSegmentation> correctSegmentation
+    ) throws IOException {
+        return this.segmentizeWithBudget (compound, correctSegmentation).get1 ();
+    }
+    
+    // Returns the segmentation and whether it is degraded (the time budget
+    // has been exceeded).
+    private Pair <ProbabilisticSegmentation <A>, Boolean> segmentizeWithBudget (
+        List <A> compound,
+        Optional <SimpleStringSegmentation> correctSegmentation
     ) throws IOException {
         if (compound.isEmpty ()) {
             throw new IllegalArgumentException ("Cannot segmentize compound of zero length.");
         }
         long totalTimeStart = System.nanoTime ();
         FunctionalList <A> preprocessed = FunctionalList.from (compound).map (atomPreprocessor);
-        // Bug fixed on 2019-12-20: preprocessed.head replaced by compound.get (0).
-        ProbabilisticSegmentation <A> result = ProbabilisticSegmentation.atom (compound.get (0));
+        // The glues are collected first, appending to the segmentation would
+        // take quadratic time.
+        DoubleList glues = new DoubleList ();
+        Optional <FunctionalList <Optional <Boolean>>> correctGlues = correctSegmentation.map (SimpleStringSegmentation :: glues);
         
         if (verbosity >= 1) {
             outputWriter.append ('\n');
         }
+        // The time is checked before every position, a position which has
+        // been started is always finished.
+        long deadline = totalTimeStart + timeBudget;
+        boolean degraded = false;
         for (int i = 1; i < preprocessed.size (); i++) {
             final int prefixLength = i;
             
+            if (timeBudget > 0 && System.nanoTime () - deadline > 0) {
+                glues.addAll (this.fallbackGlues (compound).drop (i - 1));
+                degraded = true;
+                degradedCount.increment ();
+                break;
+            }
+            
             Pair <Double, Optional <List <Object>>> subresult =
                 segmentability (
                     preprocessed.take (prefixLength),
                     preprocessed.drop (prefixLength)
                 );
             
-            result.addLast (subresult.get1 (), compound.get (prefixLength));
+            glues.add (subresult.get1 ());
             
             // Write the ARFF instance.
-            if (arffWriter.isPresent () && correctSegmentation.isPresent ()) {
+            if (arffWriter.isPresent () && correctGlues.isPresent ()) {
                 long arffTimeStart = System.nanoTime ();
                 // Optional <Boolean> arffCategory = getArffCategory (prefixLength, correctSegmentation.get ());
-                Optional <Boolean> arffCategory = correctSegmentation.get ().glues ().get (i - 1);
+                Optional <Boolean> arffCategory = correctGlues.get ().get (i - 1);
                 if (arffCategory.isPresent ()) {
                     List <Object> arffInstance = subresult.get2 ().get ();
                     arffInstance.add (arffCategory.get () ? "1" : "0");
                     arffWriter.get ().writeInstance (arffInstance);
                 }
-                arffTime += System.nanoTime () - arffTimeStart;
+                arffTime.add (System.nanoTime () - arffTimeStart);
             }
         }
         
@@ -1317,12 +1381,34 @@ public class Substitus <A> implements ProbabilisticSegmenter <A>, Closeable, Flu
             outputWriter.flush ();
         }
         
-        totalTime += System.nanoTime () - totalTimeStart;
+        // Bug fixed on 2019-12-20: preprocessed.head replaced by compound.get (0).
+        ProbabilisticSegmentation <A> result = ProbabilisticSegmentation.of (compound, glues);
+        
+        totalTime.add (System.nanoTime () - totalTimeStart);
         if (PRINT_EXECUTION_TIME) {
             printExecutionTime ();
         }
         
-        return result;
+        return Pair.of (result, degraded);
+    }
+    
+    /**
+     * Segmentize the compound within the time budget (see setTimeBudget).
+     * 
+     * @param compound The compound to be segmentized.
+     * @return         The segmentation, and whether it is degraded, i.e. some
+     *                 of the positions come from the fallback segmenter.
+     */
+    public Pair <ProbabilisticSegmentation <A>, Boolean> segmentizeWithinBudget (List <A> compound) {
+        try {
+            return this.segmentizeWithBudget (compound, Optional.empty ());
+        }
+        catch (IOException exception) {
+            throw new RuntimeException (
+                "Segmentation of compound " + compound + " failed.",
+                exception
+            );
+        }
     }
     
     @Override
@@ -1338,6 +1424,23 @@ public class Substitus <A> implements ProbabilisticSegmenter <A>, Closeable, Flu
         }
     }
     
+    /**
+     * Limit the time spent on a single word. When the budget is exceeded,
+     * the scoring stops (after finishing the current position) and the rest
+     * of the word is segmentized by the fallback segmenter: its token
+     * boundaries get the glue 1, the other positions 0.
+     * 
+     * @param budget   Maximum time per word, zero means unlimited.
+     * @param fallback Fast segmenter, e.g. a token model or BPE.
+     */
+    public void setTimeBudget (Duration budget, Segmenter <A> fallback) {
+        if (budget.isNegative ()) {
+            throw new IllegalArgumentException ("The time budget must not be negative.");
+        }
+        this.timeBudget = budget.toNanos ();
+        this.fallbackSegmenter = Optional.of (fallback);
+    }
+    
     private static DoubleList selectScores (DoubleList scores) {
         return ATTRIBUTE_NUMBERS.mapToDouble (n -> scores.get (n - 1));
     }
@@ -0,0 +1,205 @@
+package com.lingea.segmenter.substitus;
+
+import com.github.josefplch.utils.data.list.FunctionalList;
+import com.lingea.segmenter.data.token.SequenceToken;
+import com.lingea.segmenter.data.token.SingleAtomToken;
+import com.lingea.segmenter.data.token.Token;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Segmentation of a word into tokens, represented by bitsets of token starts.
+ * It is an efficient equivalent of a list of tokens for the overlapping
+ * segmentation (see SubstitusTokenizer.useOverlappingSegmentation): applying
+ * an n-gram only checks and sets bits, nothing is allocated.
+ * 
+ * A token is either a single atom (SingleAtomToken) or merged from several
+ * atoms by some n-gram (SequenceToken, possibly of a single atom too). The
+ * difference matters: only single atoms may be merged into a new token.
+ * 
+ * @param <A> Type of the basic, atomic element (typically: byte or character).
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public class TokenBoundaries <A> {
+    private final Object [] atoms;
+    // Positions where the tokens start.
+    private final BitSet starts;
+    // Starts of the merged tokens (a subset of starts).
+    private final BitSet merged;
+    
+    /**
+     * Token n-gram prepared for repeated application: the atoms of all the
+     * tokens concatenated, and the (exclusive) end of every token.
+     * 
+     * @param <A> Type of the basic, atomic element.
+     */
+    public static final class Ngram <A> {
+        private final Object [] atoms;
+        private final int [] tokenEnds;
+        
+        public Ngram (List <? extends List <A>> tokens) {
+            this.tokenEnds = new int [tokens.size ()];
+            int length = 0;
+            for (int t = 0; t < tokens.size (); t++) {
+                length += tokens.get (t).size ();
+                tokenEnds [t] = length;
+            }
+            this.atoms = new Object [length];
+            int i = 0;
+            for (List <A> token : tokens) {
+                for (A atom : token) {
+                    atoms [i++] = atom;
+                }
+            }
+        }
+    }
+    
+    // Initialize: Each atom forms an individual token.
+    public TokenBoundaries (List <A> atoms) {
+        this.atoms = atoms.toArray ();
+        this.starts = new BitSet (this.atoms.length);
+        this.merged = new BitSet (this.atoms.length);
+        starts.set (0, this.atoms.length);
+    }
+    
+    public static <A> TokenBoundaries <A> fromTokens (List <? extends Token <A>> tokens) {
+        FunctionalList <A> atoms = new FunctionalList <> ();
+        for (Token <A> token : tokens) {
+            atoms.addAll (token.getAtoms ());
+        }
+        TokenBoundaries <A> result = new TokenBoundaries <> (atoms);
+        result.starts.clear ();
+        int position = 0;
+        for (Token <A> token : tokens) {
+            result.starts.set (position);
+            if (! (token instanceof SingleAtomToken)) {
+                result.merged.set (position);
+            }
+            position += token.size ();
+        }
+        return result;
+    }
+    
+    /**
+     * Apply the n-gram on compatible positions, overlapping is possible. Same
+     * as SubstitusTokenizer.useOverlappingSegmentation.
+     * 
+     * @param ngram The n-gram.
+     */
+    public void apply (Ngram <A> ngram) {
+        // An empty n-gram would be applicable everywhere, without any effect.
+        if (ngram.tokenEnds.length > 0) {
+            int position = 0;
+            while (position < atoms.length) {
+                int end = this.matchAt (position, ngram);
+                if (end >= 0) {
+                    this.merge (position, ngram);
+                    position = end;
+                }
+                else {
+                    position = this.tokenEnd (position);
+                }
+            }
+        }
+    }
+    
+    private boolean equalAtoms (int position, Ngram <A> ngram, int from, int length) {
+        boolean result = true;
+        for (int i = 0; result && i < length; i++) {
+            result = Objects.equals (atoms [position + i], ngram.atoms [from + i]);
+        }
+        return result;
+    }
+    
+    // Is the segmentation compatible with the n-gram at the (token) position?
+    // Returns the position after the n-gram, or -1 if it is not compatible.
+    private int matchAt (int position, Ngram <A> ngram) {
+        int result = position;
+        int from = 0;
+        for (int t = 0; t < ngram.tokenEnds.length && result >= 0; t++) {
+            int length = ngram.tokenEnds [t] - from;
+            // Only a prefix of the n-gram is present.
+            if (result >= atoms.length) {
+                result = -1;
+            }
+            // Already merged (the same sequence token).
+            else if (merged.get (result) && this.tokenEnd (result) - result == length && this.equalAtoms (result, ngram, from, length)) {
+                result += length;
+            }
+            // Not merged yet (a sequence of single atom tokens).
+            else if (this.areSingleAtoms (result, length) && this.equalAtoms (result, ngram, from, length)) {
+                result += length;
+            }
+            else {
+                result = -1;
+            }
+            from = ngram.tokenEnds [t];
+        }
+        return result;
+    }
+    
+    private boolean areSingleAtoms (int position, int length) {
+        boolean result = (position + length <= atoms.length);
+        for (int i = position; result && i < position + length; i++) {
+            result = (! merged.get (i) && this.tokenEnd (i) == i + 1);
+        }
+        return result;
+    }
+    
+    // Replace the tokens at the position with the n-gram tokens.
+    private void merge (int position, Ngram <A> ngram) {
+        int from = 0;
+        for (int end : ngram.tokenEnds) {
+            if (end > from) {
+                starts.set (position + from);
+                merged.set (position + from);
+                starts.clear (position + from + 1, position + end);
+                merged.clear (position + from + 1, position + end);
+            }
+            from = end;
+        }
+    }
+    
+    /**
+     * Split the list (of the same size as the word) at the token boundaries.
+     * 
+     * @param <B>  Type of the list elements.
+     * @param list The list to be split, e.g. the original atoms.
+     * @return     The parts corresponding to the tokens.
+     */
+    public <B> FunctionalList <List <B>> split (List <B> list) {
+        FunctionalList <List <B>> result = new FunctionalList <> ();
+        for (int start = 0; start < atoms.length; start = this.tokenEnd (start)) {
+            result.add (list.subList (start, this.tokenEnd (start)));
+        }
+        return result;
+    }
+    
+    // The end of the token starting at the position (exclusive).
+    private int tokenEnd (int position) {
+        int next = starts.nextSetBit (position + 1);
+        return (next < 0 ? atoms.length : next);
+    }
+    
+    @SuppressWarnings ("unchecked")
+    public FunctionalList <Token <A>> toTokens () {
+        FunctionalList <Token <A>> result = new FunctionalList <> ();
+        for (int start = 0; start < atoms.length; start = this.tokenEnd (start)) {
+            if (merged.get (start)) {
+                SequenceToken <A> token = new SequenceToken <> ();
+                for (int i = start; i < this.tokenEnd (start); i++) {
+                    token.add ((A) atoms [i]);
+                }
+                result.add (token);
+            }
+            else {
+                result.add (SingleAtomToken.from ((A) atoms [start]));
+            }
+        }
+        return result;
+    }
+}
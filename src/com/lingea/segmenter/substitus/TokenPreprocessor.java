@@ -5,29 +5,45 @@ import com.github.josefplch.utils.data.list.PairList;
 import com.github.josefplch.utils.data.map.MapUtils;
 import com.github.josefplch.utils.data.tuple.Pair;
 import com.github.josefplch.utils.data.list.StringList;
-import com.github.josefplch.utils.data.map.FrequencyHashMap;
+import com.github.josefplch.utils.data.map.CountMinSketch;
+import com.github.josefplch.utils.data.map.ObjectLongHashMap;
 import com.github.josefplch.utils.data.math.fraction.LongFraction;
-import com.github.josefplch.utils.data.set.FunctionalSet;
+import com.github.josefplch.utils.data.set.StringSet;
+import com.github.josefplch.utils.data.tuple.Tuple4;
 import com.github.josefplch.utils.data.tuple.UniformPair;
+import com.github.josefplch.utils.system.CompressedStreams;
+import com.github.josefplch.utils.system.ParallelTasks;
 import com.lingea.segmenter.data.token.ParametrizedNgram;
 import com.lingea.segmenter.GlobalSettings;
 import com.lingea.segmenter.data.ProbabilisticStringSegmentation;
-import com.lingea.segmenter.data.token.NgramPropertiesA;
+import com.lingea.segmenter.data.token.NgramPropertiesC;
 import com.lingea.segmenter.substitus.data.SegmentationFileReader;
-import com.lingea.segmenter.utils.SegmentationUtils;
-import java.io.BufferedReader;
+import com.lingea.segmenter.utils.ChunkNgramEnumerator;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Stream;
 
 /**
  * @author  Josef Plch
  * @since   2018-08-13
- * @version 2021-01-18
+ * @version 2026-10-19
  */
 public class TokenPreprocessor {
     private static final Function <ProbabilisticStringSegmentation, StringList> BINARIZE_50 =
@@ -43,6 +59,11 @@ public class TokenPreprocessor {
     private static final Function <ProbabilisticStringSegmentation, StringList> SURE_90 =
         segmentation -> segmentation.sureTokensS (0.10, 0.90);
     
+    // Number of words read at once.
+    private static final int BATCH_SIZE = 100_000;
+    // Smaller blocks of words are not worth a thread.
+    private static final int MIN_BLOCK_SIZE = 1_000;
+    
     private final UniformPair <Boolean> addBoundaries;
     private final Function <ProbabilisticStringSegmentation, StringList> binarizer = BINARIZE_50;
     private final int maxExamples;
@@ -51,15 +72,33 @@ public class TokenPreprocessor {
     // Solution: Ignore them, they are probably garbage anyway :-)
     private final int maxWordLength; // Recommended: at most 50
     private final int minNgramTf; // Recommended: 100
+    private final int threads;
     private final double threshold;
+    // Number of counters, 0 = count all the n-grams exactly (in one pass).
+    private int ngramSketchSize = 0;
+    
+    // Segmented words (normalized segmentation, frequency) in the order of the
+    // list; they can be read repeatedly.
+    @FunctionalInterface
+    private static interface WordSource {
+        public void forEachWord (Consumer <Pair <ProbabilisticStringSegmentation, Long>> action) throws IOException;
+    }
     
     public TokenPreprocessor (int maxWordLength, int maxNgramLevel, int minNgramTf, UniformPair <Boolean> addBoundaries, double threshold, int maxExamples) {
+        this (maxWordLength, maxNgramLevel, minNgramTf, addBoundaries, threshold, maxExamples, 1);
+    }
+    
+    public TokenPreprocessor (int maxWordLength, int maxNgramLevel, int minNgramTf, UniformPair <Boolean> addBoundaries, double threshold, int maxExamples, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException ("The number of threads must be positive.");
+        }
         this.threshold = threshold;
         this.maxWordLength = maxWordLength;
         this.maxNgramLevel = maxNgramLevel;
         this.minNgramTf = minNgramTf;
         this.addBoundaries = addBoundaries;
         this.maxExamples = maxExamples;
+        this.threads = threads;
     }
     
     private StringList binarize (ProbabilisticStringSegmentation segmentation) {
@@ -74,128 +113,207 @@ public class TokenPreprocessor {
         return result;
     }
     
-    // Note: The result n-grams are not unique.
-    private PairList <StringList, Long> expandToNgrams (PairList <StringList, Long> tokenizedWords) throws IOException {
-        return (
-            tokenizedWords
-            // Get all token sublists up to the permitted length.
-            .flatMap (
-                tokenizedWordAndFrequency ->
-                    tokenizedWordAndFrequency.get1 ().sublists (1, maxNgramLevel)
-                    .map (ngram -> Pair.of (ngram, tokenizedWordAndFrequency.get2 ())),
-                PairList :: new
-            )
-        );
+    // The words are read in batches. Every batch is split into consecutive
+    // blocks processed in parallel, every one into its own map. The maps are
+    // combined in the order of the words, which gives the same examples as
+    // processing the words one by one.
+    private Map <StringList, NgramPropertiesC> computeNgramProperties (WordSource words, ChunkNgramEnumerator knownNgrams) throws IOException {
+        Map <StringList, NgramPropertiesC> result = new HashMap <> ();
+        ExecutorService executor = (threads > 1) ? Executors.newFixedThreadPool (threads) : null;
+        try {
+            PairList <ProbabilisticStringSegmentation, Long> batch = new PairList <> ();
+            int [] batchStart = {0};
+            words.forEachWord (word -> {
+                batch.add (word);
+                if (batch.size () == BATCH_SIZE) {
+                    computeNgramProperties (batch, batchStart [0], knownNgrams, executor, result);
+                    batchStart [0] += batch.size ();
+                    batch.clear ();
+                }
+            });
+            computeNgramProperties (batch, batchStart [0], knownNgrams, executor, result);
+        }
+        finally {
+            if (executor != null) {
+                executor.shutdownNow ();
+            }
+        }
+        return result;
     }
     
-    public void findTokenNgrams (BufferedReader frequencyListReader, Optional <Integer> frequencyListLimit, Writer writer) throws IOException {
-        FunctionalList <ParametrizedNgram> ngrams =
-            findTokenNgrams (
-                frequencyListReader,
-                frequencyListLimit
-            );
-        System.err.println (
-            "N-grams: " + ngrams.size ()
-            + ", unigrams: " + ngrams.countIf (ngram -> ngram.getNgram ().size () == 1)
-        );
+    private void computeNgramProperties (
+        PairList <ProbabilisticStringSegmentation, Long> batch,
+        int batchStart,
+        ChunkNgramEnumerator knownNgrams,
+        ExecutorService executor,
+        Map <StringList, NgramPropertiesC> result
+    ) {
+        int blocks = (executor == null) ? 1 : Math.max (1, Math.min (threads, batch.size () / MIN_BLOCK_SIZE));
+        if (blocks == 1) {
+            mergeNgramProperties (result, computeNgramProperties (batch, batchStart, knownNgrams, 0, batch.size ()));
+            return;
+        }
         
-        System.err.println ("Writing the output ...");
-        for (ParametrizedNgram ngram : ngrams) {
-            writer.write (ngram.serialize () + "\n");
+        FunctionalList <Callable <Map <StringList, NgramPropertiesC>>> blockTasks = new FunctionalList <> ();
+        for (int block = 0; block < blocks; block++) {
+            int from = (int) ((long) batch.size () * block / blocks);
+            int to = (int) ((long) batch.size () * (block + 1) / blocks);
+            blockTasks.add (() -> computeNgramProperties (batch, batchStart, knownNgrams, from, to));
+        }
+        for (Map <StringList, NgramPropertiesC> partialResult : ParallelTasks.invokeAllUnchecked (executor, blockTasks, "Computing of n-gram properties")) {
+            mergeNgramProperties (result, partialResult);
         }
-        writer.flush ();
     }
     
-    public FunctionalList <ParametrizedNgram> findTokenNgrams (BufferedReader frequencyListReader, Optional <Integer> frequencyListLimit) throws IOException {
-        System.err.println ("Loading segmentations ...");
-        // We need to keep the probabilistic version of segmentations since we
-        // will use it in n-gram examples.
-        PairList <ProbabilisticStringSegmentation, Long> segmentedWords =
-            SegmentationFileReader.readList (frequencyListReader, frequencyListLimit)
-            .mapToPair (line -> Pair.of (line.get4 ().normalize (threshold), line.get1 ()));
-        System.err.println ("Loaded words: " + segmentedWords.size ());
-        
-        // First, we compute only frequencies (NF), because we will use them
-        // for filtering.
-        // TODO: Wouldn't it be better to filter based on token frequencies?
-        System.err.println ("Counting n-gram frequencies ...");
-        Map <StringList, Long> ngramFrequencies =
-            FrequencyHashMap.ofCounted (
-                expandToNgrams (
-                    segmentedWords.map1 (this :: binarize)
-                )
-            );
-        
-        System.err.println ("Computing n-gram properties ...");
-        Map <StringList, NgramPropertiesA> ngramProperties = new HashMap <> ();
-        int wordIndex = 0;
-        long lastTime = 0;
-        for (Pair <ProbabilisticStringSegmentation, Long> pair : segmentedWords) {
+    private Map <StringList, NgramPropertiesC> computeNgramProperties (
+        PairList <ProbabilisticStringSegmentation, Long> batch,
+        int batchStart,
+        ChunkNgramEnumerator knownNgrams,
+        int from,
+        int to
+    ) {
+        Map <StringList, NgramPropertiesC> ngramProperties = new HashMap <> ();
+        for (int i = from; i < to; i++) {
+            Pair <ProbabilisticStringSegmentation, Long> pair = batch.get (i);
             StringList tokenizedWord = binarize (pair.get1 ());
             Long frequency = pair.get2 ();
+            int wordIndex = batchStart + i;
             
             int thousand = 1_000;
             if (wordIndex % 10_000 == 0) {
-                long time = System.currentTimeMillis ();
-                String message =
-                    "* Processing word"
-                    + " " + (wordIndex / thousand) + "k"
-                    + "/" + (segmentedWords.size () / thousand) + "k";
-                
-                if (wordIndex > 0) {
-                    long seconds = (time - lastTime) / 1_000;
-                    message += " (previous batch: " + seconds + " s)";
-                }
-                
-                System.err.println (message);
-                lastTime = time;
+                System.err.println ("* Processing word " + (wordIndex / thousand) + "k");
             }
             String word = tokenizedWord.join ();
             // Ignore long words.
             if (word.length () <= maxWordLength) {
-                // System.err.println (word + " (length " + word.length () + "):");
-                long decompositionStart = System.nanoTime ();
-                // (n-gram level + 1) splits are needed to achieve precise
-                // results. Caution: the computation complexity grows rapidly
-                // with growing n-gram level.
-                FunctionalList <StringList> decompositions =
-                    SegmentationUtils.decompose (
-                        word,
-                        Optional.of (maxNgramLevel + 1)
+                // The examples refer to the word by its index.
+                PairList <Integer, Double> example = PairList.ofPairs (Pair.of (wordIndex, NgramPropertiesC.exampleScore (pair.get1 (), frequency)));
+                PairList <Integer, Double> nothing = PairList.ofPairs ();
+                
+                // Every n-gram of chunks (the word split anywhere) is taken
+                // exactly once.
+                Consumer <StringList> addNgram = ngram -> {
+                    boolean isInAnalysis = tokenizedWord.hasInfix (ngram);
+                    ngramProperties.merge (
+                        ngram,
+                        new NgramPropertiesC (
+                            LongFraction.of (isInAnalysis ? frequency : 0L, frequency),
+                            LongFraction.of (isInAnalysis ? 1L : 0L, 1L),
+                            new UniformPair <> (isInAnalysis ? example : nothing, isInAnalysis ? nothing : example)
+                        ),
+                        (oldValue, newValue) -> NgramPropertiesC.combine (oldValue, newValue, maxExamples)
                     );
-                if (System.nanoTime () - decompositionStart > Math.pow (10, 9)) {
-                    System.err.println ("WARNING: Slow decomposition: " + word);
+                };
+                if (knownNgrams != null) {
+                    knownNgrams.forEachKnownNgram (word, maxNgramLevel, addNgram);
                 }
-                // System.err.println (" " + decompositions.size () + " decompositions");
-                
-                FunctionalSet <StringList> chunkNgrams =
-                    decompositions.flatMap (
-                        decomposition -> decomposition.sublists (1, maxNgramLevel)
-                    )
-                    // Remove duplicite elements.
-                    .toSet ();
-                
-                for (StringList ngram : chunkNgrams) {
-                    // We are interested only in known n-grams (it saves lots of memory).
-                    if (ngramFrequencies.getOrDefault (ngram, 0L) >= minNgramTf) {
-                        boolean isInAnalysis = tokenizedWord.hasInfix (ngram);
-                        PairList <ProbabilisticStringSegmentation, Long> example = PairList.ofPairs (pair);
-                        PairList <ProbabilisticStringSegmentation, Long> nothing = PairList.ofPairs ();
-                        
-                        ngramProperties.merge (
-                            ngram,
-                            new NgramPropertiesA (
-                                LongFraction.of (isInAnalysis ? frequency : 0L, frequency),
-                                LongFraction.of (isInAnalysis ? 1L : 0L, 1L),
-                                new UniformPair <> (isInAnalysis ? example : nothing, isInAnalysis ? nothing : example)
-                            ),
-                            (oldValue, newValue) -> NgramPropertiesA.combine (oldValue, newValue, maxExamples)
-                        );
-                    }
+                else {
+                    ChunkNgramEnumerator.forEachChunkNgram (word, maxNgramLevel, addNgram);
                 }
             }
-            wordIndex++;
         }
+        return ngramProperties;
+    }
+    
+    // Count the n-grams in two passes: the first one estimates the frequencies
+    // of all of them in the sketch (in fixed memory), the second one counts
+    // exactly only the n-grams estimated to be frequent enough. The sketch
+    // never underestimates, so no frequent n-gram is missed.
+    private List <StringList> countFrequentNgramsInSketch (WordSource words) throws IOException {
+        CountMinSketch sketch = CountMinSketch.ofSize (ngramSketchSize);
+        System.err.println ("* Estimating n-gram frequencies (sketch: " + sketch.getDepth () + " x " + sketch.getWidth () + ") ...");
+        forEachNgram (words, (ngram, frequency) -> sketch.add (ngramHash (ngram), frequency));
+        
+        System.err.println ("* Counting candidate n-grams ...");
+        ObjectLongHashMap <StringList> candidates = new ObjectLongHashMap <> ();
+        forEachNgram (words, (ngram, frequency) -> {
+            if (sketch.estimate (ngramHash (ngram)) >= minNgramTf) {
+                candidates.addTo (ngram, frequency);
+            }
+        });
+        
+        List <StringList> result = new ArrayList <> ();
+        candidates.forEach ((ngram, frequency) -> {
+            if (frequency >= minNgramTf) {
+                result.add (ngram);
+            }
+        });
+        System.err.println ("* Candidate n-grams: " + candidates.size () + ", frequent: " + result.size ());
+        return result;
+    }
+    
+    // Find the n-grams with frequency at least minNgramTf.
+    private List <StringList> findFrequentNgrams (WordSource words) throws IOException {
+        System.err.println ("Counting n-gram frequencies ...");
+        List <StringList> result;
+        if (ngramSketchSize > 0) {
+            result = countFrequentNgramsInSketch (words);
+        }
+        else {
+            ObjectLongHashMap <StringList> frequencies = new ObjectLongHashMap <> ();
+            forEachNgram (words, frequencies :: addTo);
+            result = new ArrayList <> ();
+            frequencies.forEach ((ngram, frequency) -> {
+                if (frequency >= minNgramTf) {
+                    result.add (ngram);
+                }
+            });
+        }
+        return result;
+    }
+    
+    // The segmented list may be either text or binary.
+    public void findTokenNgrams (InputStream segmentedListInput, Optional <Integer> frequencyListLimit, Writer writer) throws IOException {
+        writeNgrams (findTokenNgrams (segmentedListInput, frequencyListLimit), writer);
+    }
+    
+    public FunctionalList <ParametrizedNgram> findTokenNgrams (InputStream segmentedListInput, Optional <Integer> frequencyListLimit) throws IOException {
+        System.err.println ("Loading segmentations ...");
+        // We need to keep the probabilistic version of segmentations since we
+        // will use it in n-gram examples.
+        PairList <ProbabilisticStringSegmentation, Long> segmentedWords =
+            SegmentationFileReader.readList (segmentedListInput, frequencyListLimit)
+            .mapToPair (line -> Pair.of (line.get4 ().normalize (threshold), line.get1 ()));
+        System.err.println ("Loaded words: " + segmentedWords.size ());
+        return findTokenNgrams (segmentedWords :: forEach);
+    }
+    
+    /**
+     * Find the token n-grams in a segmented list (text or binary, possibly
+     * compressed) without loading it: the file is read repeatedly (2 times to
+     * count the n-grams with the sketch, once otherwise; once to compute the
+     * n-gram properties; once to get the examples).
+     * 
+     * @param segmentedListPath  Path to the segmented list.
+     * @param frequencyListLimit Maximum number of words to be read.
+     * @param writer             The output.
+     * @throws IOException If the list cannot be read or the output written.
+     */
+    public void findTokenNgrams (Path segmentedListPath, Optional <Integer> frequencyListLimit, Writer writer) throws IOException {
+        writeNgrams (findTokenNgrams (segmentedListPath, frequencyListLimit), writer);
+    }
+    
+    public FunctionalList <ParametrizedNgram> findTokenNgrams (Path segmentedListPath, Optional <Integer> frequencyListLimit) throws IOException {
+        return findTokenNgrams (readSegmentedList (segmentedListPath, frequencyListLimit));
+    }
+    
+    private FunctionalList <ParametrizedNgram> findTokenNgrams (WordSource words) throws IOException {
+        // First, we compute only frequencies (NF), because we will use them
+        // for filtering.
+        // TODO: Wouldn't it be better to filter based on token frequencies?
+        // Only the frequent n-grams are searched for in the words (it saves
+        // lots of memory). If even the unknown ones are accepted, all the
+        // n-grams of chunks have to be generated.
+        ChunkNgramEnumerator knownNgrams =
+            (minNgramTf > 0)
+            ? new ChunkNgramEnumerator (findFrequentNgrams (words))
+            : null;
+        
+        System.err.println ("Computing n-gram properties ...");
+        Map <StringList, NgramPropertiesC> ngramProperties = computeNgramProperties (words, knownNgrams);
+        
+        System.err.println ("Resolving examples ...");
+        Map <Integer, String> examples = resolveExamples (words, ngramProperties.values ());
         
         System.err.println ("Generating n-gram list ...");
         FunctionalList <ParametrizedNgram> ngramsList =
@@ -203,13 +321,108 @@ public class TokenPreprocessor {
             .map (pair ->
                 new ParametrizedNgram (
                     pair.get1 (),
-                    pair.get2 ().binarizeExamples ()
+                    pair.get2 ().resolveExamples (examples :: get)
                 )
             )
             .sortBy (
-                Comparator.comparing (ngram -> ngram.getNgram ().join ())
+                Comparator.comparing ((ParametrizedNgram ngram) -> ngram.getNgram ().join ())
+                // The same string split differently.
+                .thenComparing (ngram -> ngram.getNgram ().join (' '))
             );
         
         return ngramsList;
     }
+    
+    // Get all token sublists (up to the permitted length) of all the words.
+    // Note: The n-grams are not unique.
+    private void forEachNgram (WordSource words, ObjLongConsumer <StringList> action) throws IOException {
+        words.forEachWord (word -> {
+            for (StringList ngram : binarize (word.get1 ()).sublists (1, maxNgramLevel)) {
+                action.accept (ngram, word.get2 ());
+            }
+        });
+    }
+    
+    private void mergeNgramProperties (Map <StringList, NgramPropertiesC> result, Map <StringList, NgramPropertiesC> partialResult) {
+        for (Map.Entry <StringList, NgramPropertiesC> entry : partialResult.entrySet ()) {
+            result.merge (
+                entry.getKey (),
+                entry.getValue (),
+                (oldValue, newValue) -> NgramPropertiesC.combine (oldValue, newValue, maxExamples)
+            );
+        }
+    }
+    
+    // 64-bit hash of the n-gram for the sketch.
+    private static long ngramHash (StringList ngram) {
+        long result = ngram.size ();
+        for (String token : ngram) {
+            result = (result ^ token.hashCode ()) * 0x9E3779B97F4A7C15L;
+            result ^= (result >>> 29);
+        }
+        return result;
+    }
+    
+    private WordSource readSegmentedList (Path path, Optional <Integer> limit) {
+        return action -> {
+            try (
+                InputStream input = CompressedStreams.openInput (path.toString ());
+                Stream <Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation>> entries = SegmentationFileReader.readStream (input, limit)
+            ) {
+                entries.forEach (line -> action.accept (Pair.of (line.get4 ().normalize (threshold), line.get1 ())));
+            }
+            catch (UncheckedIOException exception) {
+                throw exception.getCause ();
+            }
+        };
+    }
+    
+    // Get the referenced examples (as in NgramPropertiesA.binarizeExamples).
+    private static Map <Integer, String> resolveExamples (WordSource words, Collection <NgramPropertiesC> ngramProperties) throws IOException {
+        BitSet referenced = new BitSet ();
+        Consumer <PairList <Integer, Double>> markReferenced =
+            references -> references.forEach (reference -> referenced.set (reference.get1 ()));
+        for (NgramPropertiesC properties : ngramProperties) {
+            markReferenced.accept (properties.getExamples ().get1 ());
+            markReferenced.accept (properties.getExamples ().get2 ());
+        }
+        Map <Integer, String> result = new HashMap <> ();
+        int [] wordIndex = {0};
+        words.forEachWord (word -> {
+            if (referenced.get (wordIndex [0])) {
+                result.put (wordIndex [0], word.get1 ().elements ().toString ());
+            }
+            wordIndex [0]++;
+        });
+        return result;
+    }
+    
+    /**
+     * Count the n-gram frequencies (for the filtering by minNgramTf) in two
+     * passes, using a Count-Min sketch: only the n-grams estimated to be
+     * frequent enough are stored. The result is the same, but the memory is
+     * bounded by the size of the sketch and the number of the candidates.
+     * 
+     * @param size Number of counters (8 bytes each), 0 = count all the
+     *             n-grams exactly.
+     */
+    public void setNgramSketchSize (int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException ("The sketch size must not be negative.");
+        }
+        this.ngramSketchSize = size;
+    }
+    
+    private static void writeNgrams (FunctionalList <ParametrizedNgram> ngrams, Writer writer) throws IOException {
+        System.err.println (
+            "N-grams: " + ngrams.size ()
+            + ", unigrams: " + ngrams.countIf (ngram -> ngram.getNgram ().size () == 1)
+        );
+        
+        System.err.println ("Writing the output ...");
+        for (ParametrizedNgram ngram : ngrams) {
+            writer.write (ngram.serialize () + "\n");
+        }
+        writer.flush ();
+    }
 }
@@ -7,14 +7,14 @@ import com.github.josefplch.utils.data.list.StringList;
 import com.github.josefplch.utils.data.map.MapUtils;
 import com.github.josefplch.utils.data.tuple.Tuple3;
 import com.github.josefplch.utils.data.tuple.UniformPair;
+import com.github.josefplch.utils.system.CompressedStreams;
 import com.github.josefplch.utils.system.TextFileUtils;
 import com.lingea.segmenter.GlobalSettings;
 import com.lingea.segmenter.data.token.NgramPropertiesB;
 import com.lingea.segmenter.data.token.ParametrizedNgram;
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
@@ -23,7 +23,7 @@ import java.util.function.Function;
 /**
  * @author  Josef Plch
  * @since   2019-05-11
- * @version 2021-01-14
+ * @version 2026-10-19
  */
 public class TokenTuner {
     private static final boolean DISCARD_ADJACENT_UNIGRAMS = true; // Recommended: true
@@ -217,14 +217,17 @@ public class TokenTuner {
     public void tuneFiles (StringList inputFilePaths, String outputDirectory, String outputFilesPrefix) throws IOException {
         Map <StringList, NgramPropertiesB> ngramMap = new HashMap <> ();
         for (String inputFilePath : inputFilePaths) {
-            Files.lines (Paths.get (inputFilePath)).forEach (line -> {
-                ParametrizedNgram ngram = ParametrizedNgram.parse (line);
-                ngramMap.merge (
-                    ngram.getNgram (),
-                    ngram.getProperties (),
-                    NgramPropertiesB :: combine
-                );
-            });
+            // The file may be compressed.
+            try (BufferedReader reader = CompressedStreams.openReader (inputFilePath, StandardCharsets.UTF_8)) {
+                reader.lines ().forEach (line -> {
+                    ParametrizedNgram ngram = ParametrizedNgram.parse (line);
+                    ngramMap.merge (
+                        ngram.getNgram (),
+                        ngram.getProperties (),
+                        NgramPropertiesB :: combine
+                    );
+                });
+            }
         }
         FunctionalList <ParametrizedNgram> ngrams =
             MapUtils.toList (ngramMap).map (p ->
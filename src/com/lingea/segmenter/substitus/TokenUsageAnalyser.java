@@ -7,9 +7,9 @@ import com.github.josefplch.utils.data.list.number.DoubleList;
 import com.github.josefplch.utils.data.math.Mean;
 import com.github.josefplch.utils.data.set.StringSet;
 import com.github.josefplch.utils.data.string.AlignmentUtils;
+import com.github.josefplch.utils.data.string.CollationUtils;
 import com.github.josefplch.utils.data.string.DoubleFormatter;
 import com.github.josefplch.utils.data.string.StringUtils;
-import com.github.josefplch.utils.data.tuple.Pair;
 import com.github.josefplch.utils.data.tuple.Tuple3;
 import com.github.josefplch.utils.data.tuple.Tuple4;
 import com.github.josefplch.utils.system.TextFileUtils;
@@ -17,8 +17,11 @@ import com.lingea.segmenter.GlobalSettings;
 import com.lingea.segmenter.data.ProbabilisticStringSegmentation;
 import com.lingea.segmenter.data.SimpleStringSegmentation;
 import com.lingea.segmenter.substitus.data.SegmentationFileReader;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Writer;
 import java.text.Collator;
 import java.util.Comparator;
@@ -30,12 +33,13 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * @author  Josef Plch
  * @since   2020-12-02
- * @version 2021-02-10
+ * @version 2026-10-19
  */
 public abstract class TokenUsageAnalyser {
     private static final boolean CLEAN_UNKNOWN = true;
@@ -44,8 +48,9 @@ public abstract class TokenUsageAnalyser {
     public static String FILTER_UNKNOWN = "unknown";
     
     // Note: @ must be separated, like this: ov_ec_@
+    // The input must be already decompressed (see CompressedStreams).
     public static void analyse (
-        BufferedReader reader,
+        InputStream input,
         Optional <Integer> frequencyListLimit,
         int maxWordLength,
         double normalizationMean,
@@ -69,10 +74,7 @@ public abstract class TokenUsageAnalyser {
             .asPredicate ();
         Set <String> unaccentedWords = new HashSet <> ();
         Stream <Tuple4 <Long, StringSet, ProbabilisticStringSegmentation, Double>> correspondingEntries =
-            TextFileUtils.readLineStream (reader, frequencyListLimit)
-            // Just for efficiency (however, it disables the cleaning.)
-            .filter (regex)
-            .map (SegmentationFileReader :: readLine)
+            readEntries (input, frequencyListLimit, regex)
             .filter (entry -> entry.get2 ().length () <= maxWordLength)
             .filter (entry -> {
                 boolean ignoredVariant;
@@ -211,16 +213,17 @@ public abstract class TokenUsageAnalyser {
         Collator collatorCs = Collator.getInstance (new Locale (GlobalSettings.LOCALE));
         TextFileUtils.writeLines (
             writer,
-            optionalLemmaStream
-            // Convert the error to string score so that we order only by the visible digits.
-            .map (tuple -> tuple.map4 (error -> DoubleFormatter.POINT_6.format (1.0 - error)))
             // Order by score and word.
-            .sorted (
-                Comparator.comparing (
-                    entry -> Pair.of (entry.get4 (), entry.get3 ().elements ().toString ()),
-                    Pair.LexicographicalComparator.basedOn (Comparator.reverseOrder (), collatorCs)
-                )
+            CollationUtils.sort (
+                optionalLemmaStream
+                // Convert the error to string score so that we order only by the visible digits.
+                .map (tuple -> tuple.map4 (error -> DoubleFormatter.POINT_6.format (1.0 - error)))
+                .collect (Collectors.toList ()),
+                (x, y) -> y.get4 ().compareTo (x.get4 ()),
+                entry -> entry.get3 ().elements ().toString (),
+                collatorCs
             )
+            .stream ()
             // Show: score + word/lemma + frequency + [ternary segmentation] + [decimal segmentation]
             .map (tuple ->
                 tuple.get4 ()
@@ -240,4 +243,27 @@ public abstract class TokenUsageAnalyser {
             .map (String :: trim)
         );
     }
+    
+    // Read the entries which may contain the n-grams (matching the regex).
+    private static Stream <Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation>> readEntries (
+        InputStream input,
+        Optional <Integer> frequencyListLimit,
+        Predicate <String> regex
+    ) throws IOException {
+        Stream <Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation>> result;
+        BufferedInputStream bufferedInput = new BufferedInputStream (input);
+        if (SegmentationFileReader.isBinary (bufferedInput)) {
+            result =
+                SegmentationFileReader.readStream (bufferedInput, frequencyListLimit)
+                .filter (entry -> regex.test (entry.get2 ()) || entry.get3 ().stream ().anyMatch (regex));
+        }
+        else {
+            result =
+                TextFileUtils.readLineStream (new BufferedReader (new InputStreamReader (bufferedInput)), frequencyListLimit)
+                // Just for efficiency (however, it disables the cleaning.)
+                .filter (regex)
+                .map (SegmentationFileReader :: readLine);
+        }
+        return result;
+    }
 }
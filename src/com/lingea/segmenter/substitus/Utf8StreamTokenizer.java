@@ -0,0 +1,166 @@
+package com.lingea.segmenter.substitus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Tokenization of UTF-8 text at the byte level: the input bytes are decoded
+ * into code points only to be segmentized, the output is copied from the
+ * input bytes, with the delimiters inserted. No strings are created.
+ * 
+ * The text is processed the same way as by the tokenize action: lines are
+ * split into words by spaces (trailing spaces are dropped), the tokens are
+ * joined by the token delimiter and the words by the word delimiter. Lines
+ * end with LF, CR LF or CR; the output uses the system line separator. Each
+ * byte of an invalid UTF-8 sequence is processed as a single replacement
+ * character, but copied to the output unchanged.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public class Utf8StreamTokenizer {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte [] LINE_SEPARATOR = System.lineSeparator ().getBytes (StandardCharsets.UTF_8);
+    
+    private final CodePointSubstitusTokenizer tokenizer;
+    private final byte [] tokenDelimiter;
+    private final byte [] wordDelimiter;
+    
+    // The current word: its bytes, code points and the byte offset of every
+    // code point (plus the end).
+    private byte [] wordBytes = new byte [256];
+    private int wordByteLength = 0;
+    private int [] codePoints = new int [256];
+    private int [] codePointOffsets = new int [257];
+    private int [] tokenEnds = new int [256];
+    
+    public Utf8StreamTokenizer (CodePointSubstitusTokenizer tokenizer, String tokenDelimiter, String wordDelimiter) {
+        this.tokenizer = tokenizer;
+        this.tokenDelimiter = tokenDelimiter.getBytes (StandardCharsets.UTF_8);
+        this.wordDelimiter = wordDelimiter.getBytes (StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Tokenize the whole input. The output is flushed whenever the input is
+     * not ready (e.g. an interactive terminal), and at the end.
+     * 
+     * @param input  UTF-8 text.
+     * @param output Output for the tokenized text.
+     * @return       The number of bytes read.
+     * @throws IOException If the input cannot be read or the output written.
+     */
+    public long tokenize (InputStream input, OutputStream output) throws IOException {
+        byte [] buffer = new byte [BUFFER_SIZE];
+        long result = 0;
+        int pendingSpaces = 0;
+        boolean lineOpen = false;
+        boolean afterCarriageReturn = false;
+        int read;
+        while ((read = input.read (buffer)) > 0) {
+            result += read;
+            for (int i = 0; i < read; i++) {
+                byte b = buffer [i];
+                if (b == '\n' && afterCarriageReturn) {
+                    afterCarriageReturn = false;
+                }
+                else if (b == '\n' || b == '\r') {
+                    this.flushWord (output);
+                    output.write (LINE_SEPARATOR);
+                    pendingSpaces = 0;
+                    lineOpen = false;
+                    afterCarriageReturn = (b == '\r');
+                }
+                else {
+                    afterCarriageReturn = false;
+                    lineOpen = true;
+                    if (b == ' ') {
+                        this.flushWord (output);
+                        pendingSpaces++;
+                    }
+                    else {
+                        // The delimiters are written only before a word, so
+                        // that the trailing spaces are dropped.
+                        for (; pendingSpaces > 0; pendingSpaces--) {
+                            output.write (wordDelimiter);
+                        }
+                        if (wordByteLength == wordBytes.length) {
+                            wordBytes = Arrays.copyOf (wordBytes, 2 * wordBytes.length);
+                        }
+                        wordBytes [wordByteLength++] = b;
+                    }
+                }
+            }
+            if (input.available () <= 0) {
+                output.flush ();
+            }
+        }
+        if (lineOpen) {
+            this.flushWord (output);
+            output.write (LINE_SEPARATOR);
+        }
+        output.flush ();
+        return result;
+    }
+    
+    // Segmentize the current word and write it.
+    private void flushWord (OutputStream output) throws IOException {
+        if (wordByteLength > 0) {
+            int length = this.decodeWord ();
+            int tokens = tokenizer.segmentize (codePoints, length, tokenEnds);
+            int start = 0;
+            for (int t = 0; t < tokens; t++) {
+                if (t > 0) {
+                    output.write (tokenDelimiter);
+                }
+                int from = codePointOffsets [start];
+                output.write (wordBytes, from, codePointOffsets [tokenEnds [t]] - from);
+                start = tokenEnds [t];
+            }
+            wordByteLength = 0;
+        }
+    }
+    
+    // Decode the bytes of the word, return the number of code points.
+    private int decodeWord () {
+        if (codePoints.length < wordByteLength) {
+            codePoints = new int [wordByteLength];
+            codePointOffsets = new int [wordByteLength + 1];
+            tokenEnds = new int [wordByteLength];
+        }
+        int result = 0;
+        int i = 0;
+        while (i < wordByteLength) {
+            int b = wordBytes [i] & 0xFF;
+            int size = (b < 0x80) ? 1 : (b >= 0xC2 && b < 0xE0) ? 2 : (b >= 0xE0 && b < 0xF0) ? 3 : (b >= 0xF0 && b < 0xF5) ? 4 : 0;
+            int codePoint = (size == 1) ? b : (size == 2) ? b & 0x1F : (size == 3) ? b & 0x0F : b & 0x07;
+            for (int k = 1; k < size && size > 0; k++) {
+                int next = (i + k < wordByteLength) ? wordBytes [i + k] & 0xFF : 0;
+                if ((next & 0xC0) == 0x80) {
+                    codePoint = (codePoint << 6) | (next & 0x3F);
+                }
+                else {
+                    size = 0;
+                }
+            }
+            // Reject overlong encodings, surrogates and too big values.
+            if (
+                size == 0
+                || (size == 3 && (codePoint < 0x800 || (codePoint >= 0xD800 && codePoint < 0xE000)))
+                || (size == 4 && (codePoint < 0x10000 || codePoint > 0x10FFFF))
+            ) {
+                size = 1;
+                codePoint = 0xFFFD;
+            }
+            codePointOffsets [result] = i;
+            codePoints [result] = codePoint;
+            result++;
+            i += size;
+        }
+        codePointOffsets [result] = i;
+        return result;
+    }
+}
@@ -7,38 +7,139 @@ import com.github.josefplch.utils.data.tuple.Tuple4;
 import com.github.josefplch.utils.system.TextFileUtils;
 import com.lingea.segmenter.GlobalSettings;
 import com.lingea.segmenter.data.ProbabilisticStringSegmentation;
+import com.lingea.segmenter.data.CompactStringSegmentation;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author  Josef Plch
  * @since   2018-09-24
- * @version 2021-01-14
+ * @version 2026-10-19
  */
 public class SegmentationFileReader {
+    private static final Predicate <String> HAS_PUNCTUATION = Pattern.compile ("[-.]").asPredicate ();
+    
+    private static StringSet filterLemmata (String word, StringList lemmata) {
+        return (
+            lemmata
+            // Heuristics: Ignore lemmata with too different length as they are probably wrong.
+            // .filter (lemma -> Math.abs (lemma.length () - word.length ()) <= 5)
+            // Heuristics: The punctuation in lemma shall occur iff it occurs in the word.
+            .filter (lemma -> HAS_PUNCTUATION.test (lemma) == HAS_PUNCTUATION.test (word))
+            .toSet ()
+        );
+    }
+    
+    /**
+     * Check whether the stream contains a binary segmented list (see
+     * SegmentationFileWriter). The stream position is not changed.
+     * 
+     * @param input The input stream.
+     * @return      True iff the stream starts with the binary header.
+     * @throws IOException If the stream cannot be read.
+     */
+    public static boolean isBinary (BufferedInputStream input) throws IOException {
+        byte [] header = new byte [SegmentationFileWriter.MAGIC.length];
+        input.mark (header.length);
+        int length = 0;
+        int read;
+        while (length < header.length && (read = input.read (header, length, header.length - length)) > 0) {
+            length += read;
+        }
+        input.reset ();
+        return SegmentationFileWriter.isMagic (header, length);
+    }
+    
+    // Read the next binary entry, or return null at the end of the input.
+    private static Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation> readBinaryEntry (
+        DataInputStream input
+    ) throws IOException {
+        Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation> result;
+        int mark = input.read ();
+        if (mark < 0) {
+            result = null;
+        }
+        else if (mark != SegmentationFileWriter.ENTRY_MARK) {
+            throw new IOException ("Corrupted binary segmented list: unexpected byte " + mark);
+        }
+        else {
+            long frequency = readNumber (input);
+            String word = readString (input);
+            long lemmaCount = readNumber (input);
+            StringList lemmata = new StringList ();
+            for (long i = 0; i < lemmaCount; i++) {
+                lemmata.add (readString (input));
+            }
+            String atoms = (input.readByte () == SegmentationFileWriter.ATOMS_SAME_AS_WORD) ? word : readString (input);
+            if (atoms.isEmpty ()) {
+                throw new IOException ("Corrupted binary segmented list: empty segmentation of " + word);
+            }
+            CompactStringSegmentation segmentation = new CompactStringSegmentation (atoms.charAt (0), atoms.length ());
+            for (int i = 1; i < atoms.length (); i++) {
+                segmentation.addLast (SegmentationFileWriter.dequantize (input.readFloat ()), atoms.charAt (i));
+            }
+            result = Tuple4.of (frequency, word, filterLemmata (word, lemmata), segmentation.toProbabilistic ());
+        }
+        return result;
+    }
+    
+    private static long readNumber (DataInput input) throws IOException {
+        long result = 0;
+        int shift = 0;
+        int value;
+        do {
+            if (shift > 63) {
+                throw new IOException ("Corrupted binary segmented list: too long number.");
+            }
+            value = input.readUnsignedByte ();
+            result |= (long) (value & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((value & 0x80) != 0);
+        return result;
+    }
+    
+    private static String readString (DataInput input) throws IOException {
+        long length = readNumber (input);
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IOException ("Corrupted binary segmented list: string length " + length + " out of range.");
+        }
+        byte [] bytes = new byte [(int) length];
+        input.readFully (bytes);
+        return new String (bytes, StandardCharsets.UTF_8);
+    }
+    
     // Original thesis format:   frequency \t word \t segmentation
     // Updated format (2020-12): frequency \t word \t [lemmata \t] segmentation
     public static Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation> readLine (String line) {
         StringList columns = StringList.split ("\t", line);
         String word = columns.get (1);
         String lemmaColumn = columns.size () == 3 ? "" : columns.get (2);
-        Predicate <String> hasPunctuation = Pattern.compile ("[-.]").asPredicate ();
         return (
             Tuple4.of (
                 Long.valueOf (columns.get (0)),
                 word,
                 lemmaColumn.isEmpty ()
                     ? new StringSet ()
-                    : StringList.split (String.valueOf (GlobalSettings.LEMMA_DELIMITER), lemmaColumn)
-                        // Heuristics: Ignore lemmata with too different length as they are probably wrong.
-                        // .filter (lemma -> Math.abs (lemma.length () - word.length ()) <= 5)
-                        // Heuristics: The punctuation in lemma shall occur iff it occurs in the word.
-                        .filter (lemma -> hasPunctuation.test (lemma) == hasPunctuation.test (word))
-                        .toSet (),
+                    : filterLemmata (word, StringList.split (String.valueOf (GlobalSettings.LEMMA_DELIMITER), lemmaColumn)),
                 ProbabilisticStringSegmentation.readDouble (columns.last ())
             )
         );
@@ -57,4 +158,93 @@ public class SegmentationFileReader {
     ) throws IOException {
         return TextFileUtils.readLineStream (reader, limit).map (SegmentationFileReader :: readLine);
     }
+    
+    /**
+     * Read either text or binary segmented list, the format is detected.
+     * 
+     * @param input The input stream.
+     * @param limit Maximum number of entries.
+     * @return      The entries.
+     * @throws IOException If the input cannot be read.
+     */
+    public static FunctionalList <Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation>> readList (
+        InputStream input,
+        Optional <Integer> limit
+    ) throws IOException {
+        try (Stream <Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation>> entries = readStream (input, limit)) {
+            return entries.collect (Collectors.toCollection (FunctionalList :: new));
+        }
+        catch (UncheckedIOException exception) {
+            throw exception.getCause ();
+        }
+    }
+    
+    /**
+     * Read either text or binary segmented list, the format is detected.
+     * Reading errors of the binary list are thrown as UncheckedIOException.
+     * 
+     * @param input The input stream, already decompressed (see
+     *              CompressedStreams).
+     * @param limit Maximum number of entries.
+     * @return      The entries.
+     * @throws IOException If the input cannot be read.
+     */
+    public static Stream <Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation>> readStream (
+        InputStream input,
+        Optional <Integer> limit
+    ) throws IOException {
+        BufferedInputStream buffered =
+            (input instanceof BufferedInputStream)
+            ? (BufferedInputStream) input
+            : new BufferedInputStream (input, 1 << 16);
+        Stream <Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation>> result;
+        if (isBinary (buffered)) {
+            DataInputStream dataInput = new DataInputStream (buffered);
+            byte [] header = new byte [SegmentationFileWriter.MAGIC.length];
+            dataInput.readFully (header);
+            if (! Arrays.equals (header, SegmentationFileWriter.MAGIC)) {
+                throw new IOException ("Unsupported version of binary segmented list: " + header [header.length - 1]);
+            }
+            Iterator <Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation>> iterator =
+                new Iterator <Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation>> () {
+                    private Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation> next = readNext ();
+                    
+                    @Override
+                    public boolean hasNext () {
+                        return (next != null);
+                    }
+                    
+                    @Override
+                    public Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation> next () {
+                        if (next == null) {
+                            throw new NoSuchElementException ();
+                        }
+                        Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation> current = next;
+                        next = readNext ();
+                        return current;
+                    }
+                    
+                    private Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation> readNext () {
+                        try {
+                            return readBinaryEntry (dataInput);
+                        }
+                        catch (IOException exception) {
+                            throw new UncheckedIOException (exception);
+                        }
+                    }
+                };
+            result =
+                StreamSupport.stream (
+                    Spliterators.spliteratorUnknownSize (iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+                    false
+                );
+            if (limit.isPresent ()) {
+                result = result.limit (limit.get ());
+            }
+        }
+        else {
+            result = readStream (new BufferedReader (new InputStreamReader (buffered)), limit);
+        }
+        return result;
+    }
 }
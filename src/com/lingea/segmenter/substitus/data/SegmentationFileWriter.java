@@ -0,0 +1,126 @@
+package com.lingea.segmenter.substitus.data;
+
+import com.lingea.segmenter.data.CompactStringSegmentation;
+import java.io.Closeable;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Writer of the binary segmented word list (binary variant of .sfwl). It is
+ * several times smaller than the text one and it can be read with almost no
+ * parsing.
+ * 
+ * Format (numbers are non-negative variable-length numbers: 7 bits per byte,
+ * the lowest first, the highest bit set in all the bytes but the last one;
+ * strings are their length in bytes followed by the UTF-8 bytes):
+ * header:  magic bytes "SFWL", 0, version
+ * entry:   1 (entry mark), frequency, word, number of lemmata, lemmata,
+ *          atoms flag (0 = the same as the word, 1 = atoms follow as string),
+ *          glues (n - 1 float32 numbers for n atoms)
+ * 
+ * The glues ([0..1] probabilities) are rounded to 6 decimal places like in the
+ * text format (half even, as DecimalFormat does). The reader rounds the float
+ * back, so both formats read the same glue and split at the same thresholds.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public class SegmentationFileWriter implements Closeable, Flushable {
+    protected static final byte [] MAGIC = {'S', 'F', 'W', 'L', 0, 3};
+    protected static final int ENTRY_MARK = 1;
+    protected static final int ATOMS_SAME_AS_WORD = 0;
+    protected static final int ATOMS_FOLLOW = 1;
+    // The text format writes 6 decimal places.
+    private static final double GLUE_SCALE = 1_000_000;
+    
+    private final DataOutputStream output;
+    // Strict encoder: unpaired surrogates are an error, not a "?".
+    private final CharsetEncoder encoder =
+        StandardCharsets.UTF_8.newEncoder ()
+        .onMalformedInput (CodingErrorAction.REPORT)
+        .onUnmappableCharacter (CodingErrorAction.REPORT);
+    
+    public SegmentationFileWriter (OutputStream output) throws IOException {
+        this.output = new DataOutputStream (output);
+        this.output.write (MAGIC);
+    }
+    
+    // Is it the beginning of a binary segmented list (of any version)?
+    protected static boolean isMagic (byte [] bytes, int length) {
+        int prefix = MAGIC.length - 1;
+        return (length == MAGIC.length && Arrays.equals (Arrays.copyOf (bytes, prefix), Arrays.copyOf (MAGIC, prefix)));
+    }
+    
+    @Override
+    public void close () throws IOException {
+        output.close ();
+    }
+    
+    // The float is within 1e-7 of the rounded glue, which makes it exact.
+    protected static double dequantize (float glue) {
+        return (Math.rint (glue * GLUE_SCALE) / GLUE_SCALE);
+    }
+    
+    @Override
+    public void flush () throws IOException {
+        output.flush ();
+    }
+    
+    protected static float quantize (double glue) {
+        return (float) (Math.rint (glue * GLUE_SCALE) / GLUE_SCALE);
+    }
+    
+    public void write (
+        long frequency,
+        String word,
+        Collection <String> lemmata,
+        CompactStringSegmentation segmentation
+    ) throws IOException {
+        output.writeByte (ENTRY_MARK);
+        writeNumber (output, frequency);
+        this.writeString (word);
+        writeNumber (output, lemmata.size ());
+        for (String lemma : lemmata) {
+            this.writeString (lemma);
+        }
+        String atoms = segmentation.elements ();
+        if (atoms.equals (word)) {
+            output.writeByte (ATOMS_SAME_AS_WORD);
+        }
+        else {
+            output.writeByte (ATOMS_FOLLOW);
+            this.writeString (atoms);
+        }
+        for (int i = 0; i < segmentation.size () - 1; i++) {
+            output.writeFloat (quantize (segmentation.glue (i)));
+        }
+    }
+    
+    private static void writeNumber (DataOutput output, long number) throws IOException {
+        if (number < 0) {
+            throw new IllegalArgumentException ("Negative number in a segmented list: " + number);
+        }
+        while (number >= 0x80) {
+            output.writeByte ((int) (number & 0x7F) | 0x80);
+            number >>>= 7;
+        }
+        output.writeByte ((int) number);
+    }
+    
+    private void writeString (String string) throws IOException {
+        ByteBuffer bytes = encoder.encode (CharBuffer.wrap (string));
+        writeNumber (output, bytes.remaining ());
+        output.write (bytes.array (), bytes.arrayOffset () + bytes.position (), bytes.remaining ());
+    }
+}
@@ -0,0 +1,223 @@
+package com.lingea.segmenter.substitus.data;
+
+import com.github.josefplch.utils.data.list.FunctionalList;
+import com.github.josefplch.utils.data.list.StringList;
+import com.github.josefplch.utils.data.math.fraction.LongFraction;
+import com.github.josefplch.utils.data.tuple.UniformPair;
+import com.lingea.segmenter.data.token.NgramPropertiesB;
+import com.lingea.segmenter.data.token.ParametrizedNgram;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compiled tokenizer model: binary variant of the list of token n-grams
+ * (.tnl), which is loaded by memory mapping, without any text parsing. The
+ * tokenizers detect it automatically.
+ * 
+ * Format (big-endian):
+ * header:   magic bytes "STKM", 0, version, flags (1 = n-gram properties)
+ * tokens:   number of tokens (int), tokens (length as unsigned short, chars)
+ * n-grams:  number of n-grams (int), then for every n-gram (in the original
+ *           order, i.e. by priority): number of tokens (unsigned short),
+ *           token indices (ints), and if there are properties: TF numerator,
+ *           TF denominator, IWF numerator, IWF denominator (longs)
+ * 
+ * Every token is stored only once. The examples of the n-grams are not
+ * stored, tokenization does not use them.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public abstract class TokenModelFile {
+    private static final byte [] MAGIC = {'S', 'T', 'K', 'M', 0, 1};
+    private static final int FLAG_PROPERTIES = 1;
+    
+    /**
+     * Check whether the file is a compiled model (by its magic bytes).
+     * 
+     * @param filePath Path to the file.
+     * @return         True iff the file is a compiled model.
+     * @throws IOException If the file cannot be read.
+     */
+    public static boolean isModel (String filePath) throws IOException {
+        byte [] header = new byte [MAGIC.length];
+        int length = 0;
+        try (InputStream input = new FileInputStream (filePath)) {
+            int read;
+            while (length < header.length && (read = input.read (header, length, header.length - length)) > 0) {
+                length += read;
+            }
+        }
+        return (length == MAGIC.length && Arrays.equals (header, MAGIC));
+    }
+    
+    // Map the file and check the header; returns the buffer positioned after the flags.
+    private static ByteBuffer map (String filePath) throws IOException {
+        ByteBuffer result;
+        try (
+            RandomAccessFile file = new RandomAccessFile (filePath, "r");
+            FileChannel channel = file.getChannel ()
+        ) {
+            if (channel.size () > Integer.MAX_VALUE) {
+                throw new IOException ("The token model is too big: " + filePath);
+            }
+            result = channel.map (FileChannel.MapMode.READ_ONLY, 0, channel.size ());
+        }
+        byte [] header = new byte [MAGIC.length];
+        if (result.remaining () < MAGIC.length + 1) {
+            throw new IOException ("Not a token model: " + filePath);
+        }
+        result.get (header);
+        if (! Arrays.equals (header, MAGIC)) {
+            throw new IOException ("Not a token model (or unsupported version): " + filePath);
+        }
+        return result;
+    }
+    
+    /**
+     * Read the token n-grams (in the original order).
+     * 
+     * @param filePath Path to the compiled model.
+     * @return         The n-grams.
+     * @throws IOException If the file cannot be read or is not a model.
+     */
+    public static FunctionalList <StringList> readNgrams (String filePath) throws IOException {
+        return read (filePath, false).map (ngram -> ngram.getNgram ());
+    }
+    
+    /**
+     * Read the parametrized token n-grams (in the original order). The
+     * examples are empty.
+     * 
+     * @param filePath Path to the compiled model.
+     * @return         The n-grams.
+     * @throws IOException If the file cannot be read, is not a model, or the
+     *                     model contains no n-gram properties.
+     */
+    public static FunctionalList <ParametrizedNgram> readParametrizedNgrams (String filePath) throws IOException {
+        return read (filePath, true);
+    }
+    
+    private static FunctionalList <ParametrizedNgram> read (String filePath, boolean propertiesRequired) throws IOException {
+        ByteBuffer buffer = map (filePath);
+        boolean hasProperties = (buffer.get () & FLAG_PROPERTIES) != 0;
+        if (propertiesRequired && ! hasProperties) {
+            throw new IOException ("The token model contains no n-gram properties (compile it from a full token n-gram list): " + filePath);
+        }
+        
+        String [] tokens = new String [buffer.getInt ()];
+        char [] chars = new char [16];
+        for (int t = 0; t < tokens.length; t++) {
+            int length = Short.toUnsignedInt (buffer.getShort ());
+            if (length > chars.length) {
+                chars = new char [Math.max (length, 2 * chars.length)];
+            }
+            for (int i = 0; i < length; i++) {
+                chars [i] = buffer.getChar ();
+            }
+            tokens [t] = new String (chars, 0, length);
+        }
+        
+        int ngrams = buffer.getInt ();
+        FunctionalList <ParametrizedNgram> result = new FunctionalList <> ();
+        UniformPair <StringList> noExamples = new UniformPair <> (new StringList (), new StringList ());
+        for (int n = 0; n < ngrams; n++) {
+            StringList ngram = new StringList ();
+            int size = Short.toUnsignedInt (buffer.getShort ());
+            for (int i = 0; i < size; i++) {
+                ngram.add (tokens [buffer.getInt ()]);
+            }
+            NgramPropertiesB properties = null;
+            if (hasProperties) {
+                LongFraction tf = LongFraction.of (buffer.getLong (), buffer.getLong ());
+                LongFraction iwf = LongFraction.of (buffer.getLong (), buffer.getLong ());
+                properties = new NgramPropertiesB (tf, iwf, noExamples);
+            }
+            result.add (new ParametrizedNgram (ngram, properties));
+        }
+        return result;
+    }
+    
+    /**
+     * Write the model containing only the n-grams.
+     * 
+     * @param ngrams The n-grams (in the order of priority).
+     * @param output The output stream (it is not closed).
+     * @throws IOException If the model cannot be written.
+     */
+    public static void writeNgrams (FunctionalList <StringList> ngrams, OutputStream output) throws IOException {
+        write (ngrams, Optional.empty (), output);
+    }
+    
+    /**
+     * Write the model containing the n-grams with their properties (TF and
+     * IWF), as used by the Viterbi tokenizer.
+     * 
+     * @param ngrams The n-grams (in the order of priority).
+     * @param output The output stream (it is not closed).
+     * @throws IOException If the model cannot be written.
+     */
+    public static void writeParametrizedNgrams (FunctionalList <ParametrizedNgram> ngrams, OutputStream output) throws IOException {
+        write (ngrams.map (ParametrizedNgram :: getNgram), Optional.of (ngrams), output);
+    }
+    
+    private static void write (
+        FunctionalList <StringList> ngrams,
+        Optional <FunctionalList <ParametrizedNgram>> parametrized,
+        OutputStream output
+    ) throws IOException {
+        // Intern the tokens.
+        Map <String, Integer> tokenIndices = new HashMap <> ();
+        FunctionalList <String> tokens = new FunctionalList <> ();
+        for (StringList ngram : ngrams) {
+            if (ngram.size () > 0xFFFF) {
+                throw new IllegalArgumentException ("Too long n-gram: " + ngram.size () + " tokens");
+            }
+            for (String token : ngram) {
+                if (token.length () > 0xFFFF) {
+                    throw new IllegalArgumentException ("Too long token: " + token.length () + " characters");
+                }
+                if (! tokenIndices.containsKey (token)) {
+                    tokenIndices.put (token, tokens.size ());
+                    tokens.add (token);
+                }
+            }
+        }
+        
+        DataOutputStream data = new DataOutputStream (output);
+        data.write (MAGIC);
+        data.writeByte (parametrized.isPresent () ? FLAG_PROPERTIES : 0);
+        data.writeInt (tokens.size ());
+        for (String token : tokens) {
+            data.writeShort (token.length ());
+            data.writeChars (token);
+        }
+        data.writeInt (ngrams.size ());
+        for (int n = 0; n < ngrams.size (); n++) {
+            StringList ngram = ngrams.get (n);
+            data.writeShort (ngram.size ());
+            for (String token : ngram) {
+                data.writeInt (tokenIndices.get (token));
+            }
+            if (parametrized.isPresent ()) {
+                ParametrizedNgram properties = parametrized.get ().get (n);
+                data.writeLong (properties.getTf ().getNumerator ());
+                data.writeLong (properties.getTf ().getDenominator ());
+                data.writeLong (properties.getIwf ().getNumerator ());
+                data.writeLong (properties.getIwf ().getDenominator ());
+            }
+        }
+        data.flush ();
+    }
+}
@@ -0,0 +1,139 @@
+package com.lingea.segmenter.utils;
+
+import com.github.josefplch.utils.data.list.StringList;
+import com.github.josefplch.utils.data.map.LongLongHashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Finds which of the given n-grams of chunks (token n-grams) occur in a word,
+ * i.e. can be obtained by splitting the word. This is the same as finding
+ * all the decompositions (SegmentationUtils.decompose) and taking their
+ * sublists, but the decompositions are never built: the n-grams are stored
+ * in a trie (of characters, with a boundary symbol between the chunks), which
+ * is walked from every start position of the word. Only the paths leading to
+ * some of the n-grams are followed, and no string is created.
+ * 
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public class ChunkNgramEnumerator {
+    // The label of the transition between two chunks (above all characters).
+    private static final int BOUNDARY = Character.MAX_VALUE + 1;
+    private static final int ROOT = 0;
+    
+    // (State, label) -> target state; the root is never a target.
+    private final LongLongHashMap transitions = new LongLongHashMap ();
+    // The n-gram ending in the state (or null).
+    private final List <StringList> ngrams = new ArrayList <> ();
+    
+    /**
+     * @param ngrams The n-grams to be searched for (without empty chunks).
+     */
+    public ChunkNgramEnumerator (Collection <StringList> ngrams) {
+        this.ngrams.add (null);
+        for (StringList ngram : ngrams) {
+            int state = ROOT;
+            for (int c = 0; c < ngram.size (); c++) {
+                if (c > 0) {
+                    state = this.addTransition (state, BOUNDARY);
+                }
+                String chunk = ngram.get (c);
+                for (int i = 0; i < chunk.length (); i++) {
+                    state = this.addTransition (state, chunk.charAt (i));
+                }
+            }
+            this.ngrams.set (state, ngram);
+        }
+    }
+    
+    private int addTransition (int state, int label) {
+        long key = transitionKey (state, label);
+        int result = (int) transitions.get (key);
+        if (result == ROOT) {
+            result = ngrams.size ();
+            ngrams.add (null);
+            transitions.put (key, result);
+        }
+        return result;
+    }
+    
+    /**
+     * Find all the n-grams (of 1 to maxLevel chunks) which can be obtained by
+     * splitting the word, regardless of whether they are known. Fallback for
+     * the case when the unknown n-grams are needed too; the n-grams are built
+     * directly from the chunk boundaries, still without the decompositions.
+     * 
+     * @param word     The word.
+     * @param maxLevel Maximum number of chunks in an n-gram.
+     * @param action   Action performed on every n-gram (exactly once).
+     */
+    public static void forEachChunkNgram (String word, int maxLevel, Consumer <StringList> action) {
+        Set <StringList> found = new HashSet <> ();
+        for (int start = 0; start < word.length () && maxLevel > 0; start++) {
+            forEachChunkNgram (word, maxLevel, start, new StringList (), found, action);
+        }
+    }
+    
+    private static void forEachChunkNgram (String word, int maxLevel, int start, StringList prefix, Set <StringList> found, Consumer <StringList> action) {
+        for (int end = start + 1; end <= word.length (); end++) {
+            StringList ngram = new StringList (prefix);
+            ngram.add (word.substring (start, end));
+            if (found.add (ngram)) {
+                action.accept (ngram);
+            }
+            if (ngram.size () < maxLevel) {
+                forEachChunkNgram (word, maxLevel, end, ngram, found, action);
+            }
+        }
+    }
+    
+    /**
+     * Find the known n-grams (of 1 to maxLevel chunks) which can be obtained
+     * by splitting the word.
+     * 
+     * @param word     The word.
+     * @param maxLevel Maximum number of chunks in an n-gram.
+     * @param action   Action performed on every n-gram found (exactly once),
+     *                 the n-gram is the one given in the constructor.
+     */
+    public void forEachKnownNgram (String word, int maxLevel, Consumer <StringList> action) {
+        Set <StringList> found = Collections.newSetFromMap (new IdentityHashMap <> ());
+        for (int start = 0; start < word.length () && maxLevel > 0; start++) {
+            this.walk (word, maxLevel, start, ROOT, 1, found, action);
+        }
+    }
+    
+    private static long transitionKey (int state, int label) {
+        return (((long) state << 32) | label);
+    }
+    
+    // Follow the trie from the state, at the beginning of a chunk (the chunk
+    // must not be empty).
+    private void walk (String word, int maxLevel, int position, int state, int level, Set <StringList> found, Consumer <StringList> action) {
+        for (int i = position; i < word.length (); i++) {
+            state = (int) transitions.get (transitionKey (state, word.charAt (i)));
+            if (state == ROOT) {
+                break;
+            }
+            // The chunk may end here.
+            StringList ngram = ngrams.get (state);
+            if (ngram != null && found.add (ngram)) {
+                action.accept (ngram);
+            }
+            if (level < maxLevel && i + 1 < word.length ()) {
+                int next = (int) transitions.get (transitionKey (state, BOUNDARY));
+                if (next != ROOT) {
+                    this.walk (word, maxLevel, i + 1, next, level + 1, found, action);
+                }
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.github.josefplch.utils.data.list.PairList;
 import com.github.josefplch.utils.data.string.StringUtils;
 import com.github.josefplch.utils.data.tuple.Pair;
 import com.github.josefplch.utils.data.tuple.Tuple3;
+import com.github.josefplch.utils.data.tuple.UniformPair;
 import com.lingea.segmenter.data.BoundaryStrings;
 import com.lingea.segmenter.bpe.StringBpe;
 import com.lingea.segmenter.bpe.metric.CommonFrequency;
@@ -18,21 +19,24 @@ import com.lingea.segmenter.data.token.Token;
 import com.lingea.segmenter.utils.ShowUtils;
 import com.lingea.segmenter.data.frequencyList.FrequencyListReader;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * @author  Josef Plch
  * @since   2018-05-05
- * @version 2019-11-26
+ * @version 2026-10-19
  */
 public abstract class BpeTest {
     private static final BoundaryStrings BOUNDARY_STRINGS = BoundaryStrings.NONE;
@@ -43,12 +47,58 @@ public abstract class BpeTest {
     public static void main (String [] args) {
         try {
             testBpe ();
+            for (AssociationMetric metric : Arrays.asList (new CommonFrequency (), new LogDice (), new MiScore (), new ModifiedDiceA (), new ModifiedDiceB ())) {
+                testIndexedTraining (DataPaths.FREQUENCY_DE_ALL, metric);
+            }
+            testParallelTraining (DataPaths.FREQUENCY_DE_ALL, new LogDice ());
+            testCheckpoint (DataPaths.FREQUENCY_DE_ALL, new LogDice ());
+            testCheckpointOtherTrainer (DataPaths.FREQUENCY_DE_ALL, new LogDice ());
+            testSegmentize (DataPaths.FREQUENCY_DE_ALL, new CommonFrequency ());
         }
         catch (IOException exception) {
             System.err.println (exception);
         }
     }
     
+    // The model to be trained on the beginning of the frequency list.
+    private static StringBpe loadTrainStrings (String frequencyListPath, AssociationMetric metric) throws IOException {
+        return StringBpe.loadTrainStrings (metric, MIN_FREQUENCY, BOUNDARY_STRINGS, readTrainData (frequencyListPath).stream ());
+    }
+    
+    // Apply the merges one by one, as the previous implementation of
+    // segmentize did: every merge on all the occurrences of the pair, from
+    // right to left.
+    private static List <String> mergeOneByOne (List <UniformPair <Token <Character>>> mergedPairs, String word) {
+        List <String> tokens = new ArrayList <> ();
+        for (char atom : word.toCharArray ()) {
+            tokens.add (String.valueOf (atom));
+        }
+        for (UniformPair <Token <Character>> pair : mergedPairs) {
+            String token1 = StringUtils.charListToString (pair.get1 ().getAtoms ());
+            String token2 = StringUtils.charListToString (pair.get2 ().getAtoms ());
+            for (int i = tokens.size () - 2; i >= 0; i--) {
+                if (tokens.get (i).equals (token1) && tokens.get (i + 1).equals (token2)) {
+                    tokens.set (i, token1 + token2);
+                    tokens.remove (i + 1);
+                }
+            }
+        }
+        return tokens;
+    }
+    
+    // The beginning of the frequency list, in lower case.
+    private static List <Pair <String, Long>> readTrainData (String frequencyListPath) throws IOException {
+        try (BufferedReader frequencyListReader = new BufferedReader (new FileReader (frequencyListPath))) {
+            return (
+                frequencyListReader.lines ()
+                .limit (FREQUENCY_LIST_LIMIT)
+                .map (FrequencyListReader :: readLine)
+                .map (pair -> pair.map1 (String :: toLowerCase))
+                .collect (Collectors.toList ())
+            );
+        }
+    }
+    
     private static String showTokenizedString (List <String> tokens) {
         return (
             String.join (
@@ -86,6 +136,94 @@ public abstract class BpeTest {
         );
     }
     
+    // The training resumed from a checkpoint must produce the same merges as
+    // the uninterrupted one (with the default, hash order of the ties).
+    private static void testCheckpoint (String frequencyListPath, AssociationMetric metric) throws IOException {
+        StringBpe bpe = loadTrainStrings (frequencyListPath, metric);
+        bpe.makeSteps (STEP_LIMIT);
+        boolean ok = bpe.getMergedPairs ().equals (trainWithCheckpoint (frequencyListPath, metric, false, false, false));
+        System.out.println ("Checkpoint (" + metric + "): " + (ok ? "OK" : "FAILED"));
+    }
+    
+    // The training resumed from a checkpoint in the other trainer (scanning
+    // or indexed) must produce the same merges as the uninterrupted one, if
+    // the ties are broken by appearance.
+    private static void testCheckpointOtherTrainer (String frequencyListPath, AssociationMetric metric) throws IOException {
+        StringBpe bpe = loadTrainStrings (frequencyListPath, metric);
+        bpe.setTiesByAppearance (true);
+        bpe.makeSteps (STEP_LIMIT);
+        for (boolean indexedBefore : new boolean [] {false, true}) {
+            boolean ok = bpe.getMergedPairs ().equals (trainWithCheckpoint (frequencyListPath, metric, true, indexedBefore, ! indexedBefore));
+            System.out.println (
+                "Checkpoint " + (indexedBefore ? "indexed -> scanning" : "scanning -> indexed")
+                + " (" + metric + "): " + (ok ? "OK" : "FAILED")
+            );
+        }
+    }
+    
+    // The indexed training must produce the same merges as the scanning one
+    // with the ties broken by appearance.
+    private static void testIndexedTraining (String frequencyListPath, AssociationMetric metric) throws IOException {
+        List <FunctionalList <UniformPair <Token <Character>>>> mergedPairs = new ArrayList <> ();
+        for (boolean indexed : new boolean [] {false, true}) {
+            StringBpe bpe = loadTrainStrings (frequencyListPath, metric);
+            bpe.setTiesByAppearance (true);
+            bpe.setIndexedTraining (indexed);
+            long start = System.nanoTime ();
+            bpe.makeSteps (STEP_LIMIT);
+            System.out.println ("indexed = " + indexed + ", time = " + ((System.nanoTime () - start) / 1_000_000) + " ms");
+            mergedPairs.add (bpe.getMergedPairs ());
+        }
+        System.out.println (
+            "Indexed training (" + metric + "): "
+            + (mergedPairs.get (0).equals (mergedPairs.get (1)) ? "OK" : "FAILED")
+        );
+    }
+    
+    // The sharded training must produce the same merges as the sequential one.
+    private static void testParallelTraining (String frequencyListPath, AssociationMetric metric) throws IOException {
+        List <FunctionalList <UniformPair <Token <Character>>>> mergedPairs = new ArrayList <> ();
+        for (int threads : new int [] {1, 4}) {
+            StringBpe bpe = loadTrainStrings (frequencyListPath, metric);
+            bpe.setThreads (threads);
+            long start = System.nanoTime ();
+            bpe.makeSteps (STEP_LIMIT);
+            System.out.println ("threads = " + threads + ", time = " + ((System.nanoTime () - start) / 1_000_000) + " ms");
+            mergedPairs.add (bpe.getMergedPairs ());
+        }
+        System.out.println (
+            "Parallel training (" + metric + "): "
+            + (mergedPairs.get (0).equals (mergedPairs.get (1)) ? "OK" : "FAILED")
+        );
+    }
+    
+    // The segmentation by the merge ranks must be the same as applying the
+    // merges one by one, also with a step limit.
+    private static void testSegmentize (String frequencyListPath, AssociationMetric metric) throws IOException {
+        List <Pair <String, Long>> trainData = readTrainData (frequencyListPath);
+        StringBpe bpe = StringBpe.loadTrainStrings (metric, MIN_FREQUENCY, BOUNDARY_STRINGS, trainData.stream ());
+        bpe.makeSteps (STEP_LIMIT);
+        
+        List <String> testWords = new ArrayList <> (Arrays.asList ("", "a", "aaaaaaa", "eeeeeeee", "nnnnn", "ßäöü", "日本"));
+        for (Pair <String, Long> entry : trainData.subList (0, Math.min (10_000, trainData.size ()))) {
+            testWords.add (entry.get1 ());
+        }
+        boolean ok = true;
+        for (int stepLimit : new int [] {STEP_LIMIT, STEP_LIMIT / 2}) {
+            bpe.setStepLimit (stepLimit);
+            List <UniformPair <Token <Character>>> mergedPairs = bpe.getMergedPairs ().subList (0, Math.min (stepLimit, bpe.getMergedPairs ().size ()));
+            for (String word : testWords) {
+                List <String> expected = mergeOneByOne (mergedPairs, word);
+                List <String> result = bpe.segmentize (word);
+                if (! result.equals (expected)) {
+                    System.out.println ("Word " + word + " (" + stepLimit + " steps): " + result + " instead of " + expected);
+                    ok = false;
+                }
+            }
+        }
+        System.out.println ("Segmentation by ranks (" + metric + "): " + (ok ? "OK" : "FAILED"));
+    }
+    
     private static void testSettings (
         List <Tuple3 <String, Integer, AssociationMetric>> settings,
         Stream <String> testWords
@@ -105,24 +243,7 @@ public abstract class BpeTest {
                 + ",\nsteps = " + STEP_LIMIT
             );
             
-            BufferedReader frequencyListReader = new BufferedReader (new FileReader (frequencyListPath));
-            StringBpe bpe =
-                StringBpe.loadTrainStrings (
-                    metric,
-                    MIN_FREQUENCY,
-                    BOUNDARY_STRINGS,
-                    frequencyListReader.lines ()
-                        .limit (FREQUENCY_LIST_LIMIT)
-                        .map (FrequencyListReader :: readLine)
-                        /*
-                        .flatMap (pair ->
-                            Stream.of (pair.get1 ().split (" "))
-                            .map (x -> Pair.of (x, pair.get2 ()))
-                        )
-                        */
-                        .map (pair -> pair.map1 (String :: toLowerCase))
-                );
-            frequencyListReader.close ();
+            StringBpe bpe = loadTrainStrings (frequencyListPath, metric);
             int finalStep = bpe.makeSteps (STEP_LIMIT);
             System.out.println ("finalStep = " + finalStep);
             
@@ -170,4 +291,25 @@ public abstract class BpeTest {
         });
         System.out.println ();
     }
+    
+    // Make half of the steps with checkpoints, then resume the training from
+    // the last one and make the other half.
+    private static FunctionalList <UniformPair <Token <Character>>> trainWithCheckpoint (
+        String frequencyListPath,
+        AssociationMetric metric,
+        boolean tiesByAppearance,
+        boolean indexedBefore,
+        boolean indexedAfter
+    ) throws IOException {
+        File checkpoint = File.createTempFile ("bpe", ".checkpoint");
+        checkpoint.deleteOnExit ();
+        StringBpe bpe = loadTrainStrings (frequencyListPath, metric);
+        bpe.setTiesByAppearance (tiesByAppearance);
+        bpe.setIndexedTraining (indexedBefore);
+        bpe.makeSteps (STEP_LIMIT / 2, STEP_LIMIT / 4, checkpoint.getPath ());
+        StringBpe resumed = StringBpe.loadCheckpoint (BOUNDARY_STRINGS, checkpoint.getPath ());
+        resumed.setIndexedTraining (indexedAfter);
+        resumed.makeSteps (STEP_LIMIT - STEP_LIMIT / 2);
+        return resumed.getMergedPairs ();
+    }
 }
@@ -0,0 +1,52 @@
+package com.lingea.segmenter;
+
+import com.github.josefplch.utils.data.list.FunctionalList;
+import com.github.josefplch.utils.data.string.CollationUtils;
+import com.github.josefplch.utils.data.tuple.Pair;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public abstract class CollationUtilsTest {
+    private static final String [] WORDS = {
+        "chata", "cihla", "Čech", "čechy", "ďábel", "dálka", "hrad", "chrám",
+        "ílovec", "Ilona", "řeka", "Řím", "rak", "šíp", "sít", "žába", "zámek",
+        "ZÁMEK", "zamek", "co-op", "coop", "Ångström", "angstrom", ""
+    };
+    
+    public static void main (String [] args) {
+        testSort (Locale.forLanguageTag ("cs"));
+        testSort (Locale.ENGLISH);
+    }
+    
+    // The order must be the same as when sorting (stably) by the collator.
+    private static void testSort (Locale locale) {
+        Collator collator = Collator.getInstance (locale);
+        Random random = new Random (42);
+        // (word, frequency); the same words with different frequencies test
+        // the stability.
+        List <Pair <String, Integer>> elements = new ArrayList <> ();
+        for (int i = 0; i < 1000; i++) {
+            elements.add (Pair.of (WORDS [random.nextInt (WORDS.length)], random.nextInt (5)));
+        }
+        Comparator <Pair <String, Integer>> byFrequency = Comparator.comparing (pair -> (-1) * pair.get2 ());
+        
+        FunctionalList <Pair <String, Integer>> expected = FunctionalList.from (elements);
+        expected.sort (Comparator.comparing (Pair :: get1, collator));
+        FunctionalList <Pair <String, Integer>> expectedByFrequency = FunctionalList.from (elements);
+        expectedByFrequency.sort (byFrequency.thenComparing (Pair :: get1, collator));
+        
+        boolean ok =
+            CollationUtils.sort (elements, Pair :: get1, collator).equals (expected)
+            && CollationUtils.sort (elements, byFrequency, Pair :: get1, collator).equals (expectedByFrequency);
+        System.out.println ("Collation sort (" + locale + "): " + (ok ? "OK" : "FAILED"));
+    }
+}
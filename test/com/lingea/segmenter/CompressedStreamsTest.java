@@ -0,0 +1,147 @@
+package com.lingea.segmenter;
+
+import com.github.josefplch.utils.data.list.FunctionalList;
+import com.github.josefplch.utils.data.set.StringSet;
+import com.github.josefplch.utils.data.tuple.Tuple4;
+import com.github.josefplch.utils.system.CompressedStreams;
+import com.lingea.segmenter.data.CompactStringSegmentation;
+import com.lingea.segmenter.data.ProbabilisticStringSegmentation;
+import com.lingea.segmenter.substitus.data.SegmentationFileReader;
+import com.lingea.segmenter.substitus.data.SegmentationFileWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public abstract class CompressedStreamsTest {
+    public static void main (String [] args) {
+        try {
+            testDecompress ();
+            testFiles ();
+            testSegmentedList ();
+        }
+        catch (IOException exception) {
+            System.err.println (exception);
+        }
+    }
+    
+    private static byte [] gzip (byte [] data) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream ();
+        try (OutputStream output = new GZIPOutputStream (result)) {
+            output.write (data);
+        }
+        return result.toByteArray ();
+    }
+    
+    private static byte [] readAll (InputStream input) throws IOException {
+        try (InputStream source = input) {
+            return source.readAllBytes ();
+        }
+    }
+    
+    // Plain data pass unchanged, gzip is decompressed exactly once, xz is
+    // rejected.
+    private static void testDecompress () throws IOException {
+        Random random = new Random (42);
+        // More than one block of the background inflater.
+        byte [] data = new byte [300_000];
+        for (int i = 0; i < data.length; i++) {
+            data [i] = (byte) ('a' + random.nextInt (4));
+        }
+        boolean plain = Arrays.equals (readAll (CompressedStreams.decompress (new ByteArrayInputStream (data))), data);
+        System.out.println ("Plain input: " + (plain ? "OK" : "FAILED"));
+        
+        boolean compressed = Arrays.equals (readAll (CompressedStreams.decompress (new ByteArrayInputStream (gzip (data)))), data);
+        System.out.println ("Gzip input: " + (compressed ? "OK" : "FAILED"));
+        
+        byte [] inner = gzip (data);
+        boolean once = Arrays.equals (readAll (CompressedStreams.decompress (new ByteArrayInputStream (gzip (inner)))), inner);
+        System.out.println ("Gzip input decompressed once: " + (once ? "OK" : "FAILED"));
+        
+        boolean empty = (readAll (CompressedStreams.decompress (new ByteArrayInputStream (new byte [0]))).length == 0);
+        System.out.println ("Empty input: " + (empty ? "OK" : "FAILED"));
+        
+        byte [] xz = {(byte) 0xFD, '7', 'z', 'X', 'Z', 0, 0, 4};
+        try {
+            CompressedStreams.decompress (new ByteArrayInputStream (xz));
+            System.out.println ("Xz input: FAILED");
+        }
+        catch (IOException exception) {
+            System.out.println ("Xz input: OK");
+        }
+    }
+    
+    // The output is compressed according to the file name, the input
+    // according to the content. (The default charset is used, so the text is
+    // plain ASCII.)
+    private static void testFiles () throws IOException {
+        Path directory = Files.createTempDirectory ("compressed-streams-test");
+        String text = "yellow horse\n\nover\n";
+        boolean ok = true;
+        for (String name : new String [] {"list.txt", "list.txt" + CompressedStreams.GZIP_EXTENSION}) {
+            String path = directory.resolve (name).toString ();
+            try (BufferedWriter writer = CompressedStreams.openWriter (path)) {
+                writer.write (text);
+            }
+            StringBuilder read = new StringBuilder ();
+            try (BufferedReader reader = CompressedStreams.openReader (path)) {
+                String line;
+                while ((line = reader.readLine ()) != null) {
+                    read.append (line).append ('\n');
+                }
+            }
+            ok =
+                ok
+                && read.toString ().equals (text)
+                && CompressedStreams.isCompressed (path) == name.endsWith (CompressedStreams.GZIP_EXTENSION);
+            Files.delete (directory.resolve (name));
+        }
+        Files.delete (directory);
+        System.out.println ("Compressed files: " + (ok ? "OK" : "FAILED"));
+    }
+    
+    // A compressed binary list (e.g. on the standard input) is read after it
+    // has been decompressed by the caller.
+    private static void testSegmentedList () throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream ();
+        try (SegmentationFileWriter writer = new SegmentationFileWriter (bytes)) {
+            for (int i = 0; i < 10_000; i++) {
+                String word = "slovo" + i;
+                CompactStringSegmentation segmentation = new CompactStringSegmentation (word.charAt (0), word.length ());
+                for (int c = 1; c < word.length (); c++) {
+                    segmentation.addLast ((c % 4) / 4.0, word.charAt (c));
+                }
+                writer.write ((long) i, word, new StringSet (), segmentation);
+            }
+        }
+        FunctionalList <Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation>> expected =
+            SegmentationFileReader.readList (new ByteArrayInputStream (bytes.toByteArray ()), Optional.empty ());
+        FunctionalList <Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation>> read =
+            SegmentationFileReader.readList (
+                CompressedStreams.decompress (new ByteArrayInputStream (gzip (bytes.toByteArray ()))),
+                Optional.empty ()
+            );
+        boolean ok = (read.size () == expected.size ());
+        for (int i = 0; ok && i < read.size (); i++) {
+            ok =
+                read.get (i).get1 ().equals (expected.get (i).get1 ())
+                && read.get (i).get2 ().equals (expected.get (i).get2 ())
+                && read.get (i).get4 ().toCompact ().toString ().equals (expected.get (i).get4 ().toCompact ().toString ());
+        }
+        System.out.println ("Compressed binary segmented list: " + (ok ? "OK" : "FAILED"));
+    }
+}
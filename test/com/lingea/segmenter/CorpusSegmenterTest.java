@@ -0,0 +1,74 @@
+package com.lingea.segmenter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public abstract class CorpusSegmenterTest {
+    // Punctuation around the words, numbers, runs of spaces and tabs, leading
+    // and trailing spaces, an empty line; the words repeat across the files.
+    // ASCII only, the files are read in the default charset.
+    private static final String TEXT_1 =
+        "Hello, world!  The world: 3.14 and 42.\n"
+        + "  (hello)\tworld  \n"
+        + "\n";
+    private static final String TEXT_2 =
+        "\"Hello\" - 2 worlds, world.";
+    
+    public static void main (String [] args) {
+        try {
+            testSegmentize ();
+        }
+        catch (IOException exception) {
+            System.err.println (exception);
+        }
+    }
+    
+    private static File temporaryFile (String text) throws IOException {
+        File result = File.createTempFile ("corpus", ".txt");
+        result.deleteOnExit ();
+        Files.write (result.toPath (), text.getBytes ("US-ASCII"));
+        return result;
+    }
+    
+    // The words are replaced by their segmentations, everything else is kept;
+    // every unique word is segmentized once.
+    private static void testSegmentize () throws IOException {
+        String separator = System.lineSeparator ();
+        String expected =
+            "<Hello>, <world>!  <The> <world>: 3.14 <and> 42." + separator
+            + "  (<hello>)\t<world>  " + separator
+            + separator
+            + "\"<Hello>\" - 2 <worlds>, <world>." + separator;
+        boolean ok = true;
+        for (int threads = 1; threads <= 3; threads++) {
+            Map <String, Integer> calls = new ConcurrentHashMap <> ();
+            CorpusSegmenter segmenter =
+                new CorpusSegmenter (
+                    word -> {
+                        calls.merge (word, 1, Integer :: sum);
+                        return ("<" + word + ">");
+                    },
+                    threads
+                );
+            StringWriter output = new StringWriter ();
+            segmenter.segmentize (Arrays.asList (temporaryFile (TEXT_1).getPath (), temporaryFile (TEXT_2).getPath ()), output);
+            ok =
+                ok
+                && output.toString ().equals (expected)
+                && calls.keySet ().equals (new HashSet <> (Arrays.asList ("Hello", "world", "The", "and", "hello", "worlds")))
+                && calls.values ().stream ().allMatch (count -> count == 1);
+        }
+        System.out.println ("Corpus segmentation: " + (ok ? "OK" : "FAILED"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.lingea.segmenter;
+
+import com.github.josefplch.utils.data.list.FunctionalList;
+import com.github.josefplch.utils.system.FileChunk;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public abstract class FileChunkTest {
+    public static void main (String [] args) {
+        try {
+            testSplit ("Lines", "první řádek\ndruhý\n\ntřetí řádek je delší\nposlední", '\n');
+            testSplit ("Lines with CR", "první řádek\r\ndruhý\r\rtřetí řádek je delší\rposlední\r\n", '\n');
+            testSplit ("Long line with spaces", "jeden dlouhý řádek bez zalomení, jen s mezerami\ta tabulátory", ' ');
+            testSplit ("Long line without spaces", "žluťoučkýkůňúpělďábelskéódy日本語のテキスト😀😀😀", (char) 0);
+        }
+        catch (IOException exception) {
+            System.err.println (exception);
+        }
+    }
+    
+    // The chunks must cover the file and must not exceed the maximum size,
+    // no character may be split. If the maximum size allows, the chunks end
+    // after the boundary (a line break, or a blank for the long line). The
+    // chunks ending elsewhere than after a line break end mid-line.
+    private static void testSplit (String name, String text, char boundary) throws IOException {
+        File file = File.createTempFile ("chunks", ".txt");
+        file.deleteOnExit ();
+        byte [] bytes = text.getBytes (StandardCharsets.UTF_8);
+        Files.write (file.toPath (), bytes);
+        // Maximum distance (in bytes) from any position to the end of the
+        // following boundary.
+        int maxDistance = 0;
+        int distance = 0;
+        for (int i = bytes.length - 1; i >= 0; i--) {
+            distance = (isBoundary (bytes, i, boundary) ? 1 : distance + 1);
+            maxDistance = Math.max (maxDistance, distance);
+        }
+        boolean ok = true;
+        for (int maxSize = 4; maxSize <= bytes.length + 1; maxSize++) {
+            for (int chunkSize = 1; chunkSize <= maxSize; chunkSize++) {
+                FunctionalList <FileChunk> chunks = FileChunk.split (file.getPath (), chunkSize, maxSize);
+                ByteArrayOutputStream joined = new ByteArrayOutputStream ();
+                for (FileChunk chunk : chunks) {
+                    int size = (int) (chunk.getEnd () - chunk.getStart ());
+                    byte [] part = new byte [size];
+                    chunk.map ().get (part);
+                    ok =
+                        ok
+                        && chunk.getStart () == joined.size ()
+                        && size > 0
+                        && size <= maxSize
+                        && new String (part, StandardCharsets.UTF_8).getBytes (StandardCharsets.UTF_8).length == size
+                        && (
+                            chunk.getEnd () == bytes.length
+                            || boundary == 0
+                            || chunkSize + maxDistance > maxSize
+                            || isBoundary (bytes, (int) chunk.getEnd () - 1, boundary)
+                        )
+                        && chunk.endsMidLine () == (chunk.getEnd () < bytes.length && ! isBoundary (bytes, (int) chunk.getEnd () - 1, '\n'));
+                    joined.write (part);
+                }
+                ok = ok && Arrays.equals (joined.toByteArray (), bytes);
+            }
+        }
+        System.out.println (name + ": " + (ok ? "OK" : "FAILED"));
+    }
+    
+    // Is there the boundary after the byte? A line break is LF, CR LF or CR.
+    private static boolean isBoundary (byte [] bytes, int i, char boundary) {
+        byte b = bytes [i];
+        return (
+            (boundary == '\n')
+            ? (b == '\n' || (b == '\r' && (i + 1 == bytes.length || bytes [i + 1] != '\n')))
+            : (boundary == ' ' && (b == ' ' || b == '\t'))
+        );
+    }
+}
@@ -0,0 +1,64 @@
+package com.lingea.segmenter;
+
+import com.github.josefplch.utils.data.map.ObjectLongHashMap;
+import com.lingea.segmenter.data.frequencyList.ParallelTokenCounter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public abstract class ParallelTokenCounterTest {
+    // Multi-byte characters (2, 3 and 4 bytes in UTF-8), Windows line breaks
+    // and the last line without a line break.
+    private static final String TEXT =
+        "žluťoučký kůň úpěl\tďábelské ódy\n"
+        + "日本語 の テキスト 日本語\r\n"
+        + "\n"
+        + "😀 emoji 😀😀 kůň\n"
+        + "kůň kůň  ódy";
+    
+    public static void main (String [] args) {
+        try {
+            testCounts ();
+        }
+        catch (IOException exception) {
+            System.err.println (exception);
+        }
+    }
+    
+    // The parallel counts must be the same as the sequential ones, wherever
+    // the chunks end.
+    private static void testCounts () throws IOException {
+        Map <String, Long> expected = new HashMap <> ();
+        for (String token : TEXT.split ("[ \t\r\n]+")) {
+            if (! token.isEmpty ()) {
+                expected.merge (token, 1L, Long :: sum);
+            }
+        }
+        
+        File file = File.createTempFile ("tokens", ".txt");
+        file.deleteOnExit ();
+        Files.write (file.toPath (), TEXT.getBytes (StandardCharsets.UTF_8));
+        boolean ok = true;
+        for (int threads = 1; threads <= 3; threads++) {
+            for (int chunkSize = 1; chunkSize <= file.length () + 1; chunkSize++) {
+                ObjectLongHashMap <String> counts = ParallelTokenCounter.count (Arrays.asList (file.getPath ()), threads, chunkSize);
+                Map <String, Long> actual = new HashMap <> ();
+                counts.forEach (actual :: put);
+                if (! actual.equals (expected)) {
+                    System.out.println ("threads = " + threads + ", chunk size = " + chunkSize + ": " + actual);
+                    ok = false;
+                }
+            }
+        }
+        System.out.println ("Parallel token counts: " + (ok ? "OK" : "FAILED"));
+    }
+}
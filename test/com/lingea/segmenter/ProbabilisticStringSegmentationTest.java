@@ -1,12 +1,13 @@
 package com.lingea.segmenter;
 
+import com.lingea.segmenter.data.CompactStringSegmentation;
 import com.lingea.segmenter.data.ProbabilisticSegmentation;
 import com.lingea.segmenter.data.ProbabilisticStringSegmentation;
 
 /**
  * @author  Josef Plch
  * @since   2019-11-25
- * @version 2019-11-26
+ * @version 2026-10-19
  */
 public abstract class ProbabilisticStringSegmentationTest {
     public static void main (String [] args) {
@@ -18,5 +19,15 @@ public abstract class ProbabilisticStringSegmentationTest {
         System.out.println (segmentation.toString ());
         System.out.println (segmentation.normalize (0.2));
         System.out.println (segmentation.maxProbability ());
+        
+        // The compact representation must give the same results.
+        CompactStringSegmentation compact =
+            CompactStringSegmentation.readDouble (
+                "h 0.05 a 0.23 v 0.87 e"
+            );
+        System.out.println (compact.elements ());
+        System.out.println (compact.toString ());
+        System.out.println (compact.toProbabilistic ().equals (segmentation));
+        System.out.println (compact.normalize (0.2).toProbabilistic ().equals (segmentation.normalize (0.2)));
     }
 }
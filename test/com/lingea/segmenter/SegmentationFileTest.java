@@ -0,0 +1,145 @@
+package com.lingea.segmenter;
+
+import com.github.josefplch.utils.data.list.FunctionalList;
+import com.github.josefplch.utils.data.list.StringList;
+import com.github.josefplch.utils.data.set.StringSet;
+import com.github.josefplch.utils.data.tuple.Tuple4;
+import com.lingea.segmenter.data.CompactStringSegmentation;
+import com.lingea.segmenter.data.ProbabilisticStringSegmentation;
+import com.lingea.segmenter.substitus.data.SegmentationFileReader;
+import com.lingea.segmenter.substitus.data.SegmentationFileWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public abstract class SegmentationFileTest {
+    // Maximum difference of a glue after the rounding to 6 decimal places.
+    private static final double GLUE_PRECISION = 0.000_000_5;
+    
+    public static void main (String [] args) {
+        try {
+            testBinaryRoundTrip ();
+            testBinaryTextParity ();
+        }
+        catch (IOException exception) {
+            System.err.println (exception);
+        }
+    }
+    
+    private static CompactStringSegmentation randomSegmentation (String atoms, Random random) {
+        CompactStringSegmentation result = new CompactStringSegmentation (atoms.charAt (0), atoms.length ());
+        for (int i = 1; i < atoms.length (); i++) {
+            // Some of the glues are the usual thresholds.
+            double glue = (i % 3 == 0) ? 0.5 : (i % 7 == 0) ? 1.0 : random.nextDouble ();
+            result.addLast (glue, atoms.charAt (i));
+        }
+        return result;
+    }
+    
+    // The binary and the text list must be split the same, also with the
+    // glues close to the usual thresholds.
+    private static void testBinaryTextParity () throws IOException {
+        double [] thresholds = {0.5, 0.25, 0.1};
+        double [] offsets = {-0.002, -0.000_01, -0.000_000_6, -0.000_000_4, 0, 0.000_000_4, 0.000_000_6, 0.000_01, 0.002};
+        FunctionalList <CompactStringSegmentation> segmentations = new FunctionalList <> ();
+        for (double threshold : thresholds) {
+            for (double offset : offsets) {
+                CompactStringSegmentation segmentation = new CompactStringSegmentation ('a', 3);
+                segmentation.addLast (threshold + offset, 'b');
+                segmentation.addLast (threshold - offset, 'c');
+                segmentations.add (segmentation);
+            }
+        }
+        // Reported: "a 0.498000 b 0.501000 c" was split differently.
+        CompactStringSegmentation reported = new CompactStringSegmentation ('a', 3);
+        reported.addLast (0.498, 'b');
+        reported.addLast (0.501, 'c');
+        segmentations.add (reported);
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream ();
+        StringBuilder text = new StringBuilder ();
+        try (SegmentationFileWriter writer = new SegmentationFileWriter (bytes)) {
+            for (CompactStringSegmentation segmentation : segmentations) {
+                writer.write (1L, "abc", new StringSet (), segmentation);
+                text.append ("1\tabc\t" + segmentation.toStringDecimal6 () + "\n");
+            }
+        }
+        FunctionalList <Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation>> fromBinary =
+            SegmentationFileReader.readList (new ByteArrayInputStream (bytes.toByteArray ()), Optional.empty ());
+        FunctionalList <Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation>> fromText =
+            SegmentationFileReader.readList (new ByteArrayInputStream (text.toString ().getBytes ("UTF-8")), Optional.empty ());
+        boolean ok = (fromBinary.size () == segmentations.size () && fromText.size () == segmentations.size ());
+        for (int e = 0; ok && e < segmentations.size (); e++) {
+            ProbabilisticStringSegmentation binary = fromBinary.get (e).get4 ();
+            ProbabilisticStringSegmentation plain = fromText.get (e).get4 ();
+            ok = binary.binarize50S ().equals (plain.binarize50S ());
+            for (int t = 0; ok && t < thresholds.length; t++) {
+                ok =
+                    binary.binarizeS (thresholds [t]).equals (plain.binarizeS (thresholds [t]))
+                    && binary.sureTokensS (thresholds [t], 1 - thresholds [t]).equals (plain.sureTokensS (thresholds [t], 1 - thresholds [t]));
+            }
+        }
+        System.out.println ("Binary and text segmented list split the same: " + (ok ? "OK" : "FAILED"));
+    }
+    
+    // The binary list must be read as it was written, only the glues are
+    // rounded.
+    private static void testBinaryRoundTrip () throws IOException {
+        Random random = new Random (42);
+        StringBuilder longWord = new StringBuilder ();
+        while (longWord.length () < 40_000) {
+            // 2 bytes per character, i.e. more than 65535 bytes in UTF-8.
+            longWord.append ("ž");
+        }
+        FunctionalList <Tuple4 <Long, String, StringSet, CompactStringSegmentation>> entries = new FunctionalList <> ();
+        entries.add (Tuple4.of (123_456_789_012L, "žluťoučký", StringSet.ofStrings ("žluťoučký"), randomSegmentation ("žluťoučký", random)));
+        entries.add (Tuple4.of (1L, "a", new StringSet (), randomSegmentation ("a", random)));
+        entries.add (Tuple4.of (0L, "Über", StringSet.ofStrings ("über", "übern"), randomSegmentation ("über", random)));
+        entries.add (Tuple4.of (300L, "日本語😀", new StringSet (), randomSegmentation ("日本語😀", random)));
+        entries.add (Tuple4.of (7L, longWord.toString (), new StringSet (), randomSegmentation (longWord.toString (), random)));
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream ();
+        StringBuilder text = new StringBuilder ();
+        try (SegmentationFileWriter writer = new SegmentationFileWriter (bytes)) {
+            for (Tuple4 <Long, String, StringSet, CompactStringSegmentation> entry : entries) {
+                writer.write (entry.get1 (), entry.get2 (), entry.get3 (), entry.get4 ());
+                text.append (entry.get1 () + "\t" + entry.get2 () + "\t" + entry.get4 ().toStringDecimal6 () + "\n");
+            }
+        }
+        
+        FunctionalList <Tuple4 <Long, String, StringSet, ProbabilisticStringSegmentation>> read =
+            SegmentationFileReader.readList (new ByteArrayInputStream (bytes.toByteArray ()), Optional.empty ());
+        boolean ok = (read.size () == entries.size ());
+        for (int e = 0; ok && e < entries.size (); e++) {
+            Tuple4 <Long, String, StringSet, CompactStringSegmentation> expected = entries.get (e);
+            CompactStringSegmentation segmentation = read.get (e).get4 ().toCompact ();
+            ok =
+                read.get (e).get1 ().equals (expected.get1 ())
+                && read.get (e).get2 ().equals (expected.get2 ())
+                && read.get (e).get3 ().equals (expected.get3 ())
+                && segmentation.elements ().equals (expected.get4 ().elements ());
+            for (int i = 0; ok && i < segmentation.size () - 1; i++) {
+                double glue = expected.get4 ().glue (i);
+                double difference = Math.abs (segmentation.glue (i) - glue);
+                ok = (glue == 0.5 || glue == 1.0) ? (difference == 0) : (difference <= GLUE_PRECISION);
+            }
+        }
+        System.out.println ("Binary segmented list (" + bytes.size () + " B, text " + text.toString ().getBytes ("UTF-8").length + " B): " + (ok ? "OK" : "FAILED"));
+        
+        // Unpaired surrogates cannot be written in UTF-8.
+        try (SegmentationFileWriter writer = new SegmentationFileWriter (new ByteArrayOutputStream ())) {
+            writer.write (1L, "a\uD800", new StringList (), randomSegmentation ("a\uD800", random));
+            System.out.println ("Unpaired surrogate: FAILED");
+        }
+        catch (IOException exception) {
+            System.out.println ("Unpaired surrogate: OK");
+        }
+    }
+}
@@ -3,18 +3,23 @@ package com.lingea.segmenter;
 import com.github.josefplch.utils.data.list.FunctionalList;
 import com.github.josefplch.utils.data.list.StringList;
 import com.github.josefplch.utils.data.list.number.IntegerList;
+import com.lingea.segmenter.utils.ChunkNgramEnumerator;
 import com.lingea.segmenter.utils.SegmentationUtils;
 import static com.lingea.segmenter.utils.SegmentationUtils.decompose;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * @author  Josef Plch
  * @since   2019-11-21
- * @version 2019-11-21
+ * @version 2026-10-19
  */
 public class SegmentationUtilsTest {
     // Test of effectivity.
     public static void main (String [] args) {
+        testChunkNgrams ("abcabcdabc", 3);
+        
         String word = "0123456789abcdefghij";
         
         System.out.println (decompose (word, Optional.of (2)).take (10).mapToString ().unlines ());
@@ -37,4 +42,21 @@ public class SegmentationUtilsTest {
             System.out.println ();
         }
     }
+    
+    // The chunk n-grams must be the same as the sublists of the decompositions.
+    private static void testChunkNgrams (String word, int maxLevel) {
+        Set <StringList> expected =
+            decompose (word, Optional.of (maxLevel + 1))
+            .flatMap (decomposition -> decomposition.sublists (1, maxLevel))
+            .toSet ();
+        Set <StringList> all = new HashSet <> ();
+        ChunkNgramEnumerator.forEachChunkNgram (word, maxLevel, all :: add);
+        
+        FunctionalList <StringList> known = FunctionalList.of (StringList.ofStrings ("ab", "c"), StringList.ofStrings ("cd", "a", "bc"), StringList.ofStrings ("x"));
+        Set <StringList> found = new HashSet <> ();
+        new ChunkNgramEnumerator (known).forEachKnownNgram (word, maxLevel, found :: add);
+        
+        System.out.println ("All chunk n-grams (" + all.size () + "): " + (all.equals (expected) ? "OK" : "FAILED"));
+        System.out.println ("Known chunk n-grams " + found + ": " + (found.equals (new HashSet <> (known.take (2))) ? "OK" : "FAILED"));
+    }
 }
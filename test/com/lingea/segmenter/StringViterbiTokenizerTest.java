@@ -0,0 +1,87 @@
+package com.lingea.segmenter;
+
+import com.github.josefplch.utils.data.list.FunctionalList;
+import com.github.josefplch.utils.data.list.StringList;
+import com.lingea.segmenter.data.token.ParametrizedNgram;
+import com.lingea.segmenter.substitus.StringViterbiTokenizer;
+
+/**
+ * @author  Josef Plch
+ * @since   2026-10-19
+ * @version 2026-10-19
+ */
+public abstract class StringViterbiTokenizerTest {
+    // N-gram and its TF numerator (per mille).
+    private static final String [][] MODEL = {
+        {"^ po", "40"}, {"^ do", "30"}, {"^ vy", "10"}, {"^ roz", "10"}, {"^ www", "5"},
+        {"po", "60"}, {"do", "50"}, {"vy", "30"}, {"koval", "20"}, {"kov", "25"}, {"al", "30"},
+        {"roz", "25"}, {"tříd", "8"}, {"íme", "15"}, {"ím", "12"}, {"e", "40"}, {"o", "50"},
+        {"n", "30"}, {"á", "20"}, {"klad", "10"}, {"nou", "18"}, {"na", "35"}, {"turbo", "4"},
+        {"dmych", "2"}, {"adlo", "3"}, {"pro", "40"}, {"naj", "6"}, {"ímat", "5"}, {"at", "20"},
+        {"www", "5"}, {".", "30"}, {"cz", "6"}, {"seznam", "3"},
+        {"koval $", "15"}, {"íme $", "12"}, {"nou $", "16"}, {"al $", "20"}, {"o $", "30"},
+        {"at $", "10"}, {"cz $", "6"},
+        {"po vy", "20"}, {"do roz", "12"}, {"roz pro", "10"}, {"vy koval", "12"}, {"do vy", "8"},
+        {"www .", "5"}, {". cz", "6"}, {"po koval", "1"}
+    };
+    
+    // Segmentations given by the previous implementation (HashMap-based
+    // dynamic table, before 2026-10-19) on the model above.
+    private static final String [][] EXPECTED = {
+        {"a", "a"},
+        {"po", "po"},
+        {"koval", "koval"},
+        {"dovykoval", "do vy koval"},
+        {"povykoval", "po vy koval"},
+        {"nákladnou", "n á klad nou"},
+        {"roztřídíme", "roz tříd íme"},
+        {"turbodmychadlo", "turbo dmych adlo"},
+        {"dorozpronajímat", "do roz pro naj ímat"},
+        {"www.seznam.cz", "www . seznam . cz"},
+        {"poxkoval", "po x koval"},
+        {"xyz", "x y z"},
+        {"ccc", "c c c"},
+        {"ex-po", "e x - po"},
+        {"nana", "na na"},
+        {"pokov", "po kov"},
+        {"alal", "al al"},
+        {"vykovalo", "vy koval o"},
+        {"pronajat", "pro naj at"},
+        {"rozdo", "roz do"}
+    };
+    
+    public static void main (String [] args) {
+        testSegmentize ();
+    }
+    
+    private static StringViterbiTokenizer loadModel () {
+        FunctionalList <ParametrizedNgram> ngrams = new FunctionalList <> ();
+        for (String [] ngram : MODEL) {
+            ngrams.add (
+                ParametrizedNgram.parse (
+                    ngram [0]
+                    + "\t" + ngram [0].split (" ").length
+                    + "\t" + ngram [1] + "/1000\t0"
+                    + "\t5/10\t0"
+                    + "\t" + ParametrizedNgram.EXAMPLES_POSITIVE
+                    + "\t" + ParametrizedNgram.EXAMPLES_NEGATIVE
+                )
+            );
+        }
+        return new StringViterbiTokenizer (ngrams);
+    }
+    
+    // The rewritten tokenizer must give the same results as the previous one.
+    private static void testSegmentize () {
+        StringViterbiTokenizer tokenizer = loadModel ();
+        boolean ok = true;
+        for (String [] test : EXPECTED) {
+            StringList result = tokenizer.segmentize (test [0]);
+            if (! result.equals (StringList.split (" ", test [1]))) {
+                System.out.println ("Word " + test [0] + ": " + result + " instead of " + test [1]);
+                ok = false;
+            }
+        }
+        System.out.println ("Viterbi tokenizer: " + (ok ? "OK" : "FAILED"));
+    }
+}
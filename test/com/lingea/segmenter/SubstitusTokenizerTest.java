@@ -3,21 +3,30 @@ package com.lingea.segmenter;
 import com.github.josefplch.utils.data.list.FunctionalList;
 import com.github.josefplch.utils.data.list.StringList;
 import com.github.josefplch.utils.system.TextFileUtils;
+import com.lingea.segmenter.substitus.CodePointSubstitusTokenizer;
 import com.lingea.segmenter.substitus.StringSubstitusTokenizer;
+import com.lingea.segmenter.substitus.Utf8StreamTokenizer;
 import com.lingea.segmenter.utils.ShowUtils;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 /**
  * @author  Josef Plch
  * @since   2018-10-10
- * @version 2021-01-14
+ * @version 2026-10-19
  */
 public abstract class SubstitusTokenizerTest {
     public static void main (String [] args) {
         try {
+            testCodePointTokenizer ();
+            testUtf8StreamTokenizer ();
             testSegmenter ();
         }
         catch (IOException exception) {
@@ -25,6 +34,31 @@ public abstract class SubstitusTokenizerTest {
         }
     }
     
+    // Does the code point tokenizer segmentize the random words the same as
+    // the string one? The supplementary characters are merged by the string
+    // tokenizer only at the end (they are its single tokens of two atoms).
+    private static boolean compareTokenizers (String alphabet, String upperCase, String supplementary, Random random) {
+        String letters = alphabet + supplementary;
+        FunctionalList <StringList> ngrams = new FunctionalList <> ();
+        for (int n = 0; n < 40; n++) {
+            StringList ngram = new StringList ();
+            for (int t = random.nextInt (3); t >= 0; t--) {
+                ngram.add (randomString (letters, 1 + random.nextInt (3), random));
+            }
+            ngrams.add (ngram);
+        }
+        FunctionalList <StringList> stringNgrams = FunctionalList.from (ngrams);
+        supplementary.codePoints ().forEach (codePoint -> stringNgrams.add (StringList.ofStrings (new String (Character.toChars (codePoint)))));
+        CodePointSubstitusTokenizer codePointTokenizer = new CodePointSubstitusTokenizer (Character :: toLowerCase, ngrams);
+        StringSubstitusTokenizer stringTokenizer = new StringSubstitusTokenizer (Character :: toLowerCase, stringNgrams);
+        boolean result = true;
+        for (int w = 0; result && w < 1000; w++) {
+            String word = randomString (letters + upperCase, 1 + random.nextInt (12), random);
+            result = codePointTokenizer.segmentize (word).equals (stringTokenizer.segmentize (word));
+        }
+        return result;
+    }
+    
     private static void printSegmentation (
         String string,
         String tokenFilePath
@@ -46,6 +80,16 @@ public abstract class SubstitusTokenizerTest {
         );
     }
     
+    // A string of random code points of the alphabet.
+    private static String randomString (String alphabet, int length, Random random) {
+        int [] codePoints = alphabet.codePoints ().toArray ();
+        StringBuilder result = new StringBuilder ();
+        for (int i = 0; i < length; i++) {
+            result.appendCodePoint (codePoints [random.nextInt (codePoints.length)]);
+        }
+        return result.toString ();
+    }
+    
     public static void segmentizeFile (
         StringSegmenter segmenter,
         String inputFilePath,
@@ -75,6 +119,17 @@ public abstract class SubstitusTokenizerTest {
         writer.close ();
     }
     
+    private static void testCodePointTokenizer () {
+        Random random = new Random (42);
+        System.out.println ("Code point tokenizer = string tokenizer: " + (compareTokenizers ("abcd", "", "", random) ? "OK" : "FAILED"));
+        System.out.println ("Code point tokenizer, case folding: " + (compareTokenizers ("abcdž", "ABCDŽ", "", random) ? "OK" : "FAILED"));
+        System.out.println ("Code point tokenizer, supplementary characters: " + (compareTokenizers ("abc", "", "😀𝔸", random) ? "OK" : "FAILED"));
+        
+        // The surrogate pairs are never split.
+        CodePointSubstitusTokenizer tokenizer = new CodePointSubstitusTokenizer (Character :: toLowerCase, new FunctionalList <> ());
+        System.out.println ("Code point tokenizer, unknown supplementary characters: " + (tokenizer.segmentize ("😀a𝔸").equals (StringList.ofStrings ("😀", "a", "𝔸")) ? "OK" : "FAILED"));
+    }
+    
     private static void testSegmenter () throws IOException {
         String testString = TestData.CS_A.toLowerCase ().replaceAll ("[ \t\n]+", " ");
         System.out.println ("Test string: " + testString.length () + " characters");
@@ -91,4 +146,27 @@ public abstract class SubstitusTokenizerTest {
         System.out.println ("EN");
         printSegmentation (testString, DataPaths.tunedTokenFile ("en_all_1000k_bin50_n3_frq100_nob_ordered_n3_t10_len10_frq100_iwf5_unq_fn3.txt"));
     }
+    
+    // Line ends (LF, CR LF, CR), runs of spaces, trailing spaces and an
+    // invalid UTF-8 byte (a single atom, copied unchanged).
+    private static void testUtf8StreamTokenizer () throws IOException {
+        FunctionalList <StringList> ngrams = new FunctionalList <> ();
+        ngrams.add (StringList.ofStrings ("ab"));
+        ngrams.add (StringList.ofStrings ("cd"));
+        CodePointSubstitusTokenizer tokenizer = new CodePointSubstitusTokenizer (Character :: toLowerCase, ngrams);
+        ByteArrayOutputStream input = new ByteArrayOutputStream ();
+        input.write ("ab  Cd \r\nabcd\rcd   \n".getBytes (StandardCharsets.UTF_8));
+        input.write (0xFF);
+        input.write ("abž".getBytes (StandardCharsets.UTF_8));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream ();
+        String separator = System.lineSeparator ();
+        expected.write (("ab__Cd" + separator + "ab|cd" + separator + "cd" + separator).getBytes (StandardCharsets.UTF_8));
+        expected.write (0xFF);
+        expected.write (("|ab|ž" + separator).getBytes (StandardCharsets.UTF_8));
+        
+        ByteArrayOutputStream output = new ByteArrayOutputStream ();
+        long read = new Utf8StreamTokenizer (tokenizer, "|", "_").tokenize (new ByteArrayInputStream (input.toByteArray ()), output);
+        boolean ok = (read == input.size () && Arrays.equals (output.toByteArray (), expected.toByteArray ()));
+        System.out.println ("UTF-8 stream tokenizer: " + (ok ? "OK" : "FAILED"));
+    }
 }